@@ -0,0 +1,289 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package diet;
+
+import util.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Exact optimization of the portions of the variable ingredients of a diet plan template by depth-first branch and
+ * bound. Each value in a score slot is a linear function of the portions, so every node of the search tree knows the
+ * interval of each value; the weighted upper bounds of the scores for these intervals bound the total score of all
+ * diet plans below the node. Nodes whose bound doesn't exceed the best total score found so far are pruned.
+ * <p/>
+ * The search starts with the rounded solution of the linear relaxation, and each ingredient tries the portions closest
+ * to that solution first. If the node limit is reached, the bounds of the unexplored nodes certify the gap between the
+ * best diet plan and the optimum.
+ */
+public class BranchAndBound {
+    private static final double PRUNING_TOLERANCE = 1e-9;
+
+    private final ScoringProgram scoringProgram;
+    private final ScoreLayout layout;
+    private final DietPlanTemplate template;
+    private final long maxNodes;
+    private final int[] order; // Variable ingredients in the order of branching
+    private final int[][] slots; // Slots that depend on each variable ingredient
+    private final double[][] contributions; // Change of the values in the slots per portion
+    private final int[] minPortions;
+    private final int[] maxPortions;
+    private final int[] startPortions;
+    private final int[] portions;
+    private final double[] minValues;
+    private final double[] maxValues;
+    private final double[] slotBounds; // Weighted upper bound of the score in each slot
+    private double bound;
+    private DietPlan bestDietPlan;
+    private double bestTotalScore;
+    private double openBound = Double.NEGATIVE_INFINITY; // Greatest bound of the nodes that weren't explored
+    private long numberOfNodes = 0L;
+
+    /**
+     * Searches the best diet plan of the template. The search runs until optimality is proven or the node limit is
+     * reached.
+     *
+     * @param maxNodes Maximum number of nodes of the search tree that are expanded
+     */
+    public static BranchAndBound branchAndBound(final DietPlanTemplate template,
+                                                final ScoringProgram scoringProgram,
+                                                final long maxNodes) {
+        if (maxNodes < 1L) {
+            throw new IllegalArgumentException("Invalid maximum number of nodes: " + maxNodes);
+        }
+        return new BranchAndBound(template, scoringProgram, maxNodes);
+    }
+
+    private BranchAndBound(final DietPlanTemplate template, final ScoringProgram scoringProgram, final long maxNodes) {
+        this.scoringProgram = scoringProgram;
+        this.template = template;
+        this.maxNodes = maxNodes;
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = template.getVariableIngredients();
+        final int numberOfIngredients = variableIngredients.size();
+        layout = scoringProgram.getLayout(template.getNumberOfMeals());
+        final int size = layout.size();
+
+        slots = new int[numberOfIngredients][];
+        contributions = new double[numberOfIngredients][];
+        minPortions = new int[numberOfIngredients];
+        maxPortions = new int[numberOfIngredients];
+        startPortions = new int[numberOfIngredients];
+        portions = new int[numberOfIngredients];
+        minValues = new double[size];
+        maxValues = new double[size];
+        final double[] ingredientContributions = new double[size];
+        for (int i = 0; i < numberOfIngredients; ++i) {
+            final Pair<Integer, FoodItem> ingredientId = variableIngredients.get(i);
+            minPortions[i] = template.getMinPortions(i);
+            maxPortions[i] = template.getMaxPortions(i);
+            scoringProgram.getPortionContributions(layout, ingredientId.a(), ingredientId.b(),
+                    ingredientContributions);
+            int count = 0;
+            for (int slot = 0; slot < size; ++slot) {
+                if (ingredientContributions[slot] != 0.0) {
+                    ++count;
+                }
+            }
+            slots[i] = new int[count];
+            contributions[i] = new double[count];
+            count = 0;
+            for (int slot = 0; slot < size; ++slot) {
+                final double contribution = ingredientContributions[slot];
+                if (contribution != 0.0) {
+                    slots[i][count] = slot;
+                    contributions[i][count] = contribution;
+                    ++count;
+                    minValues[slot] += contribution * (contribution > 0.0 ? minPortions[i] : maxPortions[i]);
+                    maxValues[slot] += contribution * (contribution > 0.0 ? maxPortions[i] : minPortions[i]);
+                }
+            }
+        }
+
+        slotBounds = new double[size];
+        bound = 0.0;
+        for (int slot = 0; slot < size; ++slot) {
+            slotBounds[slot] = getSlotBound(slot);
+            bound += slotBounds[slot];
+        }
+
+        // The relaxed diet plan is the first incumbent and the center of the portions that are tried.
+        final Optional<DietPlan> maybeRelaxedDietPlan = template.getRelaxedDietPlan(scoringProgram);
+        bestDietPlan = maybeRelaxedDietPlan.isPresent() ? maybeRelaxedDietPlan.get() : template.getMinimalDietPlan();
+        bestTotalScore = scoringProgram.evaluate(bestDietPlan).getTotalScore();
+        for (int i = 0; i < numberOfIngredients; ++i) {
+            final Pair<Integer, FoodItem> ingredientId = variableIngredients.get(i);
+            final FoodItem ingredient = ingredientId.b();
+            startPortions[i] = Math.max(minPortions[i], Math.min(maxPortions[i],
+                    ingredient.amountToPortions(bestDietPlan.getMeal(ingredientId.a()).getAmount(ingredient))));
+        }
+
+        order = getBranchingOrder();
+        search(0);
+    }
+
+    /**
+     * Ingredients are branched on in the order of their share of the intervals of the values, weighted by the weights
+     * of the scores, so that the intervals shrink fast. Ingredients with a single possible number of portions come
+     * first; they don't branch.
+     */
+    private int[] getBranchingOrder() {
+        final int numberOfIngredients = slots.length;
+        final long[] keys = new long[numberOfIngredients];
+        for (int i = 0; i < numberOfIngredients; ++i) {
+            final int range = maxPortions[i] - minPortions[i];
+            double share = 0.0;
+            for (int entry = 0; entry < slots[i].length; ++entry) {
+                final int slot = slots[i][entry];
+                final double width = maxValues[slot] - minValues[slot];
+                if (width > 0.0) {
+                    share += layout.getWeight(slot) * Math.abs(contributions[i][entry]) * range / width;
+                }
+            }
+            final float priority = range == 0 ? Float.MAX_VALUE : (float) share;
+            // Descending priority, ascending index (see InfluenceIndex)
+            keys[i] = (long) Float.floatToIntBits(priority) << 32 | (Integer.MAX_VALUE - i);
+        }
+        Arrays.sort(keys);
+        final int[] order = new int[numberOfIngredients];
+        for (int rank = 0; rank < numberOfIngredients; ++rank) {
+            order[rank] = Integer.MAX_VALUE - (int) keys[numberOfIngredients - 1 - rank];
+        }
+        return order;
+    }
+
+    private double getSlotBound(final int slot) {
+        return layout.getWeight(slot) *
+                scoringProgram.getScoreUpperBound(layout, slot, minValues[slot], maxValues[slot]);
+    }
+
+    private void search(final int depth) {
+        if (bound <= bestTotalScore + PRUNING_TOLERANCE) {
+            return;
+        }
+        if (numberOfNodes >= maxNodes) {
+            openBound = Math.max(openBound, bound);
+            return;
+        }
+        ++numberOfNodes;
+        if (depth == order.length) {
+            evaluateLeaf();
+            return;
+        }
+
+        final int ingredientIndex = order[depth];
+        final int[] ingredientSlots = slots[ingredientIndex];
+        final double[] savedMinValues = new double[ingredientSlots.length];
+        final double[] savedMaxValues = new double[ingredientSlots.length];
+        final double[] savedSlotBounds = new double[ingredientSlots.length];
+        for (int entry = 0; entry < ingredientSlots.length; ++entry) {
+            savedMinValues[entry] = minValues[ingredientSlots[entry]];
+            savedMaxValues[entry] = maxValues[ingredientSlots[entry]];
+            savedSlotBounds[entry] = slotBounds[ingredientSlots[entry]];
+        }
+        final double savedBound = bound;
+
+        // Portions are tried in the order of their distance to the start, alternating above and below.
+        final int start = startPortions[ingredientIndex];
+        final int range = maxPortions[ingredientIndex] - minPortions[ingredientIndex];
+        for (int distance = 0; distance <= range; ++distance) {
+            for (int sign = 1; sign >= -1; sign -= 2) {
+                final int newPortions = start + sign * distance;
+                if ((distance == 0 && sign < 0) || newPortions < minPortions[ingredientIndex] ||
+                        newPortions > maxPortions[ingredientIndex]) {
+                    continue;
+                }
+                setPortions(ingredientIndex, newPortions);
+                search(depth + 1);
+
+                for (int entry = 0; entry < ingredientSlots.length; ++entry) {
+                    minValues[ingredientSlots[entry]] = savedMinValues[entry];
+                    maxValues[ingredientSlots[entry]] = savedMaxValues[entry];
+                    slotBounds[ingredientSlots[entry]] = savedSlotBounds[entry];
+                }
+                bound = savedBound;
+            }
+        }
+    }
+
+    /**
+     * Replaces the interval of the portions of the ingredient with the number of portions.
+     */
+    private void setPortions(final int ingredientIndex, final int newPortions) {
+        portions[ingredientIndex] = newPortions;
+        final int[] ingredientSlots = slots[ingredientIndex];
+        final double[] ingredientContributions = contributions[ingredientIndex];
+        for (int entry = 0; entry < ingredientSlots.length; ++entry) {
+            final int slot = ingredientSlots[entry];
+            final double contribution = ingredientContributions[entry];
+            final double value = contribution * newPortions;
+            final double minContribution = contribution *
+                    (contribution > 0.0 ? minPortions[ingredientIndex] : maxPortions[ingredientIndex]);
+            final double maxContribution = contribution *
+                    (contribution > 0.0 ? maxPortions[ingredientIndex] : minPortions[ingredientIndex]);
+            minValues[slot] += value - minContribution;
+            maxValues[slot] += value - maxContribution;
+            final double slotBound = getSlotBound(slot);
+            bound += slotBound - slotBounds[slot];
+            slotBounds[slot] = slotBound;
+        }
+    }
+
+    private void evaluateLeaf() {
+        final DietPlan dietPlan = template.getDietPlan(portions);
+        final double totalScore = scoringProgram.evaluate(dietPlan).getTotalScore();
+        if (totalScore > bestTotalScore) {
+            bestDietPlan = dietPlan;
+            bestTotalScore = totalScore;
+        }
+    }
+
+    public DietPlan getDietPlan() {
+        return bestDietPlan;
+    }
+
+    public double getTotalScore() {
+        return bestTotalScore;
+    }
+
+    /**
+     * @return upper bound of the total score of all diet plans of the template
+     */
+    public double getUpperBound() {
+        return Math.max(bestTotalScore, openBound);
+    }
+
+    /**
+     * @return difference between the upper bound and the total score of the best diet plan; 0.0 if it is optimal
+     */
+    public double getGap() {
+        return getUpperBound() - bestTotalScore;
+    }
+
+    public boolean isOptimal() {
+        return openBound <= bestTotalScore + PRUNING_TOLERANCE;
+    }
+
+    public long getNumberOfNodes() {
+        return numberOfNodes;
+    }
+}
@@ -22,22 +22,35 @@ package diet;
 
 import util.LazyValue;
 import util.Limits2;
-import util.Mutable;
 import util.Pair;
+import util.RacyLazyValue;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.BiConsumer;
 
-import static util.Mutable.mutable;
+import static diet.NutrientMatrix.nutrientMatrix;
 import static util.Pair.pair;
 
 public class DietPlan {
+    private static final long INGREDIENT_SALT = 0x9E3779B97F4A7C15L;
+    private static final long TEMPLATE_SALT = 0xC2B2AE3D27D4EB4FL;
+    private static final double PORTION_TOLERANCE = 1e-9; // Tolerance for rounding errors of amounts in portions
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<DietPlan, Optional> SCORES_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DietPlan.class, Optional.class, "maybeScores");
+
     private final Optional<DietPlanTemplate> maybeTemplate;
     private final ArrayList<Meal> meals;
+    private final long hash;
     private final LazyValue<FoodItems> foodItems;
     private final LazyValue<FoodProperties> properties;
     private final LazyValue<Double> costs;
+    private volatile Optional<Change> maybeChange = Optional.empty();
+    private volatile Optional<ProgramScores> maybeScores = Optional.empty(); // Most recently published first
 
     public static DietPlan dietPlan(final DietPlanTemplate template, final ArrayList<Meal> meals) {
         return new DietPlan(Optional.of(template), meals);
@@ -46,8 +59,13 @@ public class DietPlan {
     private DietPlan(final Optional<DietPlanTemplate> maybeTemplate, final ArrayList<Meal> meals) {
         this.maybeTemplate = maybeTemplate;
         this.meals = meals;
+        long hash = 0L;
+        for (int i = 0; i < meals.size(); ++i) {
+            hash ^= getMealHash(i, meals.get(i));
+        }
+        this.hash = hash;
 
-        foodItems = new LazyValue<FoodItems>() {
+        foodItems = new RacyLazyValue<FoodItems>() {
             @Override
             protected FoodItems compute() {
                 final FoodItems foodItems = new FoodItems();
@@ -59,7 +77,7 @@ public class DietPlan {
             }
         };
 
-        properties = new LazyValue<FoodProperties>() {
+        properties = new RacyLazyValue<FoodProperties>() {
             @Override
             protected FoodProperties compute() {
                 final FoodProperties properties = new FoodProperties();
@@ -71,7 +89,7 @@ public class DietPlan {
             }
         };
 
-        costs = new LazyValue<Double>() {
+        costs = new RacyLazyValue<Double>() {
             @Override
             protected Double compute() {
                 double costs = 0.0;
@@ -84,6 +102,251 @@ public class DietPlan {
         };
     }
 
+    /**
+     * Derives the values of the new diet plan from the origin and the change of a single ingredient. The values are
+     * calculated immediately, so that the new diet plan doesn't keep a reference to the origin after it has been
+     * evaluated.
+     */
+    private DietPlan(final DietPlan origin, final int mealIndex, final FoodItem ingredient, final double newAmount) {
+        maybeTemplate = origin.maybeTemplate;
+
+        final ArrayList<Meal> originMeals = origin.getMeals();
+        final Meal originMeal = originMeals.get(mealIndex);
+        final double amountDiff = newAmount - originMeal.getAmount(ingredient);
+        meals = new ArrayList<Meal>(originMeals);
+        meals.set(mealIndex, originMeal.getWithChange(ingredient, newAmount));
+        hash = origin.hash ^ getKey(mealIndex, ingredient, originMeal.getAmount(ingredient)) ^
+                getKey(mealIndex, ingredient, meals.get(mealIndex).getAmount(ingredient));
+
+        // The total amount is summed up over all meals again, so that rounding errors can't accumulate (items with
+        // remaining amounts close to zero would be regarded as wasted).
+        double newTotalAmount = 0.0;
+        for (final Meal meal : meals) {
+            newTotalAmount += meal.getAmount(ingredient);
+        }
+        final FoodItems newFoodItems = origin.getFoodItems().getWithChange(ingredient, newTotalAmount);
+        foodItems = new RacyLazyValue<FoodItems>() {
+            @Override
+            protected FoodItems compute() {
+                return newFoodItems;
+            }
+        };
+
+        final FoodProperties newProperties = new FoodProperties(origin.getProperties());
+        nutrientMatrix().addScaled(newProperties, ingredient, amountDiff);
+        properties = new RacyLazyValue<FoodProperties>() {
+            @Override
+            protected FoodProperties compute() {
+                return newProperties;
+            }
+        };
+
+        final double newCosts = origin.getCosts() + ingredient.getPrice() * amountDiff;
+        costs = new RacyLazyValue<Double>() {
+            @Override
+            protected Double compute() {
+                return newCosts;
+            }
+        };
+
+        maybeChange = Optional.of(new Change(origin, Collections.singletonList(pair(mealIndex, ingredient)), false));
+    }
+
+    /**
+     * Derives the values of the new diet plan from the origin and the changes of several different ingredients in one
+     * step, without intermediate diet plans.
+     */
+    private DietPlan(final DietPlan origin,
+                     final List<Pair<Integer, FoodItem>> ingredientIds,
+                     final double[] newAmounts) {
+        maybeTemplate = origin.maybeTemplate;
+
+        final ArrayList<Meal> originMeals = origin.getMeals();
+        meals = new ArrayList<Meal>(originMeals);
+        final int numberOfChanges = ingredientIds.size();
+        final boolean[] applied = new boolean[numberOfChanges];
+        for (int i = 0; i < numberOfChanges; ++i) {
+            if (!applied[i]) {
+                final int mealIndex = ingredientIds.get(i).a();
+                final ArrayList<Pair<FoodItem, Double>> mealChanges = new ArrayList<Pair<FoodItem, Double>>();
+                for (int j = i; j < numberOfChanges; ++j) {
+                    if (ingredientIds.get(j).a() == mealIndex) {
+                        mealChanges.add(pair(ingredientIds.get(j).b(), newAmounts[j]));
+                        applied[j] = true;
+                    }
+                }
+                meals.set(mealIndex, originMeals.get(mealIndex).getWithChanges(mealChanges));
+            }
+        }
+        long hash = origin.hash;
+        for (final Pair<Integer, FoodItem> ingredientId : ingredientIds) {
+            final int mealIndex = ingredientId.a();
+            final FoodItem ingredient = ingredientId.b();
+            hash ^= getKey(mealIndex, ingredient, originMeals.get(mealIndex).getAmount(ingredient)) ^
+                    getKey(mealIndex, ingredient, meals.get(mealIndex).getAmount(ingredient));
+        }
+        this.hash = hash;
+
+        final FoodItems newFoodItems = new FoodItems(origin.getFoodItems());
+        final FoodProperties newProperties = new FoodProperties(origin.getProperties());
+        double newCosts = origin.getCosts();
+        for (int i = 0; i < numberOfChanges; ++i) {
+            final Pair<Integer, FoodItem> ingredientId = ingredientIds.get(i);
+            final FoodItem ingredient = ingredientId.b();
+            final double amountDiff = newAmounts[i] - originMeals.get(ingredientId.a()).getAmount(ingredient);
+            nutrientMatrix().addScaled(newProperties, ingredient, amountDiff);
+            newCosts += ingredient.getPrice() * amountDiff;
+
+            // Summed up over all meals again, as for a single change
+            double newTotalAmount = 0.0;
+            for (final Meal meal : meals) {
+                newTotalAmount += meal.getAmount(ingredient);
+            }
+            newFoodItems.set(ingredient, newTotalAmount);
+        }
+
+        foodItems = new RacyLazyValue<FoodItems>() {
+            @Override
+            protected FoodItems compute() {
+                return newFoodItems;
+            }
+        };
+        properties = new RacyLazyValue<FoodProperties>() {
+            @Override
+            protected FoodProperties compute() {
+                return newProperties;
+            }
+        };
+        final double finalCosts = newCosts;
+        costs = new RacyLazyValue<Double>() {
+            @Override
+            protected Double compute() {
+                return finalCosts;
+            }
+        };
+
+        maybeChange = Optional.of(new Change(origin, ingredientIds, false));
+    }
+
+    /**
+     * Moves an amount of an ingredient from one meal to another. The totals of the diet plan don't change, so they are
+     * shared with the origin.
+     */
+    private DietPlan(final DietPlan origin,
+                     final int fromMealIndex,
+                     final int toMealIndex,
+                     final FoodItem ingredient,
+                     final double newFromAmount,
+                     final double newToAmount) {
+        maybeTemplate = origin.maybeTemplate;
+
+        final ArrayList<Meal> originMeals = origin.getMeals();
+        final Meal fromMeal = originMeals.get(fromMealIndex);
+        final Meal toMeal = originMeals.get(toMealIndex);
+        meals = new ArrayList<Meal>(originMeals);
+        meals.set(fromMealIndex, fromMeal.getWithChange(ingredient, newFromAmount));
+        meals.set(toMealIndex, toMeal.getWithChange(ingredient, newToAmount));
+        hash = origin.hash ^
+                getKey(fromMealIndex, ingredient, fromMeal.getAmount(ingredient)) ^
+                getKey(fromMealIndex, ingredient, meals.get(fromMealIndex).getAmount(ingredient)) ^
+                getKey(toMealIndex, ingredient, toMeal.getAmount(ingredient)) ^
+                getKey(toMealIndex, ingredient, meals.get(toMealIndex).getAmount(ingredient));
+
+        final FoodItems originFoodItems = origin.getFoodItems();
+        foodItems = new RacyLazyValue<FoodItems>() {
+            @Override
+            protected FoodItems compute() {
+                return originFoodItems;
+            }
+        };
+        final FoodProperties originProperties = origin.getProperties();
+        properties = new RacyLazyValue<FoodProperties>() {
+            @Override
+            protected FoodProperties compute() {
+                return originProperties;
+            }
+        };
+        final double originCosts = origin.getCosts();
+        costs = new RacyLazyValue<Double>() {
+            @Override
+            protected Double compute() {
+                return originCosts;
+            }
+        };
+
+        final ArrayList<Pair<Integer, FoodItem>> ingredientIds = new ArrayList<Pair<Integer, FoodItem>>(2);
+        ingredientIds.add(pair(fromMealIndex, ingredient));
+        ingredientIds.add(pair(toMealIndex, ingredient));
+        maybeChange = Optional.of(new Change(origin, ingredientIds, true));
+    }
+
+    /**
+     * Replaces a meal and its meal template. The values of the diet plan are derived from the origin by exchanging the
+     * values of the meal.
+     */
+    private DietPlan(final DietPlan origin,
+                     final DietPlanTemplate template,
+                     final int mealIndex,
+                     final Meal newMeal) {
+        maybeTemplate = Optional.of(template);
+
+        final ArrayList<Meal> originMeals = origin.getMeals();
+        final Meal oldMeal = originMeals.get(mealIndex);
+        meals = new ArrayList<Meal>(originMeals);
+        meals.set(mealIndex, newMeal);
+        hash = origin.hash ^ getMealHash(mealIndex, oldMeal) ^ getMealHash(mealIndex, newMeal);
+
+        // Ingredients of the old and the new meal
+        final ArrayList<Pair<Integer, FoodItem>> ingredientIds = new ArrayList<Pair<Integer, FoodItem>>();
+        final FoodItems oldIngredients = oldMeal.getIngredients();
+        final FoodItems newIngredients = newMeal.getIngredients();
+        for (int index = oldIngredients.firstIndex(); index >= 0; index = oldIngredients.nextIndex(index)) {
+            ingredientIds.add(pair(mealIndex, oldIngredients.getItem(index)));
+        }
+        for (int index = newIngredients.firstIndex(); index >= 0; index = newIngredients.nextIndex(index)) {
+            if (oldIngredients.getAmount(index) == 0.0) {
+                ingredientIds.add(pair(mealIndex, newIngredients.getItem(index)));
+            }
+        }
+
+        final FoodItems newFoodItems = new FoodItems(origin.getFoodItems());
+        for (final Pair<Integer, FoodItem> ingredientId : ingredientIds) {
+            final FoodItem ingredient = ingredientId.b();
+            double newTotalAmount = 0.0;
+            for (final Meal meal : meals) {
+                newTotalAmount += meal.getAmount(ingredient);
+            }
+            newFoodItems.set(ingredient, newTotalAmount);
+        }
+        foodItems = new RacyLazyValue<FoodItems>() {
+            @Override
+            protected FoodItems compute() {
+                return newFoodItems;
+            }
+        };
+
+        // The new meal is added first, so that no amount gets negative.
+        final FoodProperties newProperties = new FoodProperties(origin.getProperties());
+        newProperties.add(newMeal.getProperties());
+        newProperties.addScaled(oldMeal.getProperties(), -1.0);
+        properties = new RacyLazyValue<FoodProperties>() {
+            @Override
+            protected FoodProperties compute() {
+                return newProperties;
+            }
+        };
+
+        final double newCosts = origin.getCosts() - oldMeal.getCosts() + newMeal.getCosts();
+        costs = new RacyLazyValue<Double>() {
+            @Override
+            protected Double compute() {
+                return newCosts;
+            }
+        };
+
+        maybeChange = Optional.of(new Change(origin, ingredientIds, false));
+    }
+
     public ArrayList<Meal> getMeals() {
         return meals;
     }
@@ -128,14 +391,15 @@ public class DietPlan {
         return variableIngredients;
     }
 
+    public InfluenceIndex getInfluenceIndex(final ScoreLayout layout) {
+        if (maybeTemplate.isPresent()) {
+            return maybeTemplate.get().getInfluenceIndex(layout);
+        }
+        return new InfluenceIndex(layout, getVariableIngredients());
+    }
+
     public DietPlan getWithChange(final int mealIndex, final FoodItem ingredient, final double newAmount) {
-        // TODO: Lazy values can be set using a new private constructor - the modifications are easy to calculate here.
-        final int numberOfMeals = meals.size();
-        final ArrayList<Meal> changedMeals = new ArrayList<Meal>(numberOfMeals);
-        changedMeals.addAll(meals.subList(0, mealIndex));
-        changedMeals.add(meals.get(mealIndex).getWithChange(ingredient, newAmount));
-        changedMeals.addAll(meals.subList(mealIndex + 1, numberOfMeals));
-        return new DietPlan(maybeTemplate, changedMeals);
+        return new DietPlan(this, mealIndex, ingredient, newAmount);
     }
 
     public Optional<DietPlan> addPortion(final int mealIndex, final FoodItem ingredient) {
@@ -176,98 +440,272 @@ public class DietPlan {
         return removePortion(ingredientId.a(), ingredientId.b());
     }
 
-    public Scores getScores(final Requirements requirements) {
-        final Scores scores = new Scores();
-
-        // Criteria for complete diet plan
-        final FoodProperties dietPlanProperties = getProperties();
-        scores.addStandardScore(Requirement.ALPHA_LINOLENIC_ACID, dietPlanProperties.get(FoodProperty.ALPHA_LINOLENIC_ACID), requirements);
-        scores.addStandardScore(Requirement.CALCIUM, dietPlanProperties.get(FoodProperty.CALCIUM), requirements);
-        scores.addStandardScore(Requirement.CARBOHYDRATES, dietPlanProperties.get(FoodProperty.CARBOHYDRATES), requirements);
-        scores.addStandardScore(Requirement.CHOLESTEROL, dietPlanProperties.get(FoodProperty.CHOLESTEROL), requirements);
-        scores.addStandardScore(Requirement.COSTS, getCosts(), requirements);
-        scores.addStandardScore(Requirement.DIETARY_FIBRE, dietPlanProperties.get(FoodProperty.DIETARY_FIBRE), requirements);
-        scores.addStandardScore(Requirement.ENERGY, dietPlanProperties.get(FoodProperty.ENERGY), requirements);
-        scores.addStandardScore(Requirement.FAT, dietPlanProperties.get(FoodProperty.FAT), requirements);
-        scores.addStandardScore(Requirement.FOLATES, dietPlanProperties.get(FoodProperty.TOTAL_FOLATES), requirements);
-        scores.addStandardScore(Requirement.IODINE, dietPlanProperties.get(FoodProperty.IODINE), requirements);
-        scores.addStandardScore(Requirement.IRON, dietPlanProperties.get(FoodProperty.IRON), requirements);
-        scores.addStandardScore(Requirement.LINOLEIC_ACID, dietPlanProperties.get(FoodProperty.LINOLEIC_ACID), requirements);
-        scores.addStandardScore(Requirement.MAGNESIUM, dietPlanProperties.get(FoodProperty.MAGNESIUM), requirements);
-        scores.addStandardScore(Requirement.NIACIN_DERIVED_EQUIVALENTS, dietPlanProperties.get(FoodProperty.NIACIN_DERIVED_EQUIVALENTS), requirements);
-        scores.addStandardScore(Requirement.OMEGA_3_FATTY_ACIDS, dietPlanProperties.get(FoodProperty.OMEGA_3_FATTY_ACIDS), requirements);
-        scores.addStandardScore(Requirement.PHOSPHORUS, dietPlanProperties.get(FoodProperty.PHOSPHORUS), requirements);
-        scores.addStandardScore(Requirement.POTASSIUM, dietPlanProperties.get(FoodProperty.POTASSIUM), requirements);
-        scores.addStandardScore(Requirement.PROTEIN, dietPlanProperties.get(FoodProperty.PROTEIN), requirements);
-        scores.addStandardScore(Requirement.RIBOFLAVIN, dietPlanProperties.get(FoodProperty.RIBOFLAVIN), requirements);
-        scores.addStandardScore(Requirement.SELENIUM, dietPlanProperties.get(FoodProperty.SELENIUM), requirements);
-        scores.addStandardScore(Requirement.SODIUM, dietPlanProperties.get(FoodProperty.SODIUM), requirements);
-        scores.addStandardScore(Requirement.SUGARS, dietPlanProperties.get(FoodProperty.SUGARS), requirements);
-        scores.addStandardScore(Requirement.THIAMIN, dietPlanProperties.get(FoodProperty.THIAMIN), requirements);
-        scores.addStandardScore(Requirement.TRANS_FATTY_ACIDS, dietPlanProperties.get(FoodProperty.TRANS_FATTY_ACIDS), requirements);
-        scores.addStandardScore(Requirement.TRYPTOPHAN, dietPlanProperties.get(FoodProperty.TRYPTOPHAN), requirements);
-        scores.addStandardScore(Requirement.VITAMIN_A_RETINOL_EQUIVALENTS, dietPlanProperties.get(FoodProperty.VITAMIN_A_RETINOL_EQUIVALENTS), requirements);
-        scores.addStandardScore(Requirement.VITAMIN_B12, dietPlanProperties.get(FoodProperty.VITAMIN_B12), requirements);
-        scores.addStandardScore(Requirement.VITAMIN_B6, dietPlanProperties.get(FoodProperty.VITAMIN_B6), requirements);
-        scores.addStandardScore(Requirement.VITAMIN_C, dietPlanProperties.get(FoodProperty.VITAMIN_C), requirements);
-        scores.addStandardScore(Requirement.VITAMIN_E, dietPlanProperties.get(FoodProperty.VITAMIN_E), requirements);
-        scores.addStandardScore(Requirement.ZINC, dietPlanProperties.get(FoodProperty.ZINC), requirements);
-
-        // Restrictions
-        final boolean meetsVegetarianRequirement = !requirements.getVegetarian() ||
-                dietPlanProperties.get(FoodProperty.VEGETARIAN) == 0.0; // TODO: epsi
-        scores.addScore(Requirement.VEGETARIAN, meetsVegetarianRequirement ? 1.0 : 0.0, 10.0); // TODO
-        final boolean meetsVeganRequirement = !requirements.getVegan() ||
-                dietPlanProperties.get(FoodProperty.VEGAN) == 0.0; // TODO: epsi
-        scores.addScore(Requirement.VEGAN, meetsVeganRequirement ? 1.0 : 0.0, 10.0); // TODO
-
-        // Criteria for individual meals
-        final int numberOfMeals = getNumberOfMeals();
-        for (int i = 0; i < numberOfMeals; ++i) {
-            final Meal meal = getMeal(i);
-            final FoodProperties mealProperties = meal.getProperties();
-            scores.addStandardScore(Requirement.MEAL_ALCOHOL, mealProperties.get(FoodProperty.ALCOHOL), requirements);
-            scores.addStandardScore(Requirement.MEAL_CAFFEINE, mealProperties.get(FoodProperty.CAFFEINE), requirements);
-            scores.addStandardScore(Requirement.MEAL_CARBOHYDRATES, mealProperties.get(FoodProperty.CARBOHYDRATES), requirements);
-            scores.addStandardScore(Requirement.MEAL_ENERGY, mealProperties.get(FoodProperty.ENERGY), requirements);
-            scores.addStandardScore(Requirement.MEAL_FAT, mealProperties.get(FoodProperty.FAT), requirements);
-            scores.addStandardScore(Requirement.MEAL_PROTEIN, mealProperties.get(FoodProperty.PROTEIN), requirements);
+    /**
+     * Applies several portion changes at once. The changes are applied in order; a change that would exceed the
+     * limits of its meal template is skipped, like a single addPortion or removePortion would fail.
+     *
+     * @param portionChanges Ingredients with the number of portions to add (positive) or remove (negative)
+     * @return new diet plan or empty if no change could be applied
+     */
+    public Optional<DietPlan> changePortions(final List<Pair<Pair<Integer, FoodItem>, Integer>> portionChanges) {
+        final ArrayList<Pair<Integer, FoodItem>> ingredientIds = new ArrayList<Pair<Integer, FoodItem>>();
+        final double[] newAmounts = new double[portionChanges.size()];
+        for (final Pair<Pair<Integer, FoodItem>, Integer> portionChange : portionChanges) {
+            final Pair<Integer, FoodItem> ingredientId = portionChange.a();
+            final int mealIndex = ingredientId.a();
+            final FoodItem ingredient = ingredientId.b();
+            final int portionDiff = portionChange.b();
+
+            int changeIndex = -1;
+            for (int i = 0; i < ingredientIds.size(); ++i) {
+                if (ingredientIds.get(i).a() == mealIndex && ingredientIds.get(i).b() == ingredient) {
+                    changeIndex = i;
+                }
+            }
+            final Meal meal = meals.get(mealIndex);
+            final double oldAmount = changeIndex >= 0 ? newAmounts[changeIndex] : meal.getAmount(ingredient);
+            final int newPortions = ingredient.amountToPortions(oldAmount) + portionDiff;
+            if (newPortions < 0 || portionDiff == 0) {
+                continue;
+            }
+            final double newAmount = ingredient.portionsToAmount(newPortions);
+            if (portionDiff > 0 ?
+                    newAmount > meal.getTemplate().getMaxAmount(ingredient) :
+                    newAmount < meal.getTemplate().getMinAmount(ingredient)) {
+                continue;
+            }
+
+            if (changeIndex >= 0) {
+                newAmounts[changeIndex] = newAmount;
+            } else {
+                newAmounts[ingredientIds.size()] = newAmount;
+                ingredientIds.add(ingredientId);
+            }
         }
 
-        // Food item constraints
-        final FoodItems foodItems = getFoodItems();
-        final ArrayList<Pair<FoodItem, Double>> lowerLimits = requirements.getLowerLimits();
-        for (final Pair<FoodItem, Double> lowerLimit : lowerLimits) {
-            final ScoreParams scoreParams = ScoreParams.scoreParamsLT(lowerLimit.b(), 0.05, 1.0); // TODO
-            final double score = ScoreFunctions.standard(foodItems.get(lowerLimit.a()), scoreParams);
-            scores.addScore(Requirement.FOOD_ITEM_LOWER_LIMIT, score, scoreParams.getWeight());
-        }
-        final ArrayList<Pair<FoodItem, Double>> upperLimits = requirements.getUpperLimits();
-        for (final Pair<FoodItem, Double> upperLimit : upperLimits) {
-            final ScoreParams scoreParams = ScoreParams.scoreParamsUT(upperLimit.b(), 0.05, 1.0); // TODO
-            final double score = ScoreFunctions.standard(foodItems.get(upperLimit.a()), scoreParams);
-            scores.addScore(Requirement.FOOD_ITEM_UPPER_LIMIT, score, scoreParams.getWeight());
-        }
-        final Mutable<Double> waste = mutable(0.0);
-        final int days = requirements.getDays();
-        foodItems.forEach(new BiConsumer<FoodItem, Double>() {
-            @Override
-            public void accept(final FoodItem foodItem, final Double amount) {
-                final int timeLimit = Math.max(foodItem.getShelfLife(), days);
-                final double usedUpTime = days / amount;
-                final double wasted = 1.0 - timeLimit / usedUpTime;
-                if (wasted > 0.0) {
-                    waste.set(waste.get() + wasted); // TODO: Consider costs?
-                }
+        if (ingredientIds.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new DietPlan(this, ingredientIds, newAmounts));
+    }
+
+    /**
+     * Moves portions of an ingredient from one meal to another meal whose template also contains the ingredient. The
+     * totals of the diet plan stay the same, so only the scores of the two meals change. The new amounts are derived
+     * from portion counts rather than by adding and subtracting amounts, so a transfer back restores the diet plan
+     * exactly.
+     *
+     * @return new diet plan or empty if the amounts would exceed the limits of a meal template
+     */
+    public Optional<DietPlan> transferPortions(final int fromMealIndex,
+                                               final int toMealIndex,
+                                               final FoodItem ingredient,
+                                               final int portions) {
+        if (fromMealIndex == toMealIndex || portions <= 0) {
+            return Optional.empty();
+        }
+        final Meal fromMeal = meals.get(fromMealIndex);
+        final Meal toMeal = meals.get(toMealIndex);
+        final double newFromAmount = getAmountWithPortions(fromMeal, ingredient, -portions);
+        final double newToAmount = getAmountWithPortions(toMeal, ingredient, portions);
+        if (newFromAmount < fromMeal.getTemplate().getMinAmount(ingredient) ||
+                newToAmount > toMeal.getTemplate().getMaxAmount(ingredient)) {
+            return Optional.empty();
+        }
+        return Optional.of(new DietPlan(this, fromMealIndex, toMealIndex, ingredient, newFromAmount, newToAmount));
+    }
+
+    /**
+     * Amounts are whole portions, except for the minimal amounts of some meal templates, which keep their offset from
+     * the portions: such an amount is the minimal amount plus whole portions.
+     *
+     * @param portionDiff Number of portions to add (positive) or remove (negative)
+     * @return amount of the ingredient in the meal with the changed number of portions
+     */
+    private static double getAmountWithPortions(final Meal meal, final FoodItem ingredient, final int portionDiff) {
+        final double amount = meal.getAmount(ingredient);
+        final int portions = ingredient.amountToPortions(amount);
+        if (Math.abs(amount * ingredient.amountToPortions(1.0) - portions) <= PORTION_TOLERANCE) {
+            return ingredient.portionsToAmount(portions + portionDiff);
+        }
+        final double minAmount = meal.getTemplate().getMinAmount(ingredient);
+        return minAmount + ingredient.portionsToAmount(ingredient.amountToPortions(amount - minAmount) + portionDiff);
+    }
+
+    /**
+     * Replaces the meal template of a meal. Ingredients that both templates contain keep their amounts as far as the
+     * limits of the new template allow; the other ingredients of the new template get their minimal amounts.
+     *
+     * @return new diet plan or empty if the diet plan has no template or the swap violates the meal template options
+     */
+    public Optional<DietPlan> swapMealTemplate(final int mealIndex, final MealTemplate newMealTemplate) {
+        if (!maybeTemplate.isPresent()) {
+            return Optional.empty();
+        }
+        final Optional<DietPlanTemplate> maybeNewTemplate = maybeTemplate.get().getWithSwap(mealIndex, newMealTemplate);
+        if (!maybeNewTemplate.isPresent()) {
+            return Optional.empty();
+        }
+
+        final FoodItems oldIngredients = meals.get(mealIndex).getIngredients();
+        final FoodItems newIngredients = newMealTemplate.getMinFoodItems();
+        for (int index = oldIngredients.firstIndex(); index >= 0; index = oldIngredients.nextIndex(index)) {
+            final FoodItem ingredient = oldIngredients.getItem(index);
+            final double maxAmount = newMealTemplate.getMaxAmount(ingredient);
+            if (maxAmount > 0.0) {
+                final int maxPortions = (int) Math.floor(maxAmount * ingredient.amountToPortions(1.0) + 1e-9);
+                final int portions =
+                        Math.min(ingredient.amountToPortions(oldIngredients.getAmount(index)), maxPortions);
+                newIngredients.set(ingredient, Math.max(ingredient.portionsToAmount(portions),
+                        newIngredients.get(ingredient)));
             }
-        });
-        final double wasteScore = Math.pow(0.99, waste.get()); // TODO: Better equation (find good base)
-        final double wasteWeight = 1.0; // TODO
-        scores.addScore(Requirement.WASTE, wasteScore, wasteWeight);
+        }
+        return Optional.of(new DietPlan(this, maybeNewTemplate.get(), mealIndex,
+                Meal.meal(newMealTemplate, newIngredients)));
+    }
+
+    /**
+     * @return template of the diet plan; diet plans are always created from templates
+     */
+    public Optional<DietPlanTemplate> getTemplate() {
+        return maybeTemplate;
+    }
+
+    /**
+     * Zobrist hash of the meal templates and the amounts of the ingredients of each meal. Each amount of an ingredient
+     * in a meal and each meal template at a meal index has a pseudo-random 64-bit key, and the hash is the XOR of the
+     * keys, so derived diet plans update it in constant time per changed ingredient. Diet plans whose amounts are
+     * bitwise equal have the same hash, however they have been derived. Portion changes and transfers derive their
+     * amounts from portion counts, so undoing them restores the hash; amounts that are set directly may differ in
+     * rounding errors and then have different hashes. Different diet plans have the same hash with a probability of
+     * about 2^-64.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return scores of the diet plan computed with the exact scoring program of the requirements
+     */
+    public Scores getScores(final Requirements requirements) {
+        return getScores(requirements.getScoringProgram());
+    }
+
+    /**
+     * The scores are cached per scoring program, so that switching between an approximate and an exact scoring program
+     * doesn't recompute them. If this diet plan has been derived from another diet plan that has already been
+     * evaluated with the same scoring program, only the scores that are affected by the changed ingredients are
+     * recalculated. No locks are taken: concurrent threads may compute the scores more than once, but the first
+     * computed scores are published and returned to all of them.
+     */
+    public Scores getScores(final ScoringProgram scoringProgram) {
+        final Optional<Scores> maybeOldScores = findScores(maybeScores, scoringProgram);
+        if (maybeOldScores.isPresent()) {
+            return maybeOldScores.get();
+        }
 
+        final Scores scores;
+        final Optional<Change> maybeCurrentChange = maybeChange;
+        if (maybeCurrentChange.isPresent() && maybeCurrentChange.get().getOrigin().hasScores(scoringProgram)) {
+            final Change change = maybeCurrentChange.get();
+            final Scores originScores = change.getOrigin().getScores(scoringProgram);
+            scores = change.isTransfer() ?
+                    scoringProgram.evaluateWithTransfer(this, originScores, change.getIngredientIds()) :
+                    scoringProgram.evaluateWithChanges(this, originScores, change.getIngredientIds());
+        } else {
+            scores = scoringProgram.evaluate(this);
+        }
+        final Scores publishedScores = publishScores(scoringProgram, scores);
+        maybeChange = Optional.empty(); // The origin is not needed anymore.
+        return publishedScores;
+    }
+
+    /**
+     * Takes the scores of an equal diet plan from the cache if there are any; otherwise the scores are computed as
+     * usual and offered to the cache.
+     */
+    Scores getScores(final ScoringProgram scoringProgram, final EvaluationCache cache) {
+        final Optional<Scores> maybeOldScores = findScores(maybeScores, scoringProgram);
+        if (maybeOldScores.isPresent()) {
+            return maybeOldScores.get();
+        }
+        final Optional<Scores> maybeCachedScores = cache.get(hash);
+        if (maybeCachedScores.isPresent()) {
+            final Scores publishedScores = publishScores(scoringProgram, maybeCachedScores.get());
+            maybeChange = Optional.empty();
+            return publishedScores;
+        }
+        final Scores scores = getScores(scoringProgram);
+        cache.put(hash, scores);
         return scores;
     }
 
+    private boolean hasScores(final ScoringProgram scoringProgram) {
+        return findScores(maybeScores, scoringProgram).isPresent();
+    }
+
+    private static Optional<Scores> findScores(final Optional<ProgramScores> maybeScores,
+                                               final ScoringProgram scoringProgram) {
+        for (Optional<ProgramScores> maybeEntry = maybeScores; maybeEntry.isPresent();
+             maybeEntry = maybeEntry.get().getNext()) {
+            if (maybeEntry.get().getScoringProgram() == scoringProgram) {
+                return Optional.of(maybeEntry.get().getScores());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Publishes the scores unless another thread has published scores for the scoring program in the meantime.
+     *
+     * @return published scores for the scoring program
+     */
+    private Scores publishScores(final ScoringProgram scoringProgram, final Scores scores) {
+        while (true) {
+            final Optional<ProgramScores> maybeOldScores = maybeScores;
+            final Optional<Scores> maybePublishedScores = findScores(maybeOldScores, scoringProgram);
+            if (maybePublishedScores.isPresent()) {
+                return maybePublishedScores.get();
+            }
+            final Optional<ProgramScores> maybeNewScores =
+                    Optional.of(new ProgramScores(scoringProgram, scores, maybeOldScores));
+            if (SCORES_UPDATER.compareAndSet(this, maybeOldScores, maybeNewScores)) {
+                return scores;
+            }
+        }
+    }
+
+    private static long getMealHash(final int mealIndex, final Meal meal) {
+        long hash = mix((mealIndex + TEMPLATE_SALT) * INGREDIENT_SALT ^ meal.getTemplate().ordinal());
+        final FoodItems ingredients = meal.getIngredients();
+        for (int index = ingredients.firstIndex(); index >= 0; index = ingredients.nextIndex(index)) {
+            hash ^= getKey(mealIndex, ingredients.getItem(index), ingredients.getAmount(index));
+        }
+        return hash;
+    }
+
+    /**
+     * @return key of an amount of an ingredient in a meal; 0 for no amount, like a missing ingredient
+     */
+    private static long getKey(final int mealIndex, final FoodItem ingredient, final double amount) {
+        if (amount <= 0.0) {
+            return 0L;
+        }
+        final long ingredientKey = mix((mealIndex + 1L) * INGREDIENT_SALT ^ ingredient.ordinal());
+        return mix(ingredientKey ^ Double.doubleToLongBits(amount));
+    }
+
+    /**
+     * Finalizer of SplitMix64, which maps similar inputs to unrelated outputs; it stands in for a table of random keys,
+     * which would need an entry for each possible amount.
+     */
+    private static long mix(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
     @Override
     public String toString() {
         final StringBuilder stringBuilder = new StringBuilder();
@@ -339,4 +777,64 @@ public class DietPlan {
 
         return stringBuilder.toString();
     }
+
+    /**
+     * Scores of the diet plan for a scoring program; the entries of all scoring programs that have been used form an
+     * immutable list.
+     */
+    private static class ProgramScores {
+        private final ScoringProgram scoringProgram;
+        private final Scores scores;
+        private final Optional<ProgramScores> maybeNext;
+
+        private ProgramScores(final ScoringProgram scoringProgram,
+                              final Scores scores,
+                              final Optional<ProgramScores> maybeNext) {
+            this.scoringProgram = scoringProgram;
+            this.scores = scores;
+            this.maybeNext = maybeNext;
+        }
+
+        private ScoringProgram getScoringProgram() {
+            return scoringProgram;
+        }
+
+        private Scores getScores() {
+            return scores;
+        }
+
+        private Optional<ProgramScores> getNext() {
+            return maybeNext;
+        }
+    }
+
+    /**
+     * Changes of ingredients that have been applied to an origin diet plan. A transfer only moves amounts between
+     * meals.
+     */
+    private static class Change {
+        private final DietPlan origin;
+        private final List<Pair<Integer, FoodItem>> ingredientIds;
+        private final boolean transfer;
+
+        private Change(final DietPlan origin,
+                       final List<Pair<Integer, FoodItem>> ingredientIds,
+                       final boolean transfer) {
+            this.origin = origin;
+            this.ingredientIds = ingredientIds;
+            this.transfer = transfer;
+        }
+
+        private DietPlan getOrigin() {
+            return origin;
+        }
+
+        private List<Pair<Integer, FoodItem>> getIngredientIds() {
+            return ingredientIds;
+        }
+
+        private boolean isTransfer() {
+            return transfer;
+        }
+    }
 }
@@ -24,25 +24,56 @@ import util.LazyValue;
 import util.Limits2;
 import util.Mutable;
 import util.Pair;
+import util.RacyLazyValue;
+import util.RandomSource;
+import util.SynchronizedLazyValue;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import static diet.DietPlan.dietPlan;
+import static diet.DietPlanTemplates.dietPlanTemplates;
 import static java.lang.Math.min;
-import static util.Global.RANDOM;
 import static util.Mutable.mutable;
 import static util.Pair.pair;
 
 public class DietPlanTemplate {
+    private static final double PORTION_TOLERANCE = 1e-9; // Tolerance for rounding errors in limits of portions
+
+    private final DietPlanTemplates templates;
+    private final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplateOptions;
+    private final ArrayList<MealTemplate> mealTemplateList;
     private final LazyValue<DietPlan> minimalDietPlan;
     private final LazyValue<ArrayList<Pair<Integer, FoodItem>>> variableIngredients;
+    private final LazyValue<int[][]> transferPartners;
+    private final ConcurrentHashMap<ScoreLayout, InfluenceIndex> influenceIndices =
+            new ConcurrentHashMap<ScoreLayout, InfluenceIndex>();
 
+    /**
+     * Creates a random diet plan template, which is only shared with the templates derived from it.
+     */
     public static DietPlanTemplate dietPlanTemplate(final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplateOptions,
-                                                    final int numberOfMeals) {
-        final Map<MealTemplate, Integer> mealTemplates = new HashMap<MealTemplate, Integer>(numberOfMeals);
+                                                    final int numberOfMeals,
+                                                    final RandomSource random) {
+        return dietPlanTemplate(dietPlanTemplates(mealTemplateOptions), numberOfMeals, random);
+    }
+
+    /**
+     * Creates a random diet plan template, or takes the equal template of the set. The meal templates are ordered by
+     * their declaration, so that the same random numbers always lead to the same template.
+     */
+    public static DietPlanTemplate dietPlanTemplate(final DietPlanTemplates templates,
+                                                    final int numberOfMeals,
+                                                    final RandomSource random) {
+        final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplateOptions =
+                templates.getMealTemplateOptions();
+        final Map<MealTemplate, Integer> mealTemplates = new EnumMap<MealTemplate, Integer>(MealTemplate.class);
         final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> options =
                 new ArrayList<Pair<ArrayList<MealTemplate>, Limits2>>(mealTemplateOptions);
         final Mutable<Integer> mealCount = mutable(0);
@@ -51,11 +82,11 @@ public class DietPlanTemplate {
             final int addTo = min(mealCount.get() + minCount, numberOfMeals);
             while (mealCount.get() < addTo) {
                 final int maxAdd = addTo - mealCount.get();
-                addMealTemplates(mealTemplates, mealCount, option, maxAdd);
+                addMealTemplates(mealTemplates, mealCount, option, maxAdd, random);
             }
         }
         while (mealCount.get() < numberOfMeals && !options.isEmpty()) {
-            final int optionsIndex = RANDOM.nextInt(options.size());
+            final int optionsIndex = random.nextInt(options.size());
             final Pair<ArrayList<MealTemplate>, Limits2> option = options.get(optionsIndex);
             final Mutable<Integer> oldCount = mutable(0);
             for (final MealTemplate mealTemplate : option.a()) {
@@ -67,35 +98,42 @@ public class DietPlanTemplate {
             final int maxCount = (int) (option.b().getMax() * numberOfMeals);
             if (oldCount.get() < maxCount) {
                 final int maxAdd = min(maxCount - oldCount.get(), numberOfMeals - mealCount.get());
-                addMealTemplates(mealTemplates, mealCount, option, maxAdd);
+                addMealTemplates(mealTemplates, mealCount, option, maxAdd, random);
             } else {
                 options.remove(optionsIndex);
             }
         }
-        return new DietPlanTemplate(mealTemplates);
+        final ArrayList<MealTemplate> mealTemplateList = new ArrayList<MealTemplate>();
+        for (final Map.Entry<MealTemplate, Integer> mealTemplate : mealTemplates.entrySet()) {
+            for (int i = 0; i < mealTemplate.getValue(); ++i) {
+                mealTemplateList.add(mealTemplate.getKey());
+            }
+        }
+        return templates.get(mealTemplateList);
     }
 
     private static void addMealTemplates(final Map<MealTemplate, Integer> mealTemplates,
                                          final Mutable<Integer> mealCount,
                                          final Pair<ArrayList<MealTemplate>, Limits2> option,
-                                         final int maxAdd) {
-        final int index = RANDOM.nextInt(option.a().size());
+                                         final int maxAdd,
+                                         final RandomSource random) {
+        final int index = random.nextInt(option.a().size());
         final MealTemplate mealTemplate = option.a().get(index);
         final Integer val = mealTemplates.get(mealTemplate);
-        final int add = RANDOM.nextInt(maxAdd) + 1;
+        final int add = random.nextInt(maxAdd) + 1;
         mealTemplates.put(mealTemplate, (val == null ? 0 : val) + add);
         mealCount.set(mealCount.get() + add);
     }
 
-    private DietPlanTemplate(final Map<MealTemplate, Integer> mealTemplates) {
-        final ArrayList<MealTemplate> mealTemplateList = new ArrayList<MealTemplate>();
-        for (final Map.Entry<MealTemplate, Integer> mealTemplate : mealTemplates.entrySet()) {
-            for (int i = 0; i < mealTemplate.getValue(); ++i) {
-                mealTemplateList.add(mealTemplate.getKey());
-            }
-        }
+    /**
+     * Templates are created by DietPlanTemplates, which shares equal templates.
+     */
+    DietPlanTemplate(final DietPlanTemplates templates, final ArrayList<MealTemplate> mealTemplateList) {
+        this.templates = templates;
+        mealTemplateOptions = templates.getMealTemplateOptions();
+        this.mealTemplateList = mealTemplateList;
 
-        minimalDietPlan = new LazyValue<DietPlan>() {
+        minimalDietPlan = new SynchronizedLazyValue<DietPlan>() {
             @Override
             protected DietPlan compute() {
                 final ArrayList<Meal> meals = new ArrayList<Meal>();
@@ -106,7 +144,7 @@ public class DietPlanTemplate {
             }
         };
 
-        variableIngredients = new LazyValue<ArrayList<Pair<Integer, FoodItem>>>() {
+        variableIngredients = new RacyLazyValue<ArrayList<Pair<Integer, FoodItem>>>() {
             @Override
             protected ArrayList<Pair<Integer, FoodItem>> compute() {
                 final ArrayList<Pair<Integer, FoodItem>> variableIngredients = new ArrayList<Pair<Integer, FoodItem>>();
@@ -124,13 +162,190 @@ public class DietPlanTemplate {
                 return variableIngredients;
             }
         };
+
+        transferPartners = new RacyLazyValue<int[][]>() {
+            @Override
+            protected int[][] compute() {
+                final ArrayList<Pair<Integer, FoodItem>> variableIngredients = getVariableIngredients();
+                final int size = variableIngredients.size();
+                final int[][] transferPartners = new int[size][];
+                final int[] partners = new int[size];
+                for (int i = 0; i < size; ++i) {
+                    int count = 0;
+                    for (int j = 0; j < size; ++j) {
+                        if (j != i && variableIngredients.get(j).b() == variableIngredients.get(i).b()) {
+                            partners[count++] = j;
+                        }
+                    }
+                    transferPartners[i] = Arrays.copyOf(partners, count);
+                }
+                return transferPartners;
+            }
+        };
     }
 
     public DietPlan getMinimalDietPlan() {
         return minimalDietPlan.get();
     }
 
+    /**
+     * Solves the continuous relaxation of the template, which is a linear program over the amounts of the
+     * ingredients, and rounds its solution to portions. The result is a much better start than the minimal diet plan,
+     * because the amounts already meet the optimal ranges of the requirements roughly.
+     *
+     * @return rounded solution of the relaxation or empty if the linear program couldn't be solved
+     */
+    public Optional<DietPlan> getRelaxedDietPlan(final ScoringProgram scoringProgram) {
+        return LinearRelaxation.getRoundedDietPlan(this, scoringProgram.getLayout(mealTemplateList.size()));
+    }
+
+    /**
+     * @param portions Number of portions of each variable ingredient
+     * @return diet plan of the template with the portions
+     */
+    DietPlan getDietPlan(final int[] portions) {
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = getVariableIngredients();
+        final double[] amounts = new double[portions.length];
+        for (int i = 0; i < portions.length; ++i) {
+            amounts[i] = variableIngredients.get(i).b().portionsToAmount(portions[i]);
+        }
+        return getDietPlan(amounts);
+    }
+
+    /**
+     * @param amounts Amount of each variable ingredient
+     * @return diet plan of the template with the amounts
+     */
+    DietPlan getDietPlan(final double[] amounts) {
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = getVariableIngredients();
+        final int numberOfMeals = mealTemplateList.size();
+        final ArrayList<FoodItems> mealIngredients = new ArrayList<FoodItems>(numberOfMeals);
+        for (int mealIndex = 0; mealIndex < numberOfMeals; ++mealIndex) {
+            mealIngredients.add(new FoodItems());
+        }
+        for (int i = 0; i < amounts.length; ++i) {
+            final Pair<Integer, FoodItem> ingredientId = variableIngredients.get(i);
+            mealIngredients.get(ingredientId.a()).set(ingredientId.b(), amounts[i]);
+        }
+        final ArrayList<Meal> meals = new ArrayList<Meal>(numberOfMeals);
+        for (int mealIndex = 0; mealIndex < numberOfMeals; ++mealIndex) {
+            meals.add(Meal.meal(mealTemplateList.get(mealIndex), mealIngredients.get(mealIndex)));
+        }
+        return dietPlan(this, meals);
+    }
+
+    public int getNumberOfMeals() {
+        return mealTemplateList.size();
+    }
+
     public ArrayList<Pair<Integer, FoodItem>> getVariableIngredients() {
         return variableIngredients.get();
     }
+
+    /**
+     * @param ingredientIndex Index of a variable ingredient
+     * @return smallest number of portions within the limits of the meal template
+     */
+    int getMinPortions(final int ingredientIndex) {
+        final Pair<Integer, FoodItem> ingredientId = getVariableIngredients().get(ingredientIndex);
+        final FoodItem ingredient = ingredientId.b();
+        final double minAmount = mealTemplateList.get(ingredientId.a()).getMinAmount(ingredient);
+        return (int) Math.ceil(minAmount * ingredient.amountToPortions(1.0) - PORTION_TOLERANCE);
+    }
+
+    /**
+     * @param ingredientIndex Index of a variable ingredient
+     * @return greatest number of portions within the limits of the meal template, at least the smallest number
+     */
+    int getMaxPortions(final int ingredientIndex) {
+        final Pair<Integer, FoodItem> ingredientId = getVariableIngredients().get(ingredientIndex);
+        final FoodItem ingredient = ingredientId.b();
+        final double maxAmount = mealTemplateList.get(ingredientId.a()).getMaxAmount(ingredient);
+        return Math.max(getMinPortions(ingredientIndex),
+                (int) Math.floor(maxAmount * ingredient.amountToPortions(1.0) + PORTION_TOLERANCE));
+    }
+
+    /**
+     * @param ingredientIndex Index of a variable ingredient
+     * @return indices of the variable ingredients of other meals with the same food item, i.e. the meals that portions
+     * of the ingredient can be transferred to
+     */
+    public int[] getTransferPartners(final int ingredientIndex) {
+        return transferPartners.get()[ingredientIndex];
+    }
+
+    public MealTemplate getMealTemplate(final int mealIndex) {
+        return mealTemplateList.get(mealIndex);
+    }
+
+    /**
+     * @return meal templates that share an option with the meal template of the meal, except for the template itself
+     */
+    public ArrayList<MealTemplate> getAlternativeMealTemplates(final int mealIndex) {
+        final MealTemplate mealTemplate = mealTemplateList.get(mealIndex);
+        final ArrayList<MealTemplate> alternatives = new ArrayList<MealTemplate>();
+        for (final Pair<ArrayList<MealTemplate>, Limits2> option : mealTemplateOptions) {
+            if (option.a().contains(mealTemplate)) {
+                for (final MealTemplate alternative : option.a()) {
+                    if (alternative != mealTemplate && !alternatives.contains(alternative)) {
+                        alternatives.add(alternative);
+                    }
+                }
+            }
+        }
+        return alternatives;
+    }
+
+    /**
+     * Replaces the meal template of a meal. The limits of the options must still hold for every option whose number
+     * of meals changes.
+     *
+     * @return changed template, shared with the equal template of the same set, or empty if the swap would violate the
+     * limits of an option
+     */
+    public Optional<DietPlanTemplate> getWithSwap(final int mealIndex, final MealTemplate newMealTemplate) {
+        final MealTemplate oldMealTemplate = mealTemplateList.get(mealIndex);
+        if (newMealTemplate == oldMealTemplate) {
+            return Optional.empty();
+        }
+        final int numberOfMeals = mealTemplateList.size();
+        boolean allowed = false;
+        for (final Pair<ArrayList<MealTemplate>, Limits2> option : mealTemplateOptions) {
+            final boolean removed = option.a().contains(oldMealTemplate);
+            final boolean added = option.a().contains(newMealTemplate);
+            allowed |= added;
+            if (removed != added) {
+                int count = 0;
+                for (final MealTemplate mealTemplate : mealTemplateList) {
+                    if (option.a().contains(mealTemplate)) {
+                        ++count;
+                    }
+                }
+                final int newCount = added ? count + 1 : count - 1;
+                if (newCount < (int) Math.ceil(option.b().getMin() * numberOfMeals) ||
+                        newCount > (int) (option.b().getMax() * numberOfMeals)) {
+                    return Optional.empty();
+                }
+            }
+        }
+        if (!allowed) {
+            return Optional.empty();
+        }
+
+        final ArrayList<MealTemplate> newMealTemplateList = new ArrayList<MealTemplate>(mealTemplateList);
+        newMealTemplateList.set(mealIndex, newMealTemplate);
+        return Optional.of(templates.get(newMealTemplateList));
+    }
+
+    /**
+     * @return influences of the variable ingredients on the scores of the layout, which are computed once per layout
+     */
+    public InfluenceIndex getInfluenceIndex(final ScoreLayout layout) {
+        return influenceIndices.computeIfAbsent(layout, new Function<ScoreLayout, InfluenceIndex>() {
+            @Override
+            public InfluenceIndex apply(final ScoreLayout layout) {
+                return new InfluenceIndex(layout, getVariableIngredients());
+            }
+        });
+    }
 }
@@ -0,0 +1,70 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package diet;
+
+import util.Limits2;
+import util.Pair;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+/**
+ * Diet plan templates of a set of meal template options. Templates with the same meal templates are shared, so that
+ * candidates with equal templates also share the variable ingredients, transfer partners and influence indices that
+ * are derived from them, whether the templates have been created at random or by swapping meal templates.
+ * <p/>
+ * The templates are held weakly: a template is forgotten as soon as no diet plan uses it anymore.
+ */
+public class DietPlanTemplates {
+    private final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplateOptions;
+    private final WeakHashMap<ArrayList<MealTemplate>, WeakReference<DietPlanTemplate>> templates =
+            new WeakHashMap<ArrayList<MealTemplate>, WeakReference<DietPlanTemplate>>();
+
+    public static DietPlanTemplates dietPlanTemplates(final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplateOptions) {
+        return new DietPlanTemplates(mealTemplateOptions);
+    }
+
+    private DietPlanTemplates(final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplateOptions) {
+        this.mealTemplateOptions = mealTemplateOptions;
+    }
+
+    ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> getMealTemplateOptions() {
+        return mealTemplateOptions;
+    }
+
+    /**
+     * @param mealTemplateList Meal templates of the meals; the list must not be changed afterwards
+     * @return shared template with the meal templates
+     */
+    synchronized DietPlanTemplate get(final ArrayList<MealTemplate> mealTemplateList) {
+        final WeakReference<DietPlanTemplate> reference = templates.get(mealTemplateList);
+        final DietPlanTemplate sharedTemplate = reference != null ? reference.get() : null;
+        if (sharedTemplate != null) {
+            return sharedTemplate;
+        }
+
+        // The key is the list of the template, so the entry is removed together with the template.
+        final DietPlanTemplate template = new DietPlanTemplate(this, mealTemplateList);
+        templates.put(mealTemplateList, new WeakReference<DietPlanTemplate>(template));
+        return template;
+    }
+}
@@ -0,0 +1,86 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package diet;
+
+import util.ClockCache;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static util.ClockCache.clockCache;
+
+/**
+ * Scores of recently evaluated diet plans by their hashes. A diet plan that is evaluated again, e.g. after a portion
+ * has been added and removed again or when candidates converge to the same diet plan, gets the scores of the first
+ * evaluation without computing anything. Each cache belongs to a scoring program, so the scores of different
+ * requirements or score modes are never mixed.
+ * <p/>
+ * Cached scores keep their diet plans alive, so most diet plans that are evaluated only once, like rejected moves,
+ * must not get into the cache; the garbage collector would have to move them to the old generation. A doorkeeper
+ * therefore remembers the hashes of recently evaluated diet plans, and only diet plans that are evaluated for the
+ * second time are cached.
+ * <p/>
+ * Equal diet plans that have been derived in different ways may differ in rounding errors of their sums, so the
+ * cached scores may differ from recomputed scores in the last bits. With several threads, whether a diet plan is
+ * found in the cache depends on the timing of the threads.
+ */
+public class EvaluationCache {
+    private final ScoringProgram scoringProgram;
+    private final ClockCache<Scores> cache;
+    private final AtomicLongArray doorkeeper; // Hashes of recently evaluated diet plans by their lowest bits
+    private final int doorkeeperMask;
+
+    /**
+     * @param capacity Maximum number of cached scores
+     */
+    public static EvaluationCache evaluationCache(final ScoringProgram scoringProgram, final int capacity) {
+        return new EvaluationCache(scoringProgram, capacity);
+    }
+
+    private EvaluationCache(final ScoringProgram scoringProgram, final int capacity) {
+        this.scoringProgram = scoringProgram;
+        cache = clockCache(capacity);
+        final int doorkeeperSize = Integer.highestOneBit(capacity) << 2;
+        doorkeeper = new AtomicLongArray(doorkeeperSize);
+        doorkeeperMask = doorkeeperSize - 1;
+    }
+
+    public Scores getScores(final DietPlan dietPlan) {
+        return dietPlan.getScores(scoringProgram, this);
+    }
+
+    Optional<Scores> get(final long hash) {
+        return cache.get(hash);
+    }
+
+    /**
+     * Caches the scores if the diet plan has been evaluated before; otherwise its hash is only remembered.
+     */
+    void put(final long hash, final Scores scores) {
+        // The bits that select the slot differ from the bits that select the bucket of the cache.
+        final int slot = (int) (hash >>> 32) & doorkeeperMask;
+        if (doorkeeper.get(slot) == hash) {
+            cache.put(hash, scores);
+        } else {
+            doorkeeper.lazySet(slot, hash);
+        }
+    }
+}
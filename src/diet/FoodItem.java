@@ -21,8 +21,9 @@
 package diet;
 
 import util.LazyValue;
+import util.RacyLazyValue;
 
-import java.util.function.BiConsumer;
+import static diet.NutrientMatrix.nutrientMatrix;
 
 import static java.lang.Math.round;
 
@@ -225,18 +226,11 @@ public enum FoodItem {
         this.shelfLife = shelfLife;
         this.price = price;
 
-        properties = new LazyValue<FoodProperties>() {
+        properties = new RacyLazyValue<FoodProperties>() {
             @Override
             protected FoodProperties compute() {
                 final FoodProperties properties = new FoodProperties();
-                final FoodProperties foodProperties = food.getProperties();
-                final double weightFactor = weight / 100.0; // 100g to item weight
-                foodProperties.forEach(new BiConsumer<FoodProperty, Double>() {
-                    @Override
-                    public void accept(final FoodProperty foodProperty, final Double amount) {
-                        properties.set(foodProperty, amount * weightFactor);
-                    }
-                });
+                nutrientMatrix().addScaled(properties, FoodItem.this, 1.0);
                 return properties;
             }
         };
@@ -246,6 +240,17 @@ public enum FoodItem {
         return food.getName();
     }
 
+    Food getFood() {
+        return food;
+    }
+
+    /**
+     * @return item weight in g
+     */
+    double getWeight() {
+        return weight;
+    }
+
     public int getShelfLife() {
         return shelfLife;
     }
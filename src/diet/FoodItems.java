@@ -21,41 +21,32 @@
 package diet;
 
 import util.ItemList;
-import util.Mutable;
 
-import java.util.function.BiConsumer;
-
-import static util.Mutable.mutable;
+import static diet.NutrientMatrix.nutrientMatrix;
 
 public class FoodItems extends ItemList<FoodItem> {
     public FoodItems() {
         super(FoodItem.class);
     }
 
+    FoodItems(final FoodItems foodItems) {
+        super(foodItems);
+    }
+
     private FoodItems(final FoodItems foodItems, final FoodItem foodItem, final double newAmount) {
         super(foodItems, foodItem, newAmount);
     }
 
     public FoodProperties getProperties() {
-        final FoodProperties properties = new FoodProperties();
-        forEach(new BiConsumer<FoodItem, Double>() {
-            @Override
-            public void accept(final FoodItem foodItem, final Double amount) {
-                properties.addScaled(foodItem.getProperties(), amount);
-            }
-        });
-        return properties;
+        return nutrientMatrix().multiply(this);
     }
 
     public double getCosts() {
-        final Mutable<Double> costs = mutable(0.0);
-        forEach(new BiConsumer<FoodItem, Double>() {
-            @Override
-            public void accept(final FoodItem foodItem, final Double amount) {
-                costs.set(costs.get() + foodItem.getPrice() * amount);
-            }
-        });
-        return costs.get();
+        double costs = 0.0;
+        for (int index = firstIndex(); index >= 0; index = nextIndex(index)) {
+            costs += getItem(index).getPrice() * getAmount(index);
+        }
+        return costs;
     }
 
     public FoodItems getWithChange(final FoodItem foodItem, final double newAmount) {
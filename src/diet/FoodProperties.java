@@ -26,4 +26,8 @@ public class FoodProperties extends ItemList<FoodProperty> {
     public FoodProperties() {
         super(FoodProperty.class);
     }
+
+    public FoodProperties(final FoodProperties properties) {
+        super(properties);
+    }
 }
@@ -0,0 +1,154 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package diet;
+
+import util.LinearProgram;
+import util.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static util.LinearProgram.linearProgram;
+
+/**
+ * Continuous relaxation of a diet plan template: the numbers of portions of the variable ingredients are real numbers
+ * within the limits of the meal templates. Each standard score of the layout becomes a constraint, whose value should
+ * lie in the optimal range of its rule; deviations are penalized with the weight of the score divided by the distance
+ * between the optimal and the critical value. The solution of the linear program is rounded to portions.
+ * <p/>
+ * Scores without score rules (restrictions, waste) aren't part of the relaxation, but ingredients that would violate a
+ * restriction are kept at their minimum.
+ */
+abstract class LinearRelaxation {
+    /**
+     * @return diet plan of the template with the rounded solution of the relaxation, or empty if the linear program
+     * couldn't be solved
+     */
+    static Optional<DietPlan> getRoundedDietPlan(final DietPlanTemplate template, final ScoreLayout layout) {
+        final ScoringProgram scoringProgram = layout.getScoringProgram();
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = template.getVariableIngredients();
+        final int numberOfIngredients = variableIngredients.size();
+        final int size = layout.size();
+        final LinearProgram linearProgram = linearProgram();
+
+        // Variables for the numbers of portions of the ingredients
+        final double[][] contributions = new double[numberOfIngredients][size];
+        final int[] minPortions = new int[numberOfIngredients];
+        final int[] maxPortions = new int[numberOfIngredients];
+        for (int i = 0; i < numberOfIngredients; ++i) {
+            final Pair<Integer, FoodItem> ingredientId = variableIngredients.get(i);
+            scoringProgram.getPortionContributions(layout, ingredientId.a(), ingredientId.b(), contributions[i]);
+            minPortions[i] = template.getMinPortions(i);
+            maxPortions[i] = template.getMaxPortions(i);
+            if (contributions[i][layout.getVegetarianSlot()] > 0.0 || contributions[i][layout.getVeganSlot()] > 0.0) {
+                maxPortions[i] = minPortions[i];
+            }
+            linearProgram.addVariable(minPortions[i], maxPortions[i], 0.0);
+        }
+
+        // Constraints for the scores with deviation variables below and above the optimal range
+        final int[] ingredientIndices = new int[numberOfIngredients + 2];
+        final double[] coefficients = new double[numberOfIngredients + 2];
+        for (int slot = 0; slot < size; ++slot) {
+            final double weight = layout.getWeight(slot);
+            final Optional<ScoreRules> maybeRules = getRules(scoringProgram, layout.getSlotType(slot));
+            if (!maybeRules.isPresent() || weight <= 0.0) {
+                continue;
+            }
+            final ScoreRules rules = maybeRules.get();
+            final int rule = layout.getRule(slot);
+            final double lowerOptimal = rules.getLowerOptimal(rule);
+            final double upperOptimal = rules.getUpperOptimal(rule);
+            final boolean hasLower = lowerOptimal > 0.0;
+            final boolean hasUpper = upperOptimal != Double.POSITIVE_INFINITY;
+            if (!hasLower && !hasUpper) {
+                continue;
+            }
+            // Rows are scaled by their target, so that all coefficients have similar magnitudes.
+            final double scale = hasLower ? lowerOptimal : upperOptimal > 0.0 ? upperOptimal : 1.0;
+
+            int count = 0;
+            for (int i = 0; i < numberOfIngredients; ++i) {
+                if (contributions[i][slot] != 0.0) {
+                    ingredientIndices[count] = i;
+                    coefficients[count] = contributions[i][slot] / scale;
+                    ++count;
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            if (hasLower) {
+                final double penalty = getPenalty(weight, scale, lowerOptimal - rules.getLowerCritical(rule));
+                ingredientIndices[count] = linearProgram.addVariable(0.0, Double.POSITIVE_INFINITY, penalty);
+                coefficients[count] = 1.0;
+                ++count;
+            }
+            if (hasUpper) {
+                final double penalty = getPenalty(weight, scale, rules.getUpperCritical(rule) - upperOptimal);
+                ingredientIndices[count] = linearProgram.addVariable(0.0, Double.POSITIVE_INFINITY, penalty);
+                coefficients[count] = -1.0;
+                ++count;
+            }
+            linearProgram.addConstraint(Arrays.copyOf(ingredientIndices, count),
+                    Arrays.copyOf(coefficients, count),
+                    hasLower ? 1.0 : Double.NEGATIVE_INFINITY,
+                    hasUpper ? upperOptimal / scale : Double.POSITIVE_INFINITY);
+        }
+
+        final Optional<double[]> maybeSolution = linearProgram.minimize();
+        if (!maybeSolution.isPresent()) {
+            return Optional.empty();
+        }
+        final double[] solution = maybeSolution.get();
+
+        final int[] portions = new int[numberOfIngredients];
+        for (int i = 0; i < numberOfIngredients; ++i) {
+            portions[i] = Math.max(minPortions[i], Math.min(maxPortions[i], (int) Math.round(solution[i])));
+        }
+        return Optional.of(template.getDietPlan(portions));
+    }
+
+    private static Optional<ScoreRules> getRules(final ScoringProgram scoringProgram,
+                                                 final ScoreLayout.SlotType slotType) {
+        switch (slotType) {
+            case DIET_PLAN:
+                return Optional.of(scoringProgram.getDietPlanRules());
+            case MEAL:
+                return Optional.of(scoringProgram.getMealRules());
+            case LOWER_LIMIT:
+                return Optional.of(scoringProgram.getLowerLimitRules());
+            case UPPER_LIMIT:
+                return Optional.of(scoringProgram.getUpperLimitRules());
+            default:
+                return Optional.empty();
+        }
+    }
+
+    /**
+     * @param distance Distance between the optimal and the critical value; sharp limits are scaled by the target
+     * @return cost of a deviation of 1.0 in the scaled row
+     */
+    private static double getPenalty(final double weight, final double scale, final double distance) {
+        return weight * scale / (distance > 0.0 && distance != Double.POSITIVE_INFINITY ? distance : scale);
+    }
+}
@@ -21,6 +21,12 @@
 package diet;
 
 import util.LazyValue;
+import util.Pair;
+import util.RacyLazyValue;
+
+import java.util.List;
+
+import static diet.NutrientMatrix.nutrientMatrix;
 
 public class Meal {
     private final MealTemplate template;
@@ -36,14 +42,14 @@ public class Meal {
         this.template = template;
         this.ingredients = ingredients;
 
-        properties = new LazyValue<FoodProperties>() {
+        properties = new RacyLazyValue<FoodProperties>() {
             @Override
             protected FoodProperties compute() {
                 return ingredients.getProperties();
             }
         };
 
-        costs = new LazyValue<Double>() {
+        costs = new RacyLazyValue<Double>() {
             @Override
             protected Double compute() {
                 return ingredients.getCosts();
@@ -51,6 +57,67 @@ public class Meal {
         };
     }
 
+    /**
+     * Derives the values of the new meal from the origin and the change of a single ingredient. The values are
+     * calculated immediately, so that the new meal doesn't keep a reference to the origin.
+     */
+    private Meal(final Meal origin, final FoodItem ingredient, final double newAmount) {
+        template = origin.getTemplate();
+        ingredients = origin.getIngredients().getWithChange(ingredient, newAmount);
+        final double amountDiff = newAmount - origin.getAmount(ingredient);
+
+        final FoodProperties newProperties = new FoodProperties(origin.getProperties());
+        nutrientMatrix().addScaled(newProperties, ingredient, amountDiff);
+        properties = new RacyLazyValue<FoodProperties>() {
+            @Override
+            protected FoodProperties compute() {
+                return newProperties;
+            }
+        };
+
+        final double newCosts = origin.getCosts() + ingredient.getPrice() * amountDiff;
+        costs = new RacyLazyValue<Double>() {
+            @Override
+            protected Double compute() {
+                return newCosts;
+            }
+        };
+    }
+
+    /**
+     * Derives the values of the new meal from the origin and the changes of several different ingredients. As for a
+     * single change, the values are calculated immediately.
+     */
+    private Meal(final Meal origin, final List<Pair<FoodItem, Double>> newAmounts) {
+        template = origin.getTemplate();
+        final FoodItems newIngredients = new FoodItems(origin.getIngredients());
+        final FoodProperties newProperties = new FoodProperties(origin.getProperties());
+        double newCosts = origin.getCosts();
+        for (final Pair<FoodItem, Double> newAmount : newAmounts) {
+            final FoodItem ingredient = newAmount.a();
+            final double amountDiff = newAmount.b() - origin.getAmount(ingredient);
+            newIngredients.set(ingredient, newAmount.b());
+            nutrientMatrix().addScaled(newProperties, ingredient, amountDiff);
+            newCosts += ingredient.getPrice() * amountDiff;
+        }
+        ingredients = newIngredients;
+
+        properties = new RacyLazyValue<FoodProperties>() {
+            @Override
+            protected FoodProperties compute() {
+                return newProperties;
+            }
+        };
+
+        final double finalCosts = newCosts;
+        costs = new RacyLazyValue<Double>() {
+            @Override
+            protected Double compute() {
+                return finalCosts;
+            }
+        };
+    }
+
     public MealTemplate getTemplate() {
         return template;
     }
@@ -76,9 +143,14 @@ public class Meal {
     }
 
     public Meal getWithChange(final FoodItem ingredient, final double newAmount) {
-        // TODO: Lazy values can be set using a new private constructor - the modifications are easy to calculate here.
-        final FoodItems ingredients = getIngredients().getWithChange(ingredient, newAmount);
-        return new Meal(getTemplate(), ingredients);
+        return new Meal(this, ingredient, newAmount);
+    }
+
+    /**
+     * @param newAmounts New amounts of different ingredients
+     */
+    public Meal getWithChanges(final List<Pair<FoodItem, Double>> newAmounts) {
+        return new Meal(this, newAmounts);
     }
 
     @Override
@@ -0,0 +1,99 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package diet;
+
+import util.ItemList;
+
+/**
+ * Properties of all food items (per item) in a sparse matrix in compressed sparse row format. Each row belongs to a
+ * food item and contains only its non-zero properties, so that the properties of a set of food items can be summed
+ * up without iterating over properties that food items don't have.
+ */
+public class NutrientMatrix {
+    private static final NutrientMatrix NUTRIENT_MATRIX = new NutrientMatrix();
+
+    private final int[] rowStarts;
+    private final int[] columns;
+    private final double[] values;
+
+    public static NutrientMatrix nutrientMatrix() {
+        return NUTRIENT_MATRIX;
+    }
+
+    private NutrientMatrix() {
+        final FoodItem[] foodItems = FoodItem.values();
+        rowStarts = new int[foodItems.length + 1];
+        int size = 0;
+        for (final FoodItem foodItem : foodItems) {
+            size += foodItem.getFood().getProperties().getCount();
+            rowStarts[foodItem.ordinal() + 1] = size;
+        }
+
+        columns = new int[size];
+        values = new double[size];
+        for (final FoodItem foodItem : foodItems) {
+            final FoodProperties foodProperties = foodItem.getFood().getProperties();
+            final double weightFactor = foodItem.getWeight() / 100.0; // 100g to item weight
+            int entry = rowStarts[foodItem.ordinal()];
+            for (int index = foodProperties.firstIndex(); index >= 0; index = foodProperties.nextIndex(index)) {
+                columns[entry] = index;
+                values[entry] = foodProperties.getAmount(index) * weightFactor;
+                ++entry;
+            }
+        }
+    }
+
+    /**
+     * @return amount of the property in one item of the food item
+     */
+    public double get(final FoodItem foodItem, final FoodProperty foodProperty) {
+        final int column = foodProperty.ordinal();
+        for (int entry = rowStarts[foodItem.ordinal()]; entry < rowStarts[foodItem.ordinal() + 1]; ++entry) {
+            if (columns[entry] == column) {
+                return values[entry];
+            }
+        }
+        return 0.0;
+    }
+
+    /**
+     * Adds the properties of the amount of the food item to the properties.
+     *
+     * @param amount Amount (number of items), may be negative
+     */
+    public void addScaled(final FoodProperties properties, final FoodItem foodItem, final double amount) {
+        final int end = rowStarts[foodItem.ordinal() + 1];
+        for (int entry = rowStarts[foodItem.ordinal()]; entry < end; ++entry) {
+            properties.addAmount(columns[entry], values[entry] * amount);
+        }
+    }
+
+    /**
+     * @return properties of the food items (product of the amounts and the matrix)
+     */
+    public FoodProperties multiply(final ItemList<FoodItem> foodItems) {
+        final FoodProperties properties = new FoodProperties();
+        for (int index = foodItems.firstIndex(); index >= 0; index = foodItems.nextIndex(index)) {
+            addScaled(properties, foodItems.getItem(index), foodItems.getAmount(index));
+        }
+        return properties;
+    }
+}
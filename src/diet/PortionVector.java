@@ -0,0 +1,134 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package diet;
+
+import util.Pair;
+
+import java.util.ArrayList;
+import java.util.Optional;
+
+/**
+ * Compact encoding of a diet plan: the number of portions of each variable ingredient of its template, in the order
+ * of DietPlanTemplate.getVariableIngredients. A vector takes two bytes per variable ingredient; the meals, their
+ * amounts and the properties are derived by decoding the vector into a diet plan.
+ * <p>
+ * Most amounts are multiples of a portion. The minimal amounts of some meal templates are not, and transfers add
+ * portions to them, so an amount can also be the minimal amount plus a number of portions. Such an amount is stored
+ * as the negative number -(k + 1) for the minimal amount plus k portions.
+ */
+public class PortionVector {
+    private static final double PORTION_TOLERANCE = 1e-9; // Tolerance for rounding errors of amounts
+
+    private final DietPlanTemplate template;
+    private final short[] portions;
+
+    /**
+     * @return encoding of the diet plan or empty if the diet plan has no template, contains an ingredient that is not
+     * a variable ingredient of the template or an amount that can't be encoded
+     */
+    public static Optional<PortionVector> portionVector(final DietPlan dietPlan) {
+        if (!dietPlan.getTemplate().isPresent()) {
+            return Optional.empty();
+        }
+        final DietPlanTemplate template = dietPlan.getTemplate().get();
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = template.getVariableIngredients();
+        final short[] portions = new short[variableIngredients.size()];
+        int encodedIngredients = 0;
+        for (int i = 0; i < portions.length; ++i) {
+            final int mealIndex = variableIngredients.get(i).a();
+            final FoodItem ingredient = variableIngredients.get(i).b();
+            final double amount = dietPlan.getMeal(mealIndex).getAmount(ingredient);
+            final double minAmount = template.getMealTemplate(mealIndex).getMinAmount(ingredient);
+            final double exactPortions = ingredient.amountToPortions(1.0) * amount;
+            final double exactExtraPortions = ingredient.amountToPortions(1.0) * (amount - minAmount);
+            final long roundedPortions = Math.round(exactPortions);
+            final long roundedExtraPortions = Math.round(exactExtraPortions);
+            if (Math.abs(exactPortions - roundedPortions) <= PORTION_TOLERANCE &&
+                    roundedPortions <= Short.MAX_VALUE) {
+                portions[i] = (short) roundedPortions;
+            } else if (Math.abs(exactExtraPortions - roundedExtraPortions) <= PORTION_TOLERANCE &&
+                    roundedExtraPortions >= 0 && roundedExtraPortions < Short.MAX_VALUE) {
+                portions[i] = (short) (-roundedExtraPortions - 1);
+            } else {
+                return Optional.empty();
+            }
+            if (amount > 0.0) {
+                ++encodedIngredients;
+            }
+        }
+
+        // Ingredients outside of the template would get lost
+        int ingredients = 0;
+        for (final Meal meal : dietPlan.getMeals()) {
+            final FoodItems mealIngredients = meal.getIngredients();
+            for (int index = mealIngredients.firstIndex(); index >= 0; index = mealIngredients.nextIndex(index)) {
+                ++ingredients;
+            }
+        }
+        if (ingredients != encodedIngredients) {
+            return Optional.empty();
+        }
+        return Optional.of(new PortionVector(template, portions));
+    }
+
+    private PortionVector(final DietPlanTemplate template, final short[] portions) {
+        this.template = template;
+        this.portions = portions;
+    }
+
+    public DietPlanTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return number of variable ingredients
+     */
+    public int size() {
+        return portions.length;
+    }
+
+    /**
+     * @param ingredientIndex Index of a variable ingredient
+     * @return amount of the ingredient in its meal
+     */
+    public double getAmount(final int ingredientIndex) {
+        final Pair<Integer, FoodItem> ingredientId = template.getVariableIngredients().get(ingredientIndex);
+        final FoodItem ingredient = ingredientId.b();
+        final int code = portions[ingredientIndex];
+        if (code >= 0) {
+            return ingredient.portionsToAmount(code);
+        }
+        return template.getMealTemplate(ingredientId.a()).getMinAmount(ingredient) +
+                ingredient.portionsToAmount(-code - 1);
+    }
+
+    /**
+     * Decodes the vector. The new diet plan has no origin, so its scores are computed from scratch; amounts that are
+     * multiples of a portion or minimal amounts are restored exactly.
+     */
+    public DietPlan getDietPlan() {
+        final double[] amounts = new double[portions.length];
+        for (int i = 0; i < portions.length; ++i) {
+            amounts[i] = getAmount(i);
+        }
+        return template.getDietPlan(amounts);
+    }
+}
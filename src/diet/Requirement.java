@@ -20,47 +20,49 @@
  **********************************************************************/
 package diet;
 
+import java.util.Optional;
+
 public enum Requirement {
-    ALPHA_LINOLENIC_ACID("Alpha-linolenic acid"),
-    CALCIUM("Calcium"),
-    CARBOHYDRATES("Carbohydrates"),
-    CHOLESTEROL("Cholesterol"),
+    ALPHA_LINOLENIC_ACID("Alpha-linolenic acid", FoodProperty.ALPHA_LINOLENIC_ACID),
+    CALCIUM("Calcium", FoodProperty.CALCIUM),
+    CARBOHYDRATES("Carbohydrates", FoodProperty.CARBOHYDRATES),
+    CHOLESTEROL("Cholesterol", FoodProperty.CHOLESTEROL),
     COSTS("Costs"),
-    DIETARY_FIBRE("Dietary fibre"),
-    ENERGY("Energy"),
-    FAT("Fat"),
-    FOLATES("Folates"),
-    IODINE("Iodine"),
-    IRON("Iron"),
-    LINOLEIC_ACID("Linoleic acid"),
-    MAGNESIUM("Magnesium"),
-    NIACIN_DERIVED_EQUIVALENTS("Niacin derived equivalents"),
-    OMEGA_3_FATTY_ACIDS("Omega 3 fatty acids"),
-    PHOSPHORUS("Phosphorus"),
-    POTASSIUM("Potassium"),
-    PROTEIN("Protein"),
-    RIBOFLAVIN("Riboflavin"),
-    SELENIUM("Selenium"),
-    SODIUM("Sodium"),
-    SUGARS("Sugars"),
-    THIAMIN("Thiamin"),
-    TRANS_FATTY_ACIDS("Trans fatty acids"),
-    TRYPTOPHAN("Tryptophan"),
-    VEGAN("Vegan"),
-    VEGETARIAN("Vegetarian"),
-    VITAMIN_A_RETINOL_EQUIVALENTS("Vitamin A retinol equivalents"),
-    VITAMIN_B12("Vitamin B12"),
-    VITAMIN_B6("Vitamin B6"),
-    VITAMIN_C("Vitamin C"),
-    VITAMIN_E("Vitamin E"),
-    ZINC("Zinc"),
-
-    MEAL_ALCOHOL("Alcohol in meal"),
-    MEAL_CAFFEINE("Caffeine in meal"),
-    MEAL_CARBOHYDRATES("Carbohydrates in meal"),
-    MEAL_ENERGY("Energy in meal"),
-    MEAL_FAT("Fat in meal"),
-    MEAL_PROTEIN("Protein in meal"),
+    DIETARY_FIBRE("Dietary fibre", FoodProperty.DIETARY_FIBRE),
+    ENERGY("Energy", FoodProperty.ENERGY),
+    FAT("Fat", FoodProperty.FAT),
+    FOLATES("Folates", FoodProperty.TOTAL_FOLATES),
+    IODINE("Iodine", FoodProperty.IODINE),
+    IRON("Iron", FoodProperty.IRON),
+    LINOLEIC_ACID("Linoleic acid", FoodProperty.LINOLEIC_ACID),
+    MAGNESIUM("Magnesium", FoodProperty.MAGNESIUM),
+    NIACIN_DERIVED_EQUIVALENTS("Niacin derived equivalents", FoodProperty.NIACIN_DERIVED_EQUIVALENTS),
+    OMEGA_3_FATTY_ACIDS("Omega 3 fatty acids", FoodProperty.OMEGA_3_FATTY_ACIDS),
+    PHOSPHORUS("Phosphorus", FoodProperty.PHOSPHORUS),
+    POTASSIUM("Potassium", FoodProperty.POTASSIUM),
+    PROTEIN("Protein", FoodProperty.PROTEIN),
+    RIBOFLAVIN("Riboflavin", FoodProperty.RIBOFLAVIN),
+    SELENIUM("Selenium", FoodProperty.SELENIUM),
+    SODIUM("Sodium", FoodProperty.SODIUM),
+    SUGARS("Sugars", FoodProperty.SUGARS),
+    THIAMIN("Thiamin", FoodProperty.THIAMIN),
+    TRANS_FATTY_ACIDS("Trans fatty acids", FoodProperty.TRANS_FATTY_ACIDS),
+    TRYPTOPHAN("Tryptophan", FoodProperty.TRYPTOPHAN),
+    VEGAN("Vegan", FoodProperty.VEGAN),
+    VEGETARIAN("Vegetarian", FoodProperty.VEGETARIAN),
+    VITAMIN_A_RETINOL_EQUIVALENTS("Vitamin A retinol equivalents", FoodProperty.VITAMIN_A_RETINOL_EQUIVALENTS),
+    VITAMIN_B12("Vitamin B12", FoodProperty.VITAMIN_B12),
+    VITAMIN_B6("Vitamin B6", FoodProperty.VITAMIN_B6),
+    VITAMIN_C("Vitamin C", FoodProperty.VITAMIN_C),
+    VITAMIN_E("Vitamin E", FoodProperty.VITAMIN_E),
+    ZINC("Zinc", FoodProperty.ZINC),
+
+    MEAL_ALCOHOL("Alcohol in meal", FoodProperty.ALCOHOL),
+    MEAL_CAFFEINE("Caffeine in meal", FoodProperty.CAFFEINE),
+    MEAL_CARBOHYDRATES("Carbohydrates in meal", FoodProperty.CARBOHYDRATES),
+    MEAL_ENERGY("Energy in meal", FoodProperty.ENERGY),
+    MEAL_FAT("Fat in meal", FoodProperty.FAT),
+    MEAL_PROTEIN("Protein in meal", FoodProperty.PROTEIN),
 
     FOOD_ITEM_LOWER_LIMIT("Lower limit for food item"),
     FOOD_ITEM_UPPER_LIMIT("Upper limit for food item"),
@@ -68,15 +70,29 @@ public enum Requirement {
     WASTE("Waste");
 
     private final String name;
+    private final Optional<FoodProperty> foodProperty;
 
     Requirement(final String name) {
         this.name = name;
+        this.foodProperty = Optional.empty();
+    }
+
+    Requirement(final String name, final FoodProperty foodProperty) {
+        this.name = name;
+        this.foodProperty = Optional.of(foodProperty);
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * @return food property that is evaluated by this requirement (if the requirement is based on a single property)
+     */
+    public Optional<FoodProperty> getFoodProperty() {
+        return foodProperty;
+    }
+
     @Override
     public String toString() {
         return name;
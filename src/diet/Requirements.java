@@ -32,6 +32,7 @@ import static diet.FoodProperty.FAT_ENERGY;
 import static diet.PersonalDetails.Gender.FEMALE;
 import static diet.PersonalDetails.Gender.MALE;
 import static diet.ScoreParams.*;
+import static diet.ScoringProgram.scoringProgram;
 import static util.Limits2.limits2;
 import static util.Pair.pair;
 
@@ -57,6 +58,8 @@ public class Requirements {
     final ArrayList<Pair<FoodItem, Double>> lowerLimits;
     final ArrayList<Pair<FoodItem, Double>> upperLimits;
 
+    private final EnumMap<ScoreMode, ScoringProgram> scoringPrograms;
+
     public Requirements(final PersonalDetails personalDetails, final int days, final int numberOfMeals) {
         this.personalDetails = personalDetails;
         this.days = days;
@@ -113,6 +116,11 @@ public class Requirements {
         for (final Pair<FoodItem, Double> upperLimitPerDay : upperLimitsPerDay) {
             upperLimits.add(pair(upperLimitPerDay.a(), upperLimitPerDay.b() * days));
         }
+
+        scoringPrograms = new EnumMap<ScoreMode, ScoringProgram>(ScoreMode.class);
+        for (final ScoreMode scoreMode : ScoreMode.values()) {
+            scoringPrograms.put(scoreMode, scoringProgram(this, scoreMode));
+        }
     }
 
     public int getDays() {
@@ -127,6 +135,17 @@ public class Requirements {
         return requirements.containsKey(requirement) ? requirements.get(requirement) : Optional.<ScoreParams>empty();
     }
 
+    /**
+     * @return scoring program with exact score functions
+     */
+    public ScoringProgram getScoringProgram() {
+        return getScoringProgram(ScoreMode.EXACT);
+    }
+
+    public ScoringProgram getScoringProgram(final ScoreMode scoreMode) {
+        return scoringPrograms.get(scoreMode);
+    }
+
     public ArrayList<Pair<FoodItem, Double>> getLowerLimits() {
         return lowerLimits;
     }
@@ -27,29 +27,79 @@ import static java.lang.Math.min;
 public abstract class ScoreFunctions {
     private static final double LN_999 = log(999.0); // log(999.0) == -log(0.001 / 0.999)
 
+    /*  The logistic function 1 / (1 + exp(-x)) is tabulated in [-LOGISTIC_TABLE_RANGE, LOGISTIC_TABLE_RANGE] with
+        LOGISTIC_TABLE_RESOLUTION entries per unit and interpolated linearly between the entries.
+        The error of linear interpolation is at most h^2 / 8 * max|f''| = (1/64)^2 / 8 * 0.0963 < 2.94e-6, the error
+        of clamping to 0.0 or 1.0 outside the table is at most 1 / (1 + exp(16)) < 1.2e-7. Taking the minimum of the
+        lower and upper logistic function doesn't increase the error.
+     */
+    private static final double LOGISTIC_TABLE_RANGE = 16.0;
+    private static final int LOGISTIC_TABLE_RESOLUTION = 64;
+    private static final double[] LOGISTIC_TABLE = createLogisticTable();
+
+    /**
+     * Maximum absolute difference between approximated and exact scores.
+     */
+    public static final double MAX_APPROXIMATION_ERROR = 3e-6;
+
     public static double standard(final double value, final ScoreParams scoreParams) {
+        return standard(value,
+                scoreParams.getLowerCritical(), scoreParams.getLowerK(),
+                scoreParams.getUpperCritical(), scoreParams.getUpperK());
+    }
+
+    /**
+     * Applies the standard score function to a batch of values, each with its own parameters. This is a plain scalar
+     * loop over the arrays, which the JIT compiler can unroll; it yields exactly the same scores as the single value
+     * function.
+     *
+     * @param values         Values to score
+     * @param lowerCriticals Lower critical value for each value
+     * @param k1s            Steepness of the lower logistic function for each value
+     * @param upperCriticals Upper critical value for each value
+     * @param k2s            Steepness of the upper logistic function for each value
+     * @param scores         Array that receives the scores
+     * @param offset         Index of the first score in the array of scores
+     * @param length         Number of values to score
+     */
+    public static void standard(final double[] values,
+                                final double[] lowerCriticals,
+                                final double[] k1s,
+                                final double[] upperCriticals,
+                                final double[] k2s,
+                                final double[] scores,
+                                final int offset,
+                                final int length) {
+        for (int i = 0; i < length; ++i) {
+            scores[offset + i] = standard(values[i], lowerCriticals[i], k1s[i], upperCriticals[i], k2s[i]);
+        }
+    }
+
+    /**
+     * Standard score function with precomputed steepness of the logistic functions.
+     *
+     * @param k1 Steepness of the lower logistic function or 0.0 for a sharp lower limit
+     * @param k2 Steepness of the upper logistic function or 0.0 for a sharp upper limit
+     */
+    public static double standard(final double value,
+                                  final double lowerCritical,
+                                  final double k1,
+                                  final double upperCritical,
+                                  final double k2) {
         /*  We use two logistic functions, one to define minimum values and one to define maximum values.
             The final score is the minimum of the result of both functions.
             Lower and upper critical values define the point where the slope is greatest (sigmoid's midpoint).
             A value is regarded as "optimal" if the result of the logistic function is at least 0.999.
          */
         final double score1;
-        final double lowerCritical = scoreParams.getLowerCritical();
-        final double lowerOptimal = scoreParams.getLowerOptimal();
-        if (lowerOptimal > lowerCritical) {
-            // Calculate k that is necessary to reach 0.999 at the limit of the optimal range.
-            final double k1 = LN_999 / (lowerOptimal - lowerCritical);
+        if (k1 > 0.0) {
             score1 = 1.0 / (1.0 + exp(-k1 * (value - lowerCritical)));
         } else {
             score1 = value < lowerCritical ? 0.0 : 1.0;
         }
 
         final double score2;
-        final double upperCritical = scoreParams.getUpperCritical();
-        final double upperOptimal = scoreParams.getUpperOptimal();
-        if (upperOptimal < upperCritical) {
-            // Calculate k that is necessary to reach 0.999 at the limit of the optimal range.
-            final double k2 = LN_999 / (upperCritical - upperOptimal);
+        if (k2 > 0.0) {
             score2 = 1.0 / (1.0 + exp(-k2 * (upperCritical - value)));
         } else {
             score2 = value > upperCritical ? 0.0 : 1.0;
@@ -57,4 +107,129 @@ public abstract class ScoreFunctions {
 
         return min(score1, score2);
     }
+
+    /**
+     * Upper bound of the standard score function for all values in an interval. The lower logistic function grows and
+     * the upper logistic function shrinks, so neither can exceed its value at the far end of the interval; the bound
+     * is exact if the interval lies on one side of the peak.
+     *
+     * @param minValue Lower end of the interval
+     * @param maxValue Upper end of the interval
+     */
+    public static double standardUpperBound(final double minValue,
+                                            final double maxValue,
+                                            final double lowerCritical,
+                                            final double k1,
+                                            final double upperCritical,
+                                            final double k2) {
+        return min(standard(maxValue, lowerCritical, k1, Double.POSITIVE_INFINITY, 0.0),
+                standard(minValue, Double.NEGATIVE_INFINITY, 0.0, upperCritical, k2));
+    }
+
+    public static double standard(final double value, final ScoreParams scoreParams, final ScoreMode scoreMode) {
+        return standard(value,
+                scoreParams.getLowerCritical(), scoreParams.getLowerK(),
+                scoreParams.getUpperCritical(), scoreParams.getUpperK(), scoreMode);
+    }
+
+    public static double standard(final double value,
+                                  final double lowerCritical,
+                                  final double k1,
+                                  final double upperCritical,
+                                  final double k2,
+                                  final ScoreMode scoreMode) {
+        return scoreMode == ScoreMode.EXACT ?
+                standard(value, lowerCritical, k1, upperCritical, k2) :
+                approximateStandard(value, lowerCritical, k1, upperCritical, k2);
+    }
+
+    /**
+     * Batch variant of {@link #standard(double, double, double, double, double, ScoreMode)}.
+     */
+    public static void standard(final double[] values,
+                                final double[] lowerCriticals,
+                                final double[] k1s,
+                                final double[] upperCriticals,
+                                final double[] k2s,
+                                final double[] scores,
+                                final int offset,
+                                final int length,
+                                final ScoreMode scoreMode) {
+        if (scoreMode == ScoreMode.EXACT) {
+            standard(values, lowerCriticals, k1s, upperCriticals, k2s, scores, offset, length);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                scores[offset + i] =
+                        approximateStandard(values[i], lowerCriticals[i], k1s[i], upperCriticals[i], k2s[i]);
+            }
+        }
+    }
+
+    /**
+     * Standard score function with table interpolated logistic functions. The result differs by at most
+     * MAX_APPROXIMATION_ERROR from the exact score.
+     */
+    public static double approximateStandard(final double value,
+                                             final double lowerCritical,
+                                             final double k1,
+                                             final double upperCritical,
+                                             final double k2) {
+        final double score1;
+        if (k1 > 0.0) {
+            score1 = approximateLogistic(k1 * (value - lowerCritical));
+        } else {
+            score1 = value < lowerCritical ? 0.0 : 1.0;
+        }
+
+        final double score2;
+        if (k2 > 0.0) {
+            score2 = approximateLogistic(k2 * (upperCritical - value));
+        } else {
+            score2 = value > upperCritical ? 0.0 : 1.0;
+        }
+
+        return min(score1, score2);
+    }
+
+    /**
+     * @return approximation of 1 / (1 + exp(-x))
+     */
+    public static double approximateLogistic(final double x) {
+        if (x <= -LOGISTIC_TABLE_RANGE) {
+            return 0.0;
+        }
+        if (x >= LOGISTIC_TABLE_RANGE) {
+            return 1.0;
+        }
+        final double position = (x + LOGISTIC_TABLE_RANGE) * LOGISTIC_TABLE_RESOLUTION;
+        final int index = (int) position;
+        final double lower = LOGISTIC_TABLE[index];
+        return lower + (position - index) * (LOGISTIC_TABLE[index + 1] - lower);
+    }
+
+    private static double[] createLogisticTable() {
+        final int size = (int) (2.0 * LOGISTIC_TABLE_RANGE * LOGISTIC_TABLE_RESOLUTION) + 1;
+        final double[] table = new double[size];
+        for (int i = 0; i < size; ++i) {
+            final double x = (double) i / LOGISTIC_TABLE_RESOLUTION - LOGISTIC_TABLE_RANGE;
+            table[i] = 1.0 / (1.0 + exp(-x));
+        }
+        return table;
+    }
+
+    /**
+     * @return steepness of the lower logistic function or 0.0 for a sharp lower limit
+     */
+    public static double getLowerK(final double lowerCritical, final double lowerOptimal) {
+        // Calculate k that is necessary to reach 0.999 at the limit of the optimal range.
+        return lowerOptimal > lowerCritical ? LN_999 / (lowerOptimal - lowerCritical) : 0.0;
+    }
+
+    /**
+     * @return steepness of the upper logistic function or 0.0 for a sharp upper limit
+     */
+    public static double getUpperK(final double upperOptimal, final double upperCritical) {
+        // Calculate k that is necessary to reach 0.999 at the limit of the optimal range.
+        return upperOptimal < upperCritical ? LN_999 / (upperCritical - upperOptimal) : 0.0;
+    }
 }
@@ -0,0 +1,223 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package diet;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Fixed order of the scores of diet plans with a certain number of meals. Each score is addressed by a slot:
+ * <ol>
+ * <li>Criteria for complete diet plan (one slot per rule)</li>
+ * <li>Vegetarian and vegan restrictions</li>
+ * <li>Criteria for individual meals (one slot per meal and rule)</li>
+ * <li>Lower and upper limits for food items (one slot per rule)</li>
+ * <li>Waste</li>
+ * </ol>
+ * The weights of the scores are fixed by the layout.
+ */
+public class ScoreLayout {
+    enum SlotType {
+        DIET_PLAN, VEGETARIAN, VEGAN, MEAL, LOWER_LIMIT, UPPER_LIMIT, WASTE
+    }
+
+    private final ScoringProgram scoringProgram;
+    private final int numberOfMeals;
+    private final int numberOfMealRules;
+    private final int vegetarianSlot;
+    private final int mealSlot;
+    private final int lowerLimitSlot;
+    private final int upperLimitSlot;
+    private final int wasteSlot;
+    private final Requirement[] requirements;
+    private final int[] requirementIndices;
+    private final SlotType[] slotTypes;
+    private final int[] rules;
+    private final double[] weights;
+    private final double weightSum;
+    private final int[] slotsByWeight;
+
+    ScoreLayout(final ScoringProgram scoringProgram, final int numberOfMeals) {
+        this.scoringProgram = scoringProgram;
+        this.numberOfMeals = numberOfMeals;
+        final ScoreRules dietPlanRules = scoringProgram.getDietPlanRules();
+        final ScoreRules mealRules = scoringProgram.getMealRules();
+        final ScoreRules lowerLimitRules = scoringProgram.getLowerLimitRules();
+        final ScoreRules upperLimitRules = scoringProgram.getUpperLimitRules();
+        numberOfMealRules = mealRules.size();
+        vegetarianSlot = dietPlanRules.size();
+        mealSlot = vegetarianSlot + 2;
+        lowerLimitSlot = mealSlot + numberOfMeals * numberOfMealRules;
+        upperLimitSlot = lowerLimitSlot + lowerLimitRules.size();
+        wasteSlot = upperLimitSlot + upperLimitRules.size();
+
+        final int size = wasteSlot + 1;
+        requirements = new Requirement[size];
+        requirementIndices = new int[size];
+        slotTypes = new SlotType[size];
+        rules = new int[size];
+        weights = new double[size];
+        for (int rule = 0; rule < dietPlanRules.size(); ++rule) {
+            setSlot(getDietPlanSlot(rule), SlotType.DIET_PLAN, dietPlanRules, rule, 0);
+        }
+        setSlot(getVegetarianSlot(), SlotType.VEGETARIAN, Requirement.VEGETARIAN, 0, 0,
+                scoringProgram.getRestrictionWeight());
+        setSlot(getVeganSlot(), SlotType.VEGAN, Requirement.VEGAN, 0, 0, scoringProgram.getRestrictionWeight());
+        for (int i = 0; i < numberOfMeals; ++i) {
+            for (int rule = 0; rule < numberOfMealRules; ++rule) {
+                setSlot(getMealSlot(i, rule), SlotType.MEAL, mealRules, rule, i);
+            }
+        }
+        for (int rule = 0; rule < lowerLimitRules.size(); ++rule) {
+            setSlot(getLowerLimitSlot(rule), SlotType.LOWER_LIMIT, lowerLimitRules, rule, rule);
+        }
+        for (int rule = 0; rule < upperLimitRules.size(); ++rule) {
+            setSlot(getUpperLimitSlot(rule), SlotType.UPPER_LIMIT, upperLimitRules, rule, rule);
+        }
+        setSlot(wasteSlot, SlotType.WASTE, Requirement.WASTE, 0, 0, scoringProgram.getWasteWeight());
+
+        double weightSum = 0.0;
+        for (final double weight : weights) {
+            weightSum += weight;
+        }
+        this.weightSum = weightSum;
+
+        final Integer[] sortedSlots = new Integer[size];
+        for (int slot = 0; slot < size; ++slot) {
+            sortedSlots[slot] = slot;
+        }
+        Arrays.sort(sortedSlots, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer slot1, final Integer slot2) {
+                return Double.compare(weights[slot2], weights[slot1]);
+            }
+        });
+        slotsByWeight = new int[size];
+        for (int rank = 0; rank < size; ++rank) {
+            slotsByWeight[rank] = sortedSlots[rank];
+        }
+    }
+
+    private void setSlot(final int slot,
+                         final SlotType slotType,
+                         final ScoreRules scoreRules,
+                         final int rule,
+                         final int requirementIndex) {
+        setSlot(slot, slotType, scoreRules.getRequirement(rule), rule, requirementIndex, scoreRules.getWeight(rule));
+    }
+
+    private void setSlot(final int slot,
+                         final SlotType slotType,
+                         final Requirement requirement,
+                         final int rule,
+                         final int requirementIndex,
+                         final double weight) {
+        slotTypes[slot] = slotType;
+        requirements[slot] = requirement;
+        rules[slot] = rule;
+        requirementIndices[slot] = requirementIndex;
+        weights[slot] = weight;
+    }
+
+    ScoringProgram getScoringProgram() {
+        return scoringProgram;
+    }
+
+    public int size() {
+        return requirements.length;
+    }
+
+    public int getNumberOfMeals() {
+        return numberOfMeals;
+    }
+
+    public int getDietPlanSlot(final int rule) {
+        return rule;
+    }
+
+    public int getVegetarianSlot() {
+        return vegetarianSlot;
+    }
+
+    public int getVeganSlot() {
+        return vegetarianSlot + 1;
+    }
+
+    public int getMealSlot(final int mealIndex, final int rule) {
+        return mealSlot + mealIndex * numberOfMealRules + rule;
+    }
+
+    public int getLowerLimitSlot(final int rule) {
+        return lowerLimitSlot + rule;
+    }
+
+    public int getUpperLimitSlot(final int rule) {
+        return upperLimitSlot + rule;
+    }
+
+    public int getWasteSlot() {
+        return wasteSlot;
+    }
+
+    public Requirement getRequirement(final int slot) {
+        return requirements[slot];
+    }
+
+    /**
+     * @return index of the score among the scores of the same requirement (e.g. meal index)
+     */
+    public int getRequirementIndex(final int slot) {
+        return requirementIndices[slot];
+    }
+
+    /**
+     * @return true if the score belongs to a single meal; the requirement index is the index of the meal
+     */
+    public boolean isMealSlot(final int slot) {
+        return slotTypes[slot] == SlotType.MEAL;
+    }
+
+    SlotType getSlotType(final int slot) {
+        return slotTypes[slot];
+    }
+
+    /**
+     * @return index of the rule in the score rules of the slot type
+     */
+    int getRule(final int slot) {
+        return rules[slot];
+    }
+
+    public double getWeight(final int slot) {
+        return weights[slot];
+    }
+
+    public double getWeightSum() {
+        return weightSum;
+    }
+
+    /**
+     * @param rank Rank of the slot when the slots are sorted by weight (descending)
+     */
+    public int getSlotByWeight(final int rank) {
+        return slotsByWeight[rank];
+    }
+}
@@ -0,0 +1,36 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package diet;
+
+/**
+ * Evaluation mode of the standard score function.
+ */
+public enum ScoreMode {
+    /**
+     * Logistic functions are evaluated with Math.exp.
+     */
+    EXACT,
+    /**
+     * Logistic functions are interpolated from a table. The scores differ by at most
+     * {@link ScoreFunctions#MAX_APPROXIMATION_ERROR} from the exact scores.
+     */
+    APPROXIMATE
+}
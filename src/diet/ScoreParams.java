@@ -26,6 +26,8 @@ public class ScoreParams {
     private final double upperOptimal;
     private final double upperCritical;
     private final double weight;
+    private final double lowerK;
+    private final double upperK;
 
     public static ScoreParams scoreParams(final double lowerCritical,
                                           final double lowerOptimal,
@@ -78,6 +80,8 @@ public class ScoreParams {
         this.upperOptimal = upperOptimal;
         this.upperCritical = upperCritical;
         this.weight = weight;
+        lowerK = ScoreFunctions.getLowerK(lowerCritical, lowerOptimal);
+        upperK = ScoreFunctions.getUpperK(upperOptimal, upperCritical);
     }
 
     public double getLowerCritical() {
@@ -100,6 +104,20 @@ public class ScoreParams {
         return weight;
     }
 
+    /**
+     * @return steepness of the lower logistic function or 0.0 for a sharp lower limit
+     */
+    public double getLowerK() {
+        return lowerK;
+    }
+
+    /**
+     * @return steepness of the upper logistic function or 0.0 for a sharp upper limit
+     */
+    public double getUpperK() {
+        return upperK;
+    }
+
     public static double lowerCritical(final double lowerOptimal, final double tolerance) {
         return (1.0 - tolerance) * lowerOptimal;
     }
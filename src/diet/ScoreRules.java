@@ -0,0 +1,134 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package diet;
+
+import java.util.Arrays;
+
+/**
+ * Standard score rules in parallel arrays. Each rule applies the standard score function with fixed parameters to the
+ * amount of an item, which is identified by its index (e.g. ordinal of a food property or food item).
+ */
+public class ScoreRules {
+    private final Requirement[] requirements;
+    private final int[] indices;
+    private final double[] lowerCriticals;
+    private final double[] lowerOptimals;
+    private final double[] upperOptimals;
+    private final double[] upperCriticals;
+    private final double[] weights;
+    private final double[] k1s;
+    private final double[] k2s;
+    private final ScoreMode scoreMode;
+    private int size = 0;
+
+    ScoreRules(final int capacity, final ScoreMode scoreMode) {
+        this.scoreMode = scoreMode;
+        requirements = new Requirement[capacity];
+        indices = new int[capacity];
+        lowerCriticals = new double[capacity];
+        lowerOptimals = new double[capacity];
+        upperOptimals = new double[capacity];
+        upperCriticals = new double[capacity];
+        weights = new double[capacity];
+        k1s = new double[capacity];
+        k2s = new double[capacity];
+    }
+
+    void add(final Requirement requirement, final int index, final ScoreParams scoreParams) {
+        requirements[size] = requirement;
+        indices[size] = index;
+        lowerCriticals[size] = scoreParams.getLowerCritical();
+        lowerOptimals[size] = scoreParams.getLowerOptimal();
+        upperOptimals[size] = scoreParams.getUpperOptimal();
+        upperCriticals[size] = scoreParams.getUpperCritical();
+        weights[size] = scoreParams.getWeight();
+        k1s[size] = scoreParams.getLowerK();
+        k2s[size] = scoreParams.getUpperK();
+        ++size;
+    }
+
+    public ScoreMode getScoreMode() {
+        return scoreMode;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Requirement getRequirement(final int rule) {
+        return requirements[rule];
+    }
+
+    public int getIndex(final int rule) {
+        return indices[rule];
+    }
+
+    public double getLowerCritical(final int rule) {
+        return lowerCriticals[rule];
+    }
+
+    public double getLowerOptimal(final int rule) {
+        return lowerOptimals[rule];
+    }
+
+    public double getUpperOptimal(final int rule) {
+        return upperOptimals[rule];
+    }
+
+    public double getUpperCritical(final int rule) {
+        return upperCriticals[rule];
+    }
+
+    public double getWeight(final int rule) {
+        return weights[rule];
+    }
+
+    public double getScore(final int rule, final double value) {
+        return ScoreFunctions.standard(value, lowerCriticals[rule], k1s[rule], upperCriticals[rule], k2s[rule],
+                scoreMode);
+    }
+
+    /**
+     * @return upper bound of the score of the rule for all values in the interval, which also holds for approximated
+     * scores
+     */
+    double getScoreUpperBound(final int rule, final double minValue, final double maxValue) {
+        final double bound = ScoreFunctions.standardUpperBound(minValue, maxValue, lowerCriticals[rule], k1s[rule],
+                upperCriticals[rule], k2s[rule]);
+        return scoreMode == ScoreMode.EXACT ? bound : bound + ScoreFunctions.MAX_APPROXIMATION_ERROR;
+    }
+
+    /**
+     * Scores the values of all rules at once.
+     *
+     * @param values Value for each rule
+     * @param scores Array that receives the score of each rule
+     * @param offset Index of the score of the first rule in the array of scores
+     */
+    public void getScores(final double[] values, final double[] scores, final int offset) {
+        ScoreFunctions.standard(values, lowerCriticals, k1s, upperCriticals, k2s, scores, offset, size, scoreMode);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(requirements, size));
+    }
+}
@@ -20,136 +20,247 @@
  **********************************************************************/
 package diet;
 
-import util.Mutable;
 import util.Pair;
 
-import java.util.*;
-import java.util.function.BiConsumer;
-import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
 
-import static diet.Score.score;
-import static util.Mutable.mutable;
 import static util.Pair.pair;
 
+/**
+ * Scores of a diet plan in a contiguous array; the slots and weights are defined by a score layout. A complete binary
+ * tree over the slots keeps the sums of the differences between weights and weighted scores and the slot with the
+ * greatest difference, so that selecting scores by their differences takes logarithmic time and the worst score can
+ * be read in constant time. The tree is built when it is used for the first time and updated with each change after
+ * that.
+ * <p/>
+ * Scores of a diet plan are computed when they are needed. Slots that haven't been computed yet are pending; their
+ * values in the arrays are outdated (e.g. copied from the diet plan that the evaluated diet plan was derived from).
+ * <p/>
+ * Scores are thread-safe: all methods that compute pending scores or access the tree are synchronized. Scores are
+ * usually evaluated by a single thread, so the locks are uncontended.
+ */
 public class Scores {
-    private final Map<Requirement, ArrayList<Score>> scores = new HashMap<Requirement, ArrayList<Score>>();
-    private double totalScore = 0.0;
-    private double weightSum = 0.0;
-    private Optional<Pair<Requirement, Integer>> worstScore = Optional.empty();
+    public static final int TOTAL_SCORE = -1;
+    private static final double BOUND_TOLERANCE = 1e-9; // Tolerance for rounding errors of upper limits
 
-    public Score getScore(final Requirement requirement, final int index) {
-        return scores.get(requirement).get(index);
+    private final ScoreLayout layout;
+    private final Optional<DietPlan> maybeDietPlan;
+    private final double[] scores;
+    private final boolean[] computed;
+    private int pendingCount;
+    private final int leaves;
+    private final double[] diffSums;
+    private final int[] worstSlots;
+    private boolean treeValid;
+
+    /**
+     * Creates scores without a diet plan; all scores are 0.0 initially.
+     */
+    public Scores(final ScoreLayout layout) {
+        this(layout, Optional.<DietPlan>empty());
+        Arrays.fill(computed, true);
+        pendingCount = 0;
     }
 
-    public Score getScore(final Requirement requirement) {
-        return getScore(requirement, 0);
+    /**
+     * Creates scores for a diet plan; all scores are pending.
+     */
+    Scores(final ScoreLayout layout, final DietPlan dietPlan) {
+        this(layout, Optional.of(dietPlan));
     }
 
-    public Score getScore(final Pair<Requirement, Integer> scoreId) {
-        return getScore(scoreId.a(), scoreId.b());
+    private Scores(final ScoreLayout layout, final Optional<DietPlan> maybeDietPlan) {
+        this.layout = layout;
+        this.maybeDietPlan = maybeDietPlan;
+        final int size = layout.size();
+        scores = new double[size];
+        computed = new boolean[size];
+        pendingCount = size;
+        leaves = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        diffSums = new double[2 * leaves];
+        worstSlots = new int[2 * leaves];
+        treeValid = false;
     }
 
-    public double getScore(final Optional<Pair<Requirement, Integer>> maybeScoreId) {
-        return maybeScoreId.map(new Function<Pair<Requirement, Integer>, Double>() {
-            @Override
-            public Double apply(final Pair<Requirement, Integer> scoreId) {
-                return getScore(scoreId).getScore();
-            }
-        }).orElse(totalScore);
+    public Scores(final Scores scores) {
+        this(scores, scores.maybeDietPlan);
     }
 
-    public double getTotalScore() {
-        return totalScore;
+    /**
+     * Creates scores for a diet plan that has been derived from the diet plan of the given scores. Pending scores
+     * stay pending; scores that are affected by the changes need to be invalidated.
+     */
+    Scores(final Scores scores, final DietPlan dietPlan) {
+        this(scores, Optional.of(dietPlan));
     }
 
-    public double getWeightSum() {
-        return weightSum;
+    private Scores(final Scores scores, final Optional<DietPlan> maybeDietPlan) {
+        layout = scores.layout;
+        this.maybeDietPlan = maybeDietPlan;
+        leaves = scores.leaves;
+        synchronized (scores) {
+            this.scores = scores.scores.clone();
+            computed = scores.computed.clone();
+            pendingCount = scores.pendingCount;
+            diffSums = scores.diffSums.clone();
+            worstSlots = scores.worstSlots.clone();
+            treeValid = scores.treeValid;
+        }
     }
 
-    public Optional<Pair<Requirement, Integer>> getWorstScore() {
-        return worstScore;
+    public ScoreLayout getLayout() {
+        return layout;
     }
 
-    public void addScore(final Requirement requirement,
-                         final double score,
-                         final double weight) {
-        final Score scoreDetails = score(score, weight);
-        ArrayList<Score> requirementScores = scores.get(requirement);
-        if (requirementScores == null) {
-            requirementScores = new ArrayList<Score>();
-            scores.put(requirement, requirementScores);
+    public int size() {
+        return scores.length;
+    }
+
+    /**
+     * Only the requested score is computed if it is pending.
+     *
+     * @param scoreId Slot of a score or TOTAL_SCORE
+     */
+    public synchronized double getScore(final int scoreId) {
+        if (scoreId == TOTAL_SCORE) {
+            return getTotalScore();
         }
-        requirementScores.add(scoreDetails);
-        totalScore += scoreDetails.getWeightedScore();
-        weightSum += scoreDetails.getWeight();
-
-        boolean isWorstScore = false;
-        if (worstScore.isPresent()) {
-            final Score worstScoreDetails = getScore(worstScore.get().a(), worstScore.get().b());
-            if (scoreDetails.getDiffFromWeight() > worstScoreDetails.getDiffFromWeight()) {
-                isWorstScore = true;
-            }
-        } else {
-            isWorstScore = true;
+        if (!computed[scoreId]) {
+            compute(scoreId);
+        }
+        return scores[scoreId];
+    }
+
+    public synchronized boolean isComputed(final int slot) {
+        return computed[slot];
+    }
+
+    /**
+     * @return number of scores that haven't been computed yet
+     */
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    public double getWeight(final int slot) {
+        return layout.getWeight(slot);
+    }
+
+    public synchronized double getTotalScore() {
+        return getWeightSum() - getDiffSum();
+    }
+
+    /**
+     * Computes pending scores only as long as the total score can still reach the bound. The pending scores with the
+     * greatest weights are computed first. The computation is only aborted if the upper limit of the total score is
+     * below the bound by more than rounding errors, so comparisons of the result with the bound (by &gt;= or &gt;)
+     * give the same answer as comparisons of the total score.
+     *
+     * @param bound Bound for the total score
+     * @return total score if it is greater than or equal to the bound; otherwise the total score or an upper limit of
+     * it, which are both less than the bound
+     */
+    public synchronized double getTotalScore(final double bound) {
+        // Pending scores can't be greater than 1.0.
+        double maxTotalScore = 0.0;
+        final int size = scores.length;
+        for (int slot = 0; slot < size; ++slot) {
+            maxTotalScore += computed[slot] ? scores[slot] * getWeight(slot) : getWeight(slot);
         }
-        if (isWorstScore) {
-            worstScore = Optional.of(pair(requirement, requirementScores.size() - 1));
+
+        for (int rank = 0; rank < size && pendingCount > 0; ++rank) {
+            if (maxTotalScore < bound - BOUND_TOLERANCE) {
+                return maxTotalScore;
+            }
+            final int slot = layout.getSlotByWeight(rank);
+            if (!computed[slot]) {
+                compute(slot);
+                maxTotalScore -= getDiff(slot);
+            }
         }
+        return getTotalScore();
     }
 
-    public void addStandardScore(final Requirement requirement,
-                                 final double value,
-                                 final Requirements requirements) {
-        requirements.getParams(requirement).ifPresent(new Consumer<ScoreParams>() {
-            @Override
-            public void accept(final ScoreParams scoreParams) {
-                final double score = ScoreFunctions.standard(value, scoreParams);
-                addScore(requirement, score, scoreParams.getWeight());
+    public double getWeightSum() {
+        return layout.getWeightSum();
+    }
+
+    /**
+     * @return difference between the sum of weights and the total score
+     */
+    public synchronized double getDiffSum() {
+        validateTree();
+        return diffSums[1];
+    }
+
+    public synchronized int getWorstScore() {
+        validateTree();
+        return worstSlots[1];
+    }
+
+    public synchronized void setScore(final int slot, final double score) {
+        if (!computed[slot]) {
+            computed[slot] = true;
+            --pendingCount;
+        }
+        scores[slot] = score;
+        if (treeValid) {
+            int node = leaves + slot;
+            diffSums[node] = getDiff(slot);
+            node >>>= 1;
+            while (node > 0) {
+                updateNode(node);
+                node >>>= 1;
             }
-        });
+        }
+    }
+
+    /**
+     * Marks a score as pending, so that it is computed again when it is needed.
+     */
+    synchronized void invalidate(final int slot) {
+        if (computed[slot]) {
+            computed[slot] = false;
+            ++pendingCount;
+        }
     }
 
     /**
      * @param sel Selector; number between 0 (incl.) and 1 (excl.)
-     * @return score
+     * @return slot of the selected score or TOTAL_SCORE if all scores are optimal
      */
-    public Optional<Pair<Requirement, Integer>> selectScoreByDiff(final double sel) {
-        final Mutable<Optional<Pair<Requirement, Integer>>> maybeScoreId = mutable(Optional.<Pair<Requirement, Integer>>empty());
-        final double totalDiff = weightSum - totalScore;
+    public synchronized int selectScoreByDiff(final double sel) {
+        final double totalDiff = getDiffSum();
         if (totalDiff > 0.0) {
-            final double selSum = sel * totalDiff;
-            final Mutable<Double> sum = mutable(0.0);
-            scores.forEach(new BiConsumer<Requirement, ArrayList<Score>>() {
-                @Override
-                public void accept(final Requirement requirement, final ArrayList<Score> scores) {
-                    final int scoresSize = scores.size();
-                    for (int i = 0; i < scoresSize && !maybeScoreId.get().isPresent(); ++i) {
-                        final double diff = scores.get(i).getDiffFromWeight();
-                        final double newSum = sum.get() + diff;
-                        if (selSum < newSum) {
-                            maybeScoreId.set(Optional.of(Pair.pair(requirement, i)));
-                        } else {
-                            sum.set(newSum);
-                        }
-                    }
+            double selSum = sel * totalDiff;
+            int node = 1;
+            while (node < leaves) {
+                final int left = 2 * node;
+                if (selSum < diffSums[left]) {
+                    node = left;
+                } else {
+                    selSum -= diffSums[left];
+                    node = left + 1;
                 }
-            });
+            }
+            final int slot = node - leaves;
+            if (slot < scores.length) {
+                return slot;
+            }
         }
-        return maybeScoreId.get();
+        return TOTAL_SCORE;
     }
 
-    public List<Pair<Pair<Requirement, Integer>, Double>> getRelativeScores() {
+    public synchronized List<Pair<Pair<Requirement, Integer>, Double>> getRelativeScores() {
+        computeAll();
         final List<Pair<Pair<Requirement, Integer>, Double>> relScores = new ArrayList<Pair<Pair<Requirement, Integer>, Double>>();
-        scores.forEach(new BiConsumer<Requirement, ArrayList<Score>>() {
-            @Override
-            public void accept(final Requirement requirement, final ArrayList<Score> scores) {
-                final int scoresSize = scores.size();
-                for (int i = 0; i < scoresSize; ++i) {
-                    relScores.add(pair(pair(requirement, i), scores.get(i).getScore()));
-                }
-            }
-        });
+        for (int slot = 0; slot < scores.length; ++slot) {
+            relScores.add(pair(pair(layout.getRequirement(slot), layout.getRequirementIndex(slot)), scores[slot]));
+        }
         relScores.sort(new Comparator<Pair<Pair<Requirement, Integer>, Double>>() {
             @Override
             public int compare(final Pair<Pair<Requirement, Integer>, Double> score1,
@@ -160,22 +271,80 @@ public class Scores {
         return relScores;
     }
 
-    @Override
-    public String toString() {
-        final ArrayList<Pair<Requirement, ArrayList<Score>>> sortedScores = new ArrayList<Pair<Requirement, ArrayList<Score>>>();
-        scores.forEach(new BiConsumer<Requirement, ArrayList<Score>>() {
-            @Override
-            public void accept(final Requirement requirement, final ArrayList<Score> scores) {
-                sortedScores.add(pair(requirement, scores));
+    private double getDiff(final int slot) {
+        final double weight = getWeight(slot);
+        return weight - scores[slot] * weight;
+    }
+
+    private void compute(final int slot) {
+        final DietPlan dietPlan = maybeDietPlan.get();
+        setScore(slot, layout.getScoringProgram().computeScore(dietPlan, layout, slot));
+    }
+
+    private void computeAll() {
+        if (pendingCount == scores.length) {
+            layout.getScoringProgram().computeScores(maybeDietPlan.get(), layout, scores);
+            Arrays.fill(computed, true);
+            pendingCount = 0;
+            treeValid = false;
+        } else if (pendingCount > 0) {
+            final int size = scores.length;
+            for (int slot = 0; slot < size; ++slot) {
+                if (!computed[slot]) {
+                    compute(slot);
+                }
             }
-        });
-        sortedScores.sort(new Comparator<Pair<Requirement, ArrayList<Score>>>() {
-            @Override
-            public int compare(final Pair<Requirement, ArrayList<Score>> score1,
-                               final Pair<Requirement, ArrayList<Score>> score2) {
-                return score1.a().toString().compareTo(score2.a().toString());
+        }
+    }
+
+    private void validateTree() {
+        computeAll();
+        if (!treeValid) {
+            for (int slot = 0; slot < leaves; ++slot) {
+                final int node = leaves + slot;
+                diffSums[node] = slot < scores.length ? getDiff(slot) : 0.0;
+                worstSlots[node] = slot < scores.length ? slot : TOTAL_SCORE;
             }
-        });
-        return "<" + sortedScores.toString() + ", " + totalScore + ">";
+            for (int node = leaves - 1; node > 0; --node) {
+                updateNode(node);
+            }
+            treeValid = true;
+        }
+    }
+
+    private void updateNode(final int node) {
+        final int left = 2 * node;
+        final int right = left + 1;
+        diffSums[node] = diffSums[left] + diffSums[right];
+        final int leftWorst = worstSlots[left];
+        final int rightWorst = worstSlots[right];
+        if (rightWorst != TOTAL_SCORE && getDiff(rightWorst) > getDiff(leftWorst)) {
+            worstSlots[node] = rightWorst;
+        } else {
+            worstSlots[node] = leftWorst;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        computeAll();
+        final StringBuilder stringBuilder = new StringBuilder("<[");
+        for (int slot = 0; slot < scores.length; ++slot) {
+            if (slot > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(layout.getRequirement(slot));
+            stringBuilder.append(" (");
+            stringBuilder.append(layout.getRequirementIndex(slot) + 1);
+            stringBuilder.append("): <");
+            stringBuilder.append(scores[slot] * getWeight(slot));
+            stringBuilder.append(" / ");
+            stringBuilder.append(getWeight(slot));
+            stringBuilder.append('>');
+        }
+        stringBuilder.append("], ");
+        stringBuilder.append(getTotalScore());
+        stringBuilder.append('>');
+        return stringBuilder.toString();
     }
 }
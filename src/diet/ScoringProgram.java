@@ -0,0 +1,493 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package diet;
+
+import util.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Requirements compiled into flat score rules, which can be applied to diet plans without any lookups. The rules are
+ * evaluated in a fixed order, which also defines the order of the scores.
+ */
+public class ScoringProgram {
+    private static final int COSTS_INDEX = -1;
+    private static final double EPSILON = 1e-9; // Tolerance for rounding errors in accumulated properties
+    private static final double RESTRICTION_WEIGHT = 10.0; // TODO
+    private static final double LIMIT_TOLERANCE = 0.05; // TODO
+    private static final double LIMIT_WEIGHT = 1.0; // TODO
+    private static final double WASTE_WEIGHT = 1.0; // TODO
+
+    private static final Requirement[] DIET_PLAN_REQUIREMENTS = {
+            Requirement.ALPHA_LINOLENIC_ACID,
+            Requirement.CALCIUM,
+            Requirement.CARBOHYDRATES,
+            Requirement.CHOLESTEROL,
+            Requirement.COSTS,
+            Requirement.DIETARY_FIBRE,
+            Requirement.ENERGY,
+            Requirement.FAT,
+            Requirement.FOLATES,
+            Requirement.IODINE,
+            Requirement.IRON,
+            Requirement.LINOLEIC_ACID,
+            Requirement.MAGNESIUM,
+            Requirement.NIACIN_DERIVED_EQUIVALENTS,
+            Requirement.OMEGA_3_FATTY_ACIDS,
+            Requirement.PHOSPHORUS,
+            Requirement.POTASSIUM,
+            Requirement.PROTEIN,
+            Requirement.RIBOFLAVIN,
+            Requirement.SELENIUM,
+            Requirement.SODIUM,
+            Requirement.SUGARS,
+            Requirement.THIAMIN,
+            Requirement.TRANS_FATTY_ACIDS,
+            Requirement.TRYPTOPHAN,
+            Requirement.VITAMIN_A_RETINOL_EQUIVALENTS,
+            Requirement.VITAMIN_B12,
+            Requirement.VITAMIN_B6,
+            Requirement.VITAMIN_C,
+            Requirement.VITAMIN_E,
+            Requirement.ZINC
+    };
+
+    private static final Requirement[] MEAL_REQUIREMENTS = {
+            Requirement.MEAL_ALCOHOL,
+            Requirement.MEAL_CAFFEINE,
+            Requirement.MEAL_CARBOHYDRATES,
+            Requirement.MEAL_ENERGY,
+            Requirement.MEAL_FAT,
+            Requirement.MEAL_PROTEIN
+    };
+
+    private final ScoreRules dietPlanRules;
+    private final ScoreRules mealRules;
+    private final ScoreRules lowerLimitRules;
+    private final ScoreRules upperLimitRules;
+    private final boolean vegetarian;
+    private final boolean vegan;
+    private final int days;
+    private final ScoreMode scoreMode;
+    private final ConcurrentHashMap<Integer, ScoreLayout> layouts = new ConcurrentHashMap<Integer, ScoreLayout>();
+
+    public static ScoringProgram scoringProgram(final Requirements requirements, final ScoreMode scoreMode) {
+        return new ScoringProgram(requirements, scoreMode);
+    }
+
+    private ScoringProgram(final Requirements requirements, final ScoreMode scoreMode) {
+        this.scoreMode = scoreMode;
+        dietPlanRules = new ScoreRules(DIET_PLAN_REQUIREMENTS.length, scoreMode);
+        for (final Requirement requirement : DIET_PLAN_REQUIREMENTS) {
+            final Optional<ScoreParams> maybeParams = requirements.getParams(requirement);
+            if (maybeParams.isPresent()) {
+                final Optional<FoodProperty> maybeFoodProperty = requirement.getFoodProperty();
+                final int index = maybeFoodProperty.isPresent() ? maybeFoodProperty.get().ordinal() : COSTS_INDEX;
+                dietPlanRules.add(requirement, index, maybeParams.get());
+            }
+        }
+
+        mealRules = new ScoreRules(MEAL_REQUIREMENTS.length, scoreMode);
+        for (final Requirement requirement : MEAL_REQUIREMENTS) {
+            final Optional<ScoreParams> maybeParams = requirements.getParams(requirement);
+            if (maybeParams.isPresent()) {
+                mealRules.add(requirement, requirement.getFoodProperty().get().ordinal(), maybeParams.get());
+            }
+        }
+
+        final ArrayList<Pair<FoodItem, Double>> lowerLimits = requirements.getLowerLimits();
+        lowerLimitRules = new ScoreRules(lowerLimits.size(), scoreMode);
+        for (final Pair<FoodItem, Double> lowerLimit : lowerLimits) {
+            lowerLimitRules.add(Requirement.FOOD_ITEM_LOWER_LIMIT, lowerLimit.a().ordinal(),
+                    ScoreParams.scoreParamsLT(lowerLimit.b(), LIMIT_TOLERANCE, LIMIT_WEIGHT));
+        }
+
+        final ArrayList<Pair<FoodItem, Double>> upperLimits = requirements.getUpperLimits();
+        upperLimitRules = new ScoreRules(upperLimits.size(), scoreMode);
+        for (final Pair<FoodItem, Double> upperLimit : upperLimits) {
+            upperLimitRules.add(Requirement.FOOD_ITEM_UPPER_LIMIT, upperLimit.a().ordinal(),
+                    ScoreParams.scoreParamsUT(upperLimit.b(), LIMIT_TOLERANCE, LIMIT_WEIGHT));
+        }
+
+        vegetarian = requirements.getVegetarian();
+        vegan = requirements.getVegan();
+        days = requirements.getDays();
+    }
+
+    public ScoreMode getScoreMode() {
+        return scoreMode;
+    }
+
+    public ScoreRules getDietPlanRules() {
+        return dietPlanRules;
+    }
+
+    public ScoreRules getMealRules() {
+        return mealRules;
+    }
+
+    public ScoreRules getLowerLimitRules() {
+        return lowerLimitRules;
+    }
+
+    public ScoreRules getUpperLimitRules() {
+        return upperLimitRules;
+    }
+
+    public double getRestrictionWeight() {
+        return RESTRICTION_WEIGHT;
+    }
+
+    public double getWasteWeight() {
+        return WASTE_WEIGHT;
+    }
+
+    public ScoreLayout getLayout(final int numberOfMeals) {
+        return layouts.computeIfAbsent(numberOfMeals, new Function<Integer, ScoreLayout>() {
+            @Override
+            public ScoreLayout apply(final Integer numberOfMeals) {
+                return new ScoreLayout(ScoringProgram.this, numberOfMeals);
+            }
+        });
+    }
+
+    /**
+     * @return scores of the diet plan, which are computed when they are needed
+     */
+    public Scores evaluate(final DietPlan dietPlan) {
+        return new Scores(getLayout(dietPlan.getNumberOfMeals()), dietPlan);
+    }
+
+    /**
+     * Derives the scores of a diet plan from the scores of its origin after one or more ingredients have been changed.
+     * Only the scores that depend on the changed ingredients need to be computed again.
+     *
+     * @param dietPlan      Changed diet plan
+     * @param originScores  Scores of the diet plan before the changes
+     * @param ingredientIds Meal indices and changed ingredients
+     */
+    public Scores evaluateWithChanges(final DietPlan dietPlan,
+                                      final Scores originScores,
+                                      final List<Pair<Integer, FoodItem>> ingredientIds) {
+        final Scores scores = new Scores(originScores, dietPlan);
+        for (final Pair<Integer, FoodItem> ingredientId : ingredientIds) {
+            invalidate(scores, ingredientId.a(), ingredientId.b());
+        }
+        return scores;
+    }
+
+    /**
+     * Derives the scores of a diet plan from the scores of its origin after amounts of ingredients have been moved
+     * between meals. The totals of the diet plan are the same, so only the scores of the changed meals need to be
+     * computed again.
+     *
+     * @param dietPlan      Changed diet plan
+     * @param originScores  Scores of the diet plan before the transfer
+     * @param ingredientIds Meal indices and transferred ingredients
+     */
+    public Scores evaluateWithTransfer(final DietPlan dietPlan,
+                                       final Scores originScores,
+                                       final List<Pair<Integer, FoodItem>> ingredientIds) {
+        final Scores scores = new Scores(originScores, dietPlan);
+        final ScoreLayout layout = scores.getLayout();
+        for (final Pair<Integer, FoodItem> ingredientId : ingredientIds) {
+            final FoodProperties ingredientProperties = ingredientId.b().getProperties();
+            for (int rule = 0; rule < mealRules.size(); ++rule) {
+                if (ingredientProperties.getAmount(mealRules.getIndex(rule)) != 0.0) {
+                    scores.invalidate(layout.getMealSlot(ingredientId.a(), rule));
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Invalidates the scores that depend on an ingredient of a meal.
+     */
+    private void invalidate(final Scores scores, final int mealIndex, final FoodItem ingredient) {
+        final ScoreLayout layout = scores.getLayout();
+        final FoodProperties ingredientProperties = ingredient.getProperties();
+
+        // Criteria for complete diet plan
+        final int numberOfDietPlanRules = dietPlanRules.size();
+        for (int rule = 0; rule < numberOfDietPlanRules; ++rule) {
+            if (dependsOn(dietPlanRules.getIndex(rule), ingredient, ingredientProperties)) {
+                scores.invalidate(layout.getDietPlanSlot(rule));
+            }
+        }
+
+        // Restrictions
+        scores.invalidate(layout.getVegetarianSlot());
+        scores.invalidate(layout.getVeganSlot());
+
+        // Criteria for the changed meal
+        final int numberOfMealRules = mealRules.size();
+        for (int rule = 0; rule < numberOfMealRules; ++rule) {
+            if (ingredientProperties.getAmount(mealRules.getIndex(rule)) != 0.0) {
+                scores.invalidate(layout.getMealSlot(mealIndex, rule));
+            }
+        }
+
+        // Food item constraints
+        final int index = ingredient.ordinal();
+        final int numberOfLowerLimitRules = lowerLimitRules.size();
+        for (int rule = 0; rule < numberOfLowerLimitRules; ++rule) {
+            if (lowerLimitRules.getIndex(rule) == index) {
+                scores.invalidate(layout.getLowerLimitSlot(rule));
+            }
+        }
+        final int numberOfUpperLimitRules = upperLimitRules.size();
+        for (int rule = 0; rule < numberOfUpperLimitRules; ++rule) {
+            if (upperLimitRules.getIndex(rule) == index) {
+                scores.invalidate(layout.getUpperLimitSlot(rule));
+            }
+        }
+        scores.invalidate(layout.getWasteSlot());
+    }
+
+    /**
+     * @return score of the diet plan in the slot of the layout
+     */
+    double computeScore(final DietPlan dietPlan, final ScoreLayout layout, final int slot) {
+        final int rule = layout.getRule(slot);
+        switch (layout.getSlotType(slot)) {
+            case DIET_PLAN:
+                final int index = dietPlanRules.getIndex(rule);
+                return dietPlanRules.getScore(rule, getValue(index, dietPlan.getProperties(), dietPlan.getCosts()));
+            case VEGETARIAN:
+                return getRestrictionScore(vegetarian, dietPlan.getProperties(), FoodProperty.VEGETARIAN);
+            case VEGAN:
+                return getRestrictionScore(vegan, dietPlan.getProperties(), FoodProperty.VEGAN);
+            case MEAL:
+                final Meal meal = dietPlan.getMeal(layout.getRequirementIndex(slot));
+                return mealRules.getScore(rule, meal.getProperties().getAmount(mealRules.getIndex(rule)));
+            case LOWER_LIMIT:
+                final FoodItems lowerLimitFoodItems = dietPlan.getFoodItems();
+                return lowerLimitRules.getScore(rule, lowerLimitFoodItems.getAmount(lowerLimitRules.getIndex(rule)));
+            case UPPER_LIMIT:
+                final FoodItems upperLimitFoodItems = dietPlan.getFoodItems();
+                return upperLimitRules.getScore(rule, upperLimitFoodItems.getAmount(upperLimitRules.getIndex(rule)));
+            case WASTE:
+                return getWasteScore(dietPlan.getFoodItems());
+            default:
+                throw new IllegalArgumentException("Unknown slot type: " + layout.getSlotType(slot));
+        }
+    }
+
+    /**
+     * Computes the changes of the values that are scored in the slots of the layout when a portion of the ingredient
+     * is added to the meal. Only the rules that can depend on the ingredient are visited.
+     *
+     * @param contributions Array that receives the change for each slot; 0.0 if the value doesn't depend on the
+     *                      ingredient
+     */
+    void getPortionContributions(final ScoreLayout layout,
+                                 final int mealIndex,
+                                 final FoodItem ingredient,
+                                 final double[] contributions) {
+        Arrays.fill(contributions, 0.0);
+        final double portion = ingredient.portionsToAmount(1);
+        final FoodProperties ingredientProperties = ingredient.getProperties();
+
+        // Criteria for complete diet plan
+        for (int rule = 0; rule < dietPlanRules.size(); ++rule) {
+            final int index = dietPlanRules.getIndex(rule);
+            contributions[layout.getDietPlanSlot(rule)] =
+                    (index == COSTS_INDEX ? ingredient.getPrice() : ingredientProperties.getAmount(index)) * portion;
+        }
+
+        // Restrictions
+        if (vegetarian) {
+            contributions[layout.getVegetarianSlot()] = ingredientProperties.get(FoodProperty.VEGETARIAN) * portion;
+        }
+        if (vegan) {
+            contributions[layout.getVeganSlot()] = ingredientProperties.get(FoodProperty.VEGAN) * portion;
+        }
+
+        // Criteria for the meal of the ingredient
+        for (int rule = 0; rule < mealRules.size(); ++rule) {
+            contributions[layout.getMealSlot(mealIndex, rule)] =
+                    ingredientProperties.getAmount(mealRules.getIndex(rule)) * portion;
+        }
+
+        // Food item constraints
+        final int index = ingredient.ordinal();
+        for (int rule = 0; rule < lowerLimitRules.size(); ++rule) {
+            if (lowerLimitRules.getIndex(rule) == index) {
+                contributions[layout.getLowerLimitSlot(rule)] = portion;
+            }
+        }
+        for (int rule = 0; rule < upperLimitRules.size(); ++rule) {
+            if (upperLimitRules.getIndex(rule) == index) {
+                contributions[layout.getUpperLimitSlot(rule)] = portion;
+            }
+        }
+        contributions[layout.getWasteSlot()] = portion;
+    }
+
+    /**
+     * @return 1 if the score improves when the value in the slot grows, -1 if it improves when the value shrinks, 0 if
+     * the value is optimal or the direction is unknown
+     */
+    int getDirection(final DietPlan dietPlan, final ScoreLayout layout, final int slot) {
+        final int rule = layout.getRule(slot);
+        switch (layout.getSlotType(slot)) {
+            case DIET_PLAN:
+                final double value =
+                        getValue(dietPlanRules.getIndex(rule), dietPlan.getProperties(), dietPlan.getCosts());
+                return getDirection(dietPlanRules, rule, value);
+            case VEGETARIAN:
+            case VEGAN:
+                return -1;
+            case MEAL:
+                final Meal meal = dietPlan.getMeal(layout.getRequirementIndex(slot));
+                return getDirection(mealRules, rule, meal.getProperties().getAmount(mealRules.getIndex(rule)));
+            case LOWER_LIMIT:
+                return getDirection(lowerLimitRules, rule,
+                        dietPlan.getFoodItems().getAmount(lowerLimitRules.getIndex(rule)));
+            case UPPER_LIMIT:
+                return getDirection(upperLimitRules, rule,
+                        dietPlan.getFoodItems().getAmount(upperLimitRules.getIndex(rule)));
+            case WASTE:
+                return 0;
+            default:
+                throw new IllegalArgumentException("Unknown slot type: " + layout.getSlotType(slot));
+        }
+    }
+
+    /**
+     * @param minValue Lower end of the interval of the value in the slot, as in getPortionContributions
+     * @param maxValue Upper end of the interval of the value in the slot
+     * @return upper bound of the score in the slot for all values in the interval
+     */
+    double getScoreUpperBound(final ScoreLayout layout, final int slot, final double minValue, final double maxValue) {
+        final int rule = layout.getRule(slot);
+        switch (layout.getSlotType(slot)) {
+            case DIET_PLAN:
+                return dietPlanRules.getScoreUpperBound(rule, minValue, maxValue);
+            case VEGETARIAN:
+            case VEGAN:
+                // The value is only counted if the restriction applies.
+                return minValue < EPSILON ? 1.0 : 0.0;
+            case MEAL:
+                return mealRules.getScoreUpperBound(rule, minValue, maxValue);
+            case LOWER_LIMIT:
+                return lowerLimitRules.getScoreUpperBound(rule, minValue, maxValue);
+            case UPPER_LIMIT:
+                return upperLimitRules.getScoreUpperBound(rule, minValue, maxValue);
+            case WASTE:
+                return 1.0;
+            default:
+                throw new IllegalArgumentException("Unknown slot type: " + layout.getSlotType(slot));
+        }
+    }
+
+    private static int getDirection(final ScoreRules scoreRules, final int rule, final double value) {
+        if (value < scoreRules.getLowerOptimal(rule)) {
+            return 1;
+        } else if (value > scoreRules.getUpperOptimal(rule)) {
+            return -1;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Computes all scores of the diet plan at once. The standard rules are scored in batches.
+     *
+     * @param scores Array that receives the score of each slot of the layout
+     */
+    void computeScores(final DietPlan dietPlan, final ScoreLayout layout, final double[] scores) {
+        final FoodProperties properties = dietPlan.getProperties();
+        final double costs = dietPlan.getCosts();
+        final FoodItems foodItems = dietPlan.getFoodItems();
+        final double[] values = new double[Math.max(Math.max(dietPlanRules.size(), mealRules.size()),
+                Math.max(lowerLimitRules.size(), upperLimitRules.size()))];
+
+        // Criteria for complete diet plan
+        for (int rule = 0; rule < dietPlanRules.size(); ++rule) {
+            values[rule] = getValue(dietPlanRules.getIndex(rule), properties, costs);
+        }
+        dietPlanRules.getScores(values, scores, layout.getDietPlanSlot(0));
+
+        // Restrictions
+        scores[layout.getVegetarianSlot()] = getRestrictionScore(vegetarian, properties, FoodProperty.VEGETARIAN);
+        scores[layout.getVeganSlot()] = getRestrictionScore(vegan, properties, FoodProperty.VEGAN);
+
+        // Criteria for individual meals
+        for (int i = 0; i < layout.getNumberOfMeals(); ++i) {
+            final FoodProperties mealProperties = dietPlan.getMeal(i).getProperties();
+            for (int rule = 0; rule < mealRules.size(); ++rule) {
+                values[rule] = mealProperties.getAmount(mealRules.getIndex(rule));
+            }
+            mealRules.getScores(values, scores, layout.getMealSlot(i, 0));
+        }
+
+        // Food item constraints
+        for (int rule = 0; rule < lowerLimitRules.size(); ++rule) {
+            values[rule] = foodItems.getAmount(lowerLimitRules.getIndex(rule));
+        }
+        lowerLimitRules.getScores(values, scores, layout.getLowerLimitSlot(0));
+        for (int rule = 0; rule < upperLimitRules.size(); ++rule) {
+            values[rule] = foodItems.getAmount(upperLimitRules.getIndex(rule));
+        }
+        upperLimitRules.getScores(values, scores, layout.getUpperLimitSlot(0));
+        scores[layout.getWasteSlot()] = getWasteScore(foodItems);
+    }
+
+    private static double getValue(final int index, final FoodProperties properties, final double costs) {
+        return index == COSTS_INDEX ? costs : properties.getAmount(index);
+    }
+
+    /**
+     * @return false if the value at the index doesn't change when the amount of the ingredient changes
+     */
+    private static boolean dependsOn(final int index,
+                                     final FoodItem ingredient,
+                                     final FoodProperties ingredientProperties) {
+        return index == COSTS_INDEX ? ingredient.getPrice() != 0.0 : ingredientProperties.getAmount(index) != 0.0;
+    }
+
+    private static double getRestrictionScore(final boolean restricted,
+                                              final FoodProperties properties,
+                                              final FoodProperty foodProperty) {
+        final boolean meetsRequirement = !restricted || properties.get(foodProperty) < EPSILON;
+        return meetsRequirement ? 1.0 : 0.0;
+    }
+
+    private double getWasteScore(final FoodItems foodItems) {
+        double waste = 0.0;
+        for (int index = foodItems.firstIndex(); index >= 0; index = foodItems.nextIndex(index)) {
+            final int timeLimit = Math.max(foodItems.getItem(index).getShelfLife(), days);
+            final double usedUpTime = days / foodItems.getAmount(index);
+            final double wasted = 1.0 - timeLimit / usedUpTime;
+            if (wasted > 0.0) {
+                waste += wasted; // TODO: Consider costs?
+            }
+        }
+        return Math.pow(0.99, waste); // TODO: Better equation (find good base)
+    }
+}
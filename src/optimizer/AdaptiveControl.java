@@ -0,0 +1,177 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import java.util.HashSet;
+
+/**
+ * Retunes the number of actions and the elimination rate of an island during the run from statistics of the last
+ * iterations, so that the island improves as many candidates per second as possible.
+ * <p>
+ * Actions: the probability that a single action improves a candidate is estimated from the share of improved
+ * candidates. More actions make an improvement more likely, but each action costs an evaluation, and each candidate
+ * costs a fixed overhead, which is estimated by regressing the measured time per candidate on the number of actions.
+ * The control chooses the number of actions with the most expected improvements per second. Improvements are counted
+ * rather than weighted by the score they gain: the model has no relation between the number of actions and the gain
+ * of an improvement, so a mean gain per improvement would scale the expected gain of every number of actions alike
+ * and choose the same number.
+ * <p>
+ * Eliminations: candidates whose peak total scores haven't increased for much longer than the average time between
+ * improvements of a candidate only cost time, so a share of them is eliminated after each window of iterations. As
+ * the population converges, improvements become rare and eliminations slow down. Candidates with the same total
+ * score as another candidate are redundant, so the share grows as the diversity of the population shrinks. The
+ * population never shrinks below a minimum size and doesn't grow: new candidates would be the first ones chosen by the
+ * selection policy.
+ */
+class AdaptiveControl extends PopulationControl {
+    private static final int WINDOW = 10; // Iterations between adjustments
+    private static final int MAX_ACTIONS_FACTOR = 4; // Maximum number of actions relative to the settings
+    private static final double DEFAULT_OVERHEAD = 1.0; // Overhead per candidate in evaluations until it is measured
+    private static final double DECAY = 0.8; // Weight of the previous windows in the regression
+    private static final int MIN_STAGNATION = 3 * WINDOW; // Minimum number of iterations without improvement
+    private static final double STAGNATION_FACTOR = 5.0; // Stagnation relative to the average time between improvements
+    private static final double ELIMINATION_SHARE = 0.25; // Share of the stagnant candidates eliminated per window
+    private static final double MIN_POPULATION_SHARE = 0.1; // Minimum size relative to the initial population
+
+    private final int maxActions;
+    private final int minSize;
+    private int numberOfActions;
+    private int eliminations = 0;
+
+    // Statistics of the current window
+    private int candidateIterations = 0;
+    private int improvedCandidates = 0;
+    private long numberOfEvaluations = 0;
+    private long nanos = 0;
+
+    // Weighted sums for the regression of the time per candidate on the number of actions
+    private double weightSum = 0.0;
+    private double actionsSum = 0.0;
+    private double timeSum = 0.0;
+    private double actionsSquareSum = 0.0;
+    private double actionsTimeSum = 0.0;
+
+    AdaptiveControl(final OptimizerSettings settings, final int initialSize) {
+        numberOfActions = settings.getNumberOfActions();
+        maxActions = MAX_ACTIONS_FACTOR * settings.getNumberOfActions();
+        minSize = Math.max(1, (int) Math.ceil(MIN_POPULATION_SHARE * initialSize));
+    }
+
+    @Override
+    int getNumberOfActions() {
+        return numberOfActions;
+    }
+
+    @Override
+    void update(final Population population,
+                final int iteration,
+                final int improvedCandidates,
+                final int numberOfEvaluations,
+                final long nanos) {
+        candidateIterations += population.size();
+        this.improvedCandidates += improvedCandidates;
+        this.numberOfEvaluations += numberOfEvaluations;
+        this.nanos += nanos;
+        if (iteration % WINDOW == 0) {
+            final double improvementRate = (double) this.improvedCandidates / candidateIterations;
+            adjustNumberOfActions(improvementRate);
+            eliminations = improvementRate > 0.0 ? computeEliminations(population, iteration, improvementRate) : 0;
+            candidateIterations = 0;
+            this.improvedCandidates = 0;
+            this.numberOfEvaluations = 0;
+            this.nanos = 0;
+        }
+    }
+
+    @Override
+    int getNumberOfEliminations(final Population population, final int iteration) {
+        final int count = eliminations;
+        eliminations = 0;
+        return count;
+    }
+
+    /**
+     * @param improvementRate Share of the candidates that have improved per iteration
+     */
+    private void adjustNumberOfActions(final double improvementRate) {
+        final double actions = (double) numberOfEvaluations / candidateIterations;
+        final double time = (double) nanos / candidateIterations;
+        weightSum = DECAY * weightSum + 1.0;
+        actionsSum = DECAY * actionsSum + actions;
+        timeSum = DECAY * timeSum + time;
+        actionsSquareSum = DECAY * actionsSquareSum + actions * actions;
+        actionsTimeSum = DECAY * actionsTimeSum + actions * time;
+
+        final int minActions = Math.max(1, numberOfActions / 2);
+        final int maxActions = Math.min(this.maxActions, 2 * numberOfActions);
+        if (improvementRate <= 0.0) {
+            numberOfActions = maxActions;
+            return;
+        }
+
+        // Probability that a single action improves a candidate
+        final double actionRate = 1.0 - Math.pow(1.0 - improvementRate, 1.0 / numberOfActions);
+        final double overhead = getOverhead();
+        int bestActions = numberOfActions;
+        double bestRate = 0.0;
+        for (int newActions = minActions; newActions <= maxActions; ++newActions) {
+            final double rate = (1.0 - Math.pow(1.0 - actionRate, newActions)) / (newActions + overhead);
+            if (rate > bestRate) {
+                bestActions = newActions;
+                bestRate = rate;
+            }
+        }
+        numberOfActions = bestActions;
+    }
+
+    /**
+     * @return time per candidate that doesn't depend on the number of actions, in evaluations
+     */
+    private double getOverhead() {
+        final double meanActions = actionsSum / weightSum;
+        final double meanTime = timeSum / weightSum;
+        final double variance = actionsSquareSum / weightSum - meanActions * meanActions;
+        if (variance < 0.25) {
+            return DEFAULT_OVERHEAD; // The number of actions hasn't changed enough
+        }
+        final double timePerAction = (actionsTimeSum / weightSum - meanActions * meanTime) / variance;
+        if (!(timePerAction > 0.0)) {
+            return DEFAULT_OVERHEAD;
+        }
+        return Math.min(Math.max(0.0, meanTime / timePerAction - meanActions), 10.0 * maxActions);
+    }
+
+    private int computeEliminations(final Population population, final int iteration, final double improvementRate) {
+        final double stagnation = Math.max(MIN_STAGNATION, STAGNATION_FACTOR / improvementRate);
+        final int size = population.size();
+        final HashSet<Double> totalScores = new HashSet<Double>();
+        int stagnantCandidates = 0;
+        for (int i = 0; i < size; ++i) {
+            totalScores.add(population.get(i).getTotalScore());
+            if (iteration - population.getLastImprovement(i) >= stagnation) {
+                ++stagnantCandidates;
+            }
+        }
+        final double redundancy = 1.0 - (double) totalScores.size() / size;
+        final int count = (int) Math.round(stagnantCandidates * ELIMINATION_SHARE * (1.0 + redundancy));
+        return Math.max(0, Math.min(count, size - minSize));
+    }
+}
@@ -0,0 +1,73 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import static optimizer.OptimizationEngine.optimizationEngine;
+import static optimizer.OptimizerSettings.defaultSettings;
+
+/**
+ * Runs the optimization with the default settings without a user interface.
+ * <p/>
+ * The strategy is "hill-climbing" (default), "annealing" or "distance-sampling". With the same number of iterations,
+ * all strategies evaluate the same number of new diet plans per candidate, so the scores per second of the runs can be
+ * compared.
+ * <p/>
+ * Usage: BatchOptimizer iterations [seed [parallelism [islands [strategy]]]]
+ */
+public abstract class BatchOptimizer {
+    public static void main(final String[] args) {
+        if (args.length < 1 || args.length > 5) {
+            System.err.println("Usage: BatchOptimizer iterations [seed [parallelism [islands [strategy]]]]");
+            System.exit(1);
+        }
+
+        OptimizerSettings settings = defaultSettings().withMaxIterations(Integer.parseInt(args[0]));
+        if (args.length > 1) {
+            settings = settings.withSeed(Long.parseLong(args[1]));
+        }
+        if (args.length > 2) {
+            settings = settings.withParallelism(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            settings = settings.withNumberOfIslands(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            settings = settings.withSearchStrategy(getSearchStrategy(args[4]));
+        }
+        System.out.println("Seed: " + settings.getSeed());
+
+        final OptimizationEngine engine = optimizationEngine(settings);
+        engine.addListener(new ConsoleReporter());
+        engine.run();
+    }
+
+    private static SearchStrategy getSearchStrategy(final String name) {
+        if (name.equals("hill-climbing")) {
+            return SearchStrategy.hillClimbing();
+        } else if (name.equals("annealing")) {
+            return SearchStrategy.simulatedAnnealing(CoolingSchedules.standard());
+        } else if (name.equals("distance-sampling")) {
+            return SearchStrategy.distanceSampling();
+        } else {
+            throw new IllegalArgumentException("Unknown search strategy: " + name);
+        }
+    }
+}
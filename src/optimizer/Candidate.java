@@ -0,0 +1,174 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.DietPlanTemplate;
+import diet.PortionVector;
+import diet.Scores;
+import util.Evaluation;
+import util.RandomSource;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import static diet.PortionVector.portionVector;
+import static util.Evaluation.evaluation;
+
+/**
+ * Evaluated diet plan with the greatest total score it had so far and its own source of random numbers.
+ * <p>
+ * A compact candidate keeps only the portions of its diet plan, its total score and its hash, which takes a few
+ * hundred bytes instead of the meals, totals and scores of the diet plan. Its evaluation is decoded and computed from
+ * scratch whenever it is requested, so search strategies should request it once per improvement.
+ */
+abstract class Candidate {
+    private final double peakTotalScore;
+    private final RandomSource random;
+
+    static Candidate candidate(final Evaluation<DietPlan> evaluation,
+                               final double peakTotalScore,
+                               final RandomSource random) {
+        return new FullCandidate(evaluation, peakTotalScore, random);
+    }
+
+    private Candidate(final double peakTotalScore, final RandomSource random) {
+        this.peakTotalScore = peakTotalScore;
+        this.random = random;
+    }
+
+    abstract Evaluation<DietPlan> getEvaluation();
+
+    /**
+     * @return current total score, which doesn't need the evaluation of a compact candidate
+     */
+    abstract double getTotalScore();
+
+    /**
+     * @return hash of the diet plan, which doesn't need the diet plan of a compact candidate
+     */
+    abstract long getHash();
+
+    /**
+     * @return template of the diet plan, which doesn't need the diet plan of a compact candidate
+     */
+    abstract Optional<DietPlanTemplate> getTemplate();
+
+    /**
+     * @return compact version of this candidate or this candidate if it is compact already or its diet plan can't be
+     * encoded
+     */
+    abstract Candidate getCompact(Function<DietPlan, Scores> evaluationFunction);
+
+    double getPeakTotalScore() {
+        return peakTotalScore;
+    }
+
+    RandomSource getRandom() {
+        return random;
+    }
+
+    private static class FullCandidate extends Candidate {
+        private final Evaluation<DietPlan> evaluation;
+
+        private FullCandidate(final Evaluation<DietPlan> evaluation,
+                              final double peakTotalScore,
+                              final RandomSource random) {
+            super(peakTotalScore, random);
+            this.evaluation = evaluation;
+        }
+
+        @Override
+        Evaluation<DietPlan> getEvaluation() {
+            return evaluation;
+        }
+
+        @Override
+        double getTotalScore() {
+            return evaluation.getTotalScore();
+        }
+
+        @Override
+        long getHash() {
+            return evaluation.getObject().getHash();
+        }
+
+        @Override
+        Optional<DietPlanTemplate> getTemplate() {
+            return evaluation.getObject().getTemplate();
+        }
+
+        @Override
+        Candidate getCompact(final Function<DietPlan, Scores> evaluationFunction) {
+            final Optional<PortionVector> maybePortions = portionVector(evaluation.getObject());
+            if (!maybePortions.isPresent()) {
+                return this;
+            }
+            return new CompactCandidate(maybePortions.get(), evaluation.getTotalScore(),
+                    evaluation.getObject().getHash(), evaluationFunction, getPeakTotalScore(), getRandom());
+        }
+    }
+
+    private static class CompactCandidate extends Candidate {
+        private final PortionVector portions;
+        private final double totalScore;
+        private final long hash;
+        private final Function<DietPlan, Scores> evaluationFunction;
+
+        private CompactCandidate(final PortionVector portions,
+                                 final double totalScore,
+                                 final long hash,
+                                 final Function<DietPlan, Scores> evaluationFunction,
+                                 final double peakTotalScore,
+                                 final RandomSource random) {
+            super(peakTotalScore, random);
+            this.portions = portions;
+            this.totalScore = totalScore;
+            this.hash = hash;
+            this.evaluationFunction = evaluationFunction;
+        }
+
+        @Override
+        Evaluation<DietPlan> getEvaluation() {
+            return evaluation(portions.getDietPlan(), evaluationFunction);
+        }
+
+        @Override
+        double getTotalScore() {
+            return totalScore;
+        }
+
+        @Override
+        long getHash() {
+            return hash;
+        }
+
+        @Override
+        Optional<DietPlanTemplate> getTemplate() {
+            return Optional.of(portions.getTemplate());
+        }
+
+        @Override
+        Candidate getCompact(final Function<DietPlan, Scores> evaluationFunction) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.DietPlanTemplate;
+import diet.DietPlanTemplates;
+import diet.Scores;
+import util.Evaluation;
+import util.RandomSource;
+
+import java.util.Optional;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import static diet.DietPlanTemplate.dietPlanTemplate;
+import static optimizer.Candidate.candidate;
+import static util.Evaluation.evaluation;
+
+/**
+ * Creates and evaluates a range of start candidates. Solving the linear relaxations of the templates is the most
+ * expensive part of the start, so ranges are split in halves like in CandidateImprovement. The random numbers of each
+ * candidate are split off in advance, so the candidates don't depend on the order in which they are created.
+ */
+class CandidateCreation extends RecursiveAction {
+    private static final long serialVersionUID = 1L; // Tasks are never serialized
+    private static final int CHUNK_SIZE = 8;
+
+    private final OptimizerSettings settings;
+    private final DietPlanTemplates templates;
+    private final RandomSource[] randoms;
+    private final Candidate[] newCandidates;
+    private final int start;
+    private final int end;
+    private final Function<DietPlan, Scores> evaluationFunction;
+
+    CandidateCreation(final OptimizerSettings settings,
+                      final DietPlanTemplates templates,
+                      final RandomSource[] randoms,
+                      final Candidate[] newCandidates,
+                      final int start,
+                      final int end,
+                      final Function<DietPlan, Scores> evaluationFunction) {
+        this.settings = settings;
+        this.templates = templates;
+        this.randoms = randoms;
+        this.newCandidates = newCandidates;
+        this.start = start;
+        this.end = end;
+        this.evaluationFunction = evaluationFunction;
+    }
+
+    @Override
+    protected void compute() {
+        if (end - start <= CHUNK_SIZE) {
+            for (int i = start; i < end; ++i) {
+                final DietPlan dietPlan = createStartDietPlan(randoms[i]);
+                final Evaluation<DietPlan> evaluation = evaluation(dietPlan, evaluationFunction);
+                final double totalScore = evaluation.getTotalScore();
+                final Candidate newCandidate = candidate(evaluation, totalScore, randoms[i]);
+                newCandidates[i] = settings.getCompactCandidates() ?
+                        newCandidate.getCompact(evaluationFunction) : newCandidate;
+            }
+        } else {
+            final int middle = (start + end) >>> 1;
+            invokeAll(new CandidateCreation(settings, templates, randoms, newCandidates, start, middle,
+                            evaluationFunction),
+                    new CandidateCreation(settings, templates, randoms, newCandidates, middle, end,
+                            evaluationFunction));
+        }
+    }
+
+    private DietPlan createStartDietPlan(final RandomSource random) {
+        final int numberOfMeals = settings.getRequirements().getNumberOfMeals();
+        final DietPlanTemplate dietPlanTemplate = dietPlanTemplate(templates, numberOfMeals, random);
+        if (settings.getWarmStart()) {
+            final Optional<DietPlan> maybeRelaxedDietPlan =
+                    dietPlanTemplate.getRelaxedDietPlan(settings.getRequirements().getScoringProgram());
+            if (maybeRelaxedDietPlan.isPresent()) {
+                return maybeRelaxedDietPlan.get();
+            }
+        }
+        return dietPlanTemplate.getMinimalDietPlan();
+    }
+}
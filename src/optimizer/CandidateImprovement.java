@@ -0,0 +1,81 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.Scores;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Improves a range of candidates. Ranges are split in halves until they are small enough, so that idle workers can
+ * steal the other halves. Each improved candidate is stored at the position of the old candidate, in compact form if
+ * requested, so that the full diet plans of a range are released as soon as the range is done.
+ */
+class CandidateImprovement extends RecursiveAction {
+    private static final long serialVersionUID = 1L; // Tasks are never serialized
+    private static final int CHUNK_SIZE = 8;
+
+    private final Generation generation;
+    private final Candidate[] newCandidates;
+    private final int start;
+    private final int end;
+    private final SearchStrategy searchStrategy;
+    private final Function<DietPlan, Scores> evaluationFunction;
+    private final int numberOfActions;
+    private final boolean compactCandidates;
+
+    CandidateImprovement(final Generation generation,
+                         final Candidate[] newCandidates,
+                         final int start,
+                         final int end,
+                         final SearchStrategy searchStrategy,
+                         final Function<DietPlan, Scores> evaluationFunction,
+                         final int numberOfActions,
+                         final boolean compactCandidates) {
+        this.generation = generation;
+        this.newCandidates = newCandidates;
+        this.start = start;
+        this.end = end;
+        this.searchStrategy = searchStrategy;
+        this.evaluationFunction = evaluationFunction;
+        this.numberOfActions = numberOfActions;
+        this.compactCandidates = compactCandidates;
+    }
+
+    @Override
+    protected void compute() {
+        if (end - start <= CHUNK_SIZE) {
+            for (int i = start; i < end; ++i) {
+                final Candidate newCandidate =
+                        searchStrategy.improve(generation, i, evaluationFunction, numberOfActions);
+                newCandidates[i] = compactCandidates ? newCandidate.getCompact(evaluationFunction) : newCandidate;
+            }
+        } else {
+            final int middle = (start + end) >>> 1;
+            invokeAll(new CandidateImprovement(generation, newCandidates, start, middle,
+                            searchStrategy, evaluationFunction, numberOfActions, compactCandidates),
+                    new CandidateImprovement(generation, newCandidates, middle, end,
+                            searchStrategy, evaluationFunction, numberOfActions, compactCandidates));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.Requirement;
+import diet.Scores;
+import util.Evaluation;
+import util.Pair;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Prints the progress and the result of an optimization run to the standard output.
+ */
+public class ConsoleReporter implements OptimizationListener {
+    @Override
+    public void bestDietPlanFound(final Evaluation<DietPlan> best, final OptimizationSnapshot snapshot) {
+        final Scores scores = best.getScores();
+        final double totalScore = scores.getTotalScore();
+        final double weightSum = scores.getWeightSum();
+        System.out.println("Total score of best diet plan: " + totalScore + " / " + weightSum +
+                " (" + (100.0 * totalScore / weightSum) + "%); Time elapsed: " + snapshot.getSeconds() + " sec");
+    }
+
+    @Override
+    public void candidateEliminated(final OptimizationSnapshot snapshot) {
+        System.out.println("Candidates left: " + snapshot.getNumberOfCandidates());
+    }
+
+    @Override
+    public void optimizationFinished(final OptimizationSnapshot snapshot) {
+        System.out.println();
+        System.out.println("Optimisation finished. Time elapsed: " + snapshot.getSeconds() + " sec");
+        System.out.println();
+
+        snapshot.getBest().ifPresent(new Consumer<Evaluation<DietPlan>>() {
+            @Override
+            public void accept(final Evaluation<DietPlan> evaluation) {
+                printEvaluation(evaluation);
+            }
+        });
+    }
+
+    public static void printEvaluation(final Evaluation<DietPlan> evaluation) {
+        final DietPlan dietPlan = evaluation.getObject();
+        final Scores scores = evaluation.getScores();
+        final List<Pair<Pair<Requirement, Integer>, Double>> relScores = scores.getRelativeScores();
+
+        System.out.println('\n');
+        System.out.println(dietPlan);
+
+        System.out.println("Scores:");
+        System.out.println("=======");
+        relScores.forEach(new Consumer<Pair<Pair<Requirement, Integer>, Double>>() {
+            @Override
+            public void accept(final Pair<Pair<Requirement, Integer>, Double> scoreInfo) {
+                final StringBuilder scoreSb = new StringBuilder();
+                final Pair<Requirement, Integer> scoreId = scoreInfo.a();
+                scoreSb.append(scoreId.a().getName());
+                scoreSb.append(" (");
+                scoreSb.append(scoreId.b() + 1);
+                scoreSb.append("): ");
+                scoreSb.append(scoreInfo.b());
+                System.out.println(scoreSb);
+            }
+        });
+        System.out.println();
+
+        final String totalScoreStr = "Total weighted score: " + scores.getTotalScore() + " of " + scores.getWeightSum();
+        final StringBuilder totalScoreSb = new StringBuilder(totalScoreStr);
+        totalScoreSb.append('\n');
+        for (int i = 0; i < totalScoreStr.length(); ++i) {
+            totalScoreSb.append('=');
+        }
+        System.out.println(totalScoreSb);
+        System.out.println();
+    }
+}
@@ -18,10 +18,15 @@
  You should have received a copy of the GNU General Public License
  along with this program. If not, see <http://www.gnu.org/licenses/>.
  **********************************************************************/
-package util;
+package optimizer;
 
-import java.util.Random;
-
-public abstract class Global {
-    public static final Random RANDOM = new Random();
+/**
+ * Temperature of simulated annealing depending on the iteration.
+ */
+public interface CoolingSchedule {
+    /**
+     * @param iteration Number of completed iterations (starting with 0)
+     * @return temperature, greater than or equal to 0.0
+     */
+    double getTemperature(int iteration);
 }
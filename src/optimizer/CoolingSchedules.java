@@ -0,0 +1,70 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import static java.lang.Math.max;
+import static java.lang.Math.pow;
+
+/**
+ * Common cooling schedules. Temperatures are differences of total scores: at temperature t, a change that lowers the
+ * total score by t is accepted with a probability of 1/e.
+ */
+public abstract class CoolingSchedules {
+    /**
+     * Temperature decreases by a constant factor in each iteration.
+     */
+    public static CoolingSchedule exponential(final double initialTemperature,
+                                              final double factor,
+                                              final double minTemperature) {
+        if (initialTemperature < 0.0 || factor <= 0.0 || factor > 1.0 || minTemperature < 0.0) {
+            throw new IllegalArgumentException("Invalid exponential cooling schedule");
+        }
+        return new CoolingSchedule() {
+            @Override
+            public double getTemperature(final int iteration) {
+                return max(initialTemperature * pow(factor, iteration), minTemperature);
+            }
+        };
+    }
+
+    /**
+     * Temperature decreases linearly and reaches 0.0 after the number of iterations.
+     */
+    public static CoolingSchedule linear(final double initialTemperature, final int iterations) {
+        if (initialTemperature < 0.0 || iterations < 1) {
+            throw new IllegalArgumentException("Invalid linear cooling schedule");
+        }
+        return new CoolingSchedule() {
+            @Override
+            public double getTemperature(final int iteration) {
+                return max(initialTemperature * (1.0 - (double) iteration / iterations), 0.0);
+            }
+        };
+    }
+
+    /**
+     * @return default schedule for diet plans, starting with a temperature in the range of small changes of the
+     * total score
+     */
+    public static CoolingSchedule standard() {
+        return exponential(0.02, 0.99, 1e-4);
+    }
+}
@@ -0,0 +1,110 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.FoodItem;
+import diet.Scores;
+import util.AliasTable;
+import util.Evaluation;
+import util.Pair;
+import util.RandomSource;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.lang.Math.max;
+import static optimizer.Candidate.candidate;
+import static util.AliasTable.aliasTable;
+import static util.Evaluation.evaluation;
+import static util.Pair.pair;
+
+/**
+ * Creates children at random distances from their parents: a child differs from its parent by a number of portion
+ * changes, which are applied in one step. Each action creates a child; the best child replaces the candidate if its
+ * total score is greater.
+ * <p/>
+ * The parent is either the candidate itself or, at a given rate, another candidate selected in proportion to its total
+ * score. Every candidate has its own meal templates, so children of other candidates could take over the population and
+ * the search would get stuck with the templates that are best early on. Two rules prevent that: a child of another
+ * candidate must be better than its parent, not only than the candidate, so copying a better template is not enough;
+ * and candidates share their selection weights with the other candidates of the same template.
+ */
+class DistanceSampling extends SearchStrategy {
+    private final AliasTable distanceSelection;
+    private final double parentSelectionRate;
+
+    DistanceSampling(final int maxDistance, final double distanceDecay, final double parentSelectionRate) {
+        if (maxDistance < 1 || !(distanceDecay > 0.0) || distanceDecay > 1.0 ||
+                !(parentSelectionRate >= 0.0) || parentSelectionRate > 1.0) {
+            throw new IllegalArgumentException("Invalid distance sampling");
+        }
+        this.parentSelectionRate = parentSelectionRate;
+        final double[] weights = new double[maxDistance];
+        double weight = 1.0;
+        for (int i = 0; i < maxDistance; ++i) {
+            weights[i] = weight;
+            weight *= distanceDecay;
+        }
+        distanceSelection = aliasTable(weights);
+    }
+
+    @Override
+    Candidate improve(final Generation generation,
+                      final int index,
+                      final Function<DietPlan, Scores> evaluationFunction,
+                      final int numberOfActions) {
+        final Candidate candidate = generation.getCandidate(index);
+        final RandomSource random = candidate.getRandom();
+        Evaluation<DietPlan> best = generation.getEvaluation(index);
+        double bestTotalScore = best.getTotalScore();
+        boolean changed = false;
+
+        for (int i = 0; i < numberOfActions; ++i) {
+            final Evaluation<DietPlan> parent = random.nextDouble() < parentSelectionRate ?
+                    generation.getParentEvaluation(generation.getParentSelection().sample(random)) : best;
+            final double minTotalScore = max(bestTotalScore, parent.getTotalScore());
+            final ArrayList<Pair<Integer, FoodItem>> variableIngredients = parent.getObject().getVariableIngredients();
+            final int distance = distanceSelection.sample(random) + 1;
+            final ArrayList<Pair<Pair<Integer, FoodItem>, Integer>> portionChanges =
+                    new ArrayList<Pair<Pair<Integer, FoodItem>, Integer>>(distance);
+            for (int j = 0; j < distance; ++j) {
+                final Pair<Integer, FoodItem> ingredientId =
+                        variableIngredients.get(random.nextInt(variableIngredients.size()));
+                portionChanges.add(pair(ingredientId, random.nextBoolean() ? 1 : -1));
+            }
+
+            final Optional<DietPlan> maybeChild = parent.getObject().changePortions(portionChanges);
+            if (!maybeChild.isPresent()) {
+                continue;
+            }
+            final Evaluation<DietPlan> child = evaluation(maybeChild.get(), evaluationFunction);
+            if (child.getTotalScore(minTotalScore) > minTotalScore) {
+                best = child;
+                bestTotalScore = child.getTotalScore();
+                changed = true;
+            }
+        }
+
+        return changed ? candidate(best, max(candidate.getPeakTotalScore(), bestTotalScore), random) : candidate;
+    }
+}
@@ -0,0 +1,67 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.PersonalDetails;
+import diet.Requirements;
+import util.Evaluation;
+
+import static optimizer.OptimizationEngine.optimizationEngine;
+import static optimizer.OptimizerSettings.defaultSettings;
+import static optimizer.OptimizerSettings.optimizerSettings;
+
+/**
+ * Optimizes a single random diet plan template of the default meal templates exactly by branch and bound (see
+ * {@link SolverMode#BRANCH_AND_BOUND}). This pays off for plans with few meals; for larger plans, the node limit ends
+ * the search and the gap to the optimum is reported.
+ * <p/>
+ * Usage: ExactOptimizer maxNodes days meals [seed]
+ */
+public abstract class ExactOptimizer {
+    public static void main(final String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: ExactOptimizer maxNodes days meals [seed]");
+            System.exit(1);
+        }
+
+        final Requirements requirements =
+                new Requirements(PersonalDetails.ANDREAS, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        final long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        System.out.println("Seed: " + seed);
+
+        final OptimizationEngine engine = optimizationEngine(
+                optimizerSettings(requirements, defaultSettings().getMealTemplates())
+                        .withSolverMode(SolverMode.BRANCH_AND_BOUND)
+                        .withMaxNodes(Long.parseLong(args[0]))
+                        .withMaxIterations(1)
+                        .withSeed(seed));
+        engine.run();
+        final OptimizationSnapshot snapshot = engine.getSnapshot();
+        final Evaluation<DietPlan> best = snapshot.getBest().get();
+        final double gap = snapshot.getGap().get();
+
+        System.out.println("Time elapsed: " + snapshot.getSeconds() + " sec");
+        System.out.println("Total score of best diet plan: " + best.getTotalScore() + "; Upper bound: " +
+                snapshot.getUpperBound().get() + (gap == 0.0 ? " (optimal)" : " (gap: " + gap + ")"));
+        ConsoleReporter.printEvaluation(best);
+    }
+}
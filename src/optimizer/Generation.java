@@ -0,0 +1,155 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.DietPlanTemplate;
+import util.AliasTable;
+import util.Evaluation;
+import util.LazyValue;
+import util.SynchronizedLazyValue;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static util.AliasTable.aliasTable;
+
+/**
+ * Candidates of an island at the start of an iteration. Strategies read other candidates of the generation, e.g. as
+ * parents, while the improved candidates are collected separately.
+ * <p/>
+ * Compact candidates are decoded and evaluated from scratch whenever their evaluations are requested. The evaluations
+ * of parents are therefore kept until the end of the iteration, so that a parent that is selected several times is
+ * decoded only once. The evaluation of a candidate for its own improvement is not kept, so that the decoded diet plans
+ * of an iteration don't all stay in memory at the same time.
+ */
+class Generation {
+    private final List<Candidate> candidates;
+    private final int iteration;
+    private final LazyValue<AliasTable> parentSelection;
+    private final AtomicReferenceArray<Evaluation<DietPlan>> parentEvaluations;
+
+    Generation(final List<Candidate> candidates, final int iteration) {
+        this.candidates = candidates;
+        this.iteration = iteration;
+        parentEvaluations = new AtomicReferenceArray<Evaluation<DietPlan>>(candidates.size());
+
+        // Built at most once per generation and only if a strategy needs it
+        parentSelection = new SynchronizedLazyValue<AliasTable>() {
+            @Override
+            protected AliasTable compute() {
+                final int size = candidates.size();
+                final double[] totalScores = new double[size];
+                double minTotalScore = Double.POSITIVE_INFINITY;
+                double maxTotalScore = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < size; ++i) {
+                    totalScores[i] = candidates.get(i).getTotalScore();
+                    minTotalScore = Math.min(minTotalScore, totalScores[i]);
+                    maxTotalScore = Math.max(maxTotalScore, totalScores[i]);
+                }
+
+                // Total scores of candidates are close to each other, so the weights are proportional to the
+                // difference to the worst candidate. The offset gives the worst candidate a small chance, too.
+                // Candidates share their weights with the other candidates of the same template (fitness sharing):
+                // without sharing, the children of the best template replace more and more candidates and the
+                // population collapses onto a single template.
+                final double spread = maxTotalScore - minTotalScore;
+                final double offset = spread > 0.0 ? spread / size : 1.0;
+                final int[] nicheSizes = getNicheSizes();
+                final double[] weights = new double[size];
+                for (int i = 0; i < size; ++i) {
+                    weights[i] = (totalScores[i] - minTotalScore + offset) / nicheSizes[i];
+                }
+                return aliasTable(weights);
+            }
+        };
+    }
+
+    /**
+     * @return number of candidates with the same template as each candidate; candidates without a template form a
+     * niche on their own
+     */
+    private int[] getNicheSizes() {
+        final int size = candidates.size();
+        final IdentityHashMap<DietPlanTemplate, Integer> templateCounts =
+                new IdentityHashMap<DietPlanTemplate, Integer>();
+        for (final Candidate candidate : candidates) {
+            final Optional<DietPlanTemplate> maybeTemplate = candidate.getTemplate();
+            if (maybeTemplate.isPresent()) {
+                final Integer count = templateCounts.get(maybeTemplate.get());
+                templateCounts.put(maybeTemplate.get(), count == null ? 1 : count + 1);
+            }
+        }
+        final int[] nicheSizes = new int[size];
+        for (int i = 0; i < size; ++i) {
+            final Optional<DietPlanTemplate> maybeTemplate = candidates.get(i).getTemplate();
+            nicheSizes[i] = maybeTemplate.isPresent() ? templateCounts.get(maybeTemplate.get()) : 1;
+        }
+        return nicheSizes;
+    }
+
+    int size() {
+        return candidates.size();
+    }
+
+    Candidate getCandidate(final int index) {
+        return candidates.get(index);
+    }
+
+    /**
+     * @return evaluation of a candidate for its own improvement, which is shared if the candidate has already been a
+     * parent in this iteration
+     */
+    Evaluation<DietPlan> getEvaluation(final int index) {
+        final Evaluation<DietPlan> parentEvaluation = parentEvaluations.get(index);
+        return parentEvaluation != null ? parentEvaluation : candidates.get(index).getEvaluation();
+    }
+
+    /**
+     * @return evaluation of a candidate as the parent of another candidate, which is kept until the end of the
+     * iteration
+     */
+    Evaluation<DietPlan> getParentEvaluation(final int index) {
+        Evaluation<DietPlan> parentEvaluation = parentEvaluations.get(index);
+        if (parentEvaluation == null) {
+            // Concurrent threads may decode the same candidate, but they get equal evaluations.
+            parentEvaluation = candidates.get(index).getEvaluation();
+            parentEvaluations.set(index, parentEvaluation);
+        }
+        return parentEvaluation;
+    }
+
+    /**
+     * @return number of completed iterations of the island
+     */
+    int getIteration() {
+        return iteration;
+    }
+
+    /**
+     * @return sampler of candidate indices, which prefers candidates with greater total scores
+     */
+    AliasTable getParentSelection() {
+        return parentSelection.get();
+    }
+}
@@ -0,0 +1,149 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.DietPlanTemplate;
+import diet.FoodItem;
+import diet.InfluenceIndex;
+import diet.MealTemplate;
+import diet.ScoreLayout;
+import diet.Scores;
+import util.Evaluation;
+import util.Mutable;
+import util.Pair;
+import util.RandomSource;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.lang.Math.max;
+import static optimizer.Candidate.candidate;
+import static util.Evaluation.evaluation;
+import static util.Mutable.mutable;
+
+/**
+ * Greedy search that targets the score with the greatest potential. A score is selected with a probability that is
+ * proportional to the difference between its weight and its weighted value. Moves are sampled from the ingredients
+ * that influence the selected score, in the direction that improves it. Scores of single meals are also targeted by
+ * moving portions between meals, which keeps the totals of the diet plan, and by swapping the meal template.
+ */
+class HillClimbing extends SearchStrategy {
+    private static final double TRANSFER_PROBABILITY = 0.5;
+    private static final double SWAP_PROBABILITY = 0.05;
+
+    /**
+     * Tries to improve the score with the greatest potential of the candidate by a number of random actions.
+     */
+    @Override
+    Candidate improve(final Generation generation,
+                      final int index,
+                      final Function<DietPlan, Scores> evaluationFunction,
+                      final int numberOfActions) {
+        final Candidate candidate = generation.getCandidate(index);
+        final Evaluation<DietPlan> evaluation = generation.getEvaluation(index);
+        final RandomSource random = candidate.getRandom();
+        final DietPlan dietPlan = evaluation.getObject();
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = dietPlan.getVariableIngredients();
+        final Scores scores = evaluation.getScores();
+        final int scoreId = scores.selectScoreByDiff(random.nextDouble());
+        final double oldScore = evaluation.getScore(scoreId);
+        final double oldTotalScore = evaluation.getTotalScore();
+        final InfluenceIndex influenceIndex = dietPlan.getInfluenceIndex(scores.getLayout());
+        final boolean guided = scoreId != Scores.TOTAL_SCORE && influenceIndex.getNumberOfInfluences(scoreId) > 0;
+        final int direction = guided ? influenceIndex.getDirection(dietPlan, scoreId) : 0;
+        final ScoreLayout layout = scores.getLayout();
+        final Optional<DietPlanTemplate> maybeTemplate = dietPlan.getTemplate();
+        final boolean mealScore = guided && layout.isMealSlot(scoreId) && maybeTemplate.isPresent();
+
+        final Mutable<Optional<Evaluation<DietPlan>>> maybeNewCandidate =
+                mutable(Optional.<Evaluation<DietPlan>>empty());
+        for (int i = 0; i < numberOfActions; ++i) {
+            final boolean add;
+            final int ingredientIndex;
+            if (guided) {
+                final int influence = influenceIndex.sampleInfluence(scoreId, random);
+                final double contribution = influenceIndex.getContribution(scoreId, influence);
+                add = direction == 0 ? random.nextBoolean() : contribution * direction > 0.0;
+                ingredientIndex = influenceIndex.getIngredientIndex(scoreId, influence);
+            } else {
+                add = random.nextBoolean();
+                ingredientIndex = random.nextInt(variableIngredients.size());
+            }
+            final Pair<Integer, FoodItem> ingredientId = variableIngredients.get(ingredientIndex);
+            final Optional<DietPlan> maybeNewDietPlan;
+            if (mealScore && random.nextDouble() < SWAP_PROBABILITY) {
+                final int mealIndex = layout.getRequirementIndex(scoreId);
+                final ArrayList<MealTemplate> alternatives = maybeTemplate.get().getAlternativeMealTemplates(mealIndex);
+                maybeNewDietPlan = alternatives.isEmpty() ?
+                        Optional.<DietPlan>empty() :
+                        dietPlan.swapMealTemplate(mealIndex, alternatives.get(random.nextInt(alternatives.size())));
+            } else if (mealScore && random.nextDouble() < TRANSFER_PROBABILITY &&
+                    maybeTemplate.get().getTransferPartners(ingredientIndex).length > 0) {
+                final int[] partners = maybeTemplate.get().getTransferPartners(ingredientIndex);
+                final int partnerMealIndex = variableIngredients.get(partners[random.nextInt(partners.length)]).a();
+                maybeNewDietPlan = add ?
+                        dietPlan.transferPortions(partnerMealIndex, ingredientId.a(), ingredientId.b(), 1) :
+                        dietPlan.transferPortions(ingredientId.a(), partnerMealIndex, ingredientId.b(), 1);
+            } else {
+                maybeNewDietPlan = add ? dietPlan.addPortion(ingredientId) : dietPlan.removePortion(ingredientId);
+            }
+            maybeNewDietPlan.ifPresent(new Consumer<DietPlan>() {
+                @Override
+                public void accept(final DietPlan newDietPlan) {
+                    final Evaluation<DietPlan> newCandidate = evaluation(newDietPlan, evaluationFunction);
+                    final double newScore = newCandidate.getScore(scoreId);
+                    if (newScore > oldScore) {
+                        final boolean useNewCandidate;
+                        if (!maybeNewCandidate.get().isPresent()) {
+                            useNewCandidate = true;
+                        } else {
+                            final Evaluation<DietPlan> otherCandidate = maybeNewCandidate.get().get();
+                            final double otherScore = otherCandidate.getScore(scoreId);
+                            final double otherTotalScore = otherCandidate.getTotalScore();
+
+                            // The total score of the new candidate is only computed as far as
+                            // necessary to compare it with the bound.
+                            if (otherTotalScore >= oldTotalScore) {
+                                useNewCandidate = newScore > otherScore &&
+                                        newCandidate.getTotalScore(oldTotalScore) >= oldTotalScore;
+                            } else {
+                                useNewCandidate = newCandidate.getTotalScore(otherTotalScore) > otherTotalScore;
+                            }
+                        }
+
+                        if (useNewCandidate) {
+                            maybeNewCandidate.set(Optional.of(newCandidate));
+                        }
+                    }
+                }
+            });
+        }
+
+        if (!maybeNewCandidate.get().isPresent()) {
+            return candidate;
+        }
+        final Evaluation<DietPlan> newCandidate = maybeNewCandidate.get().get();
+        return candidate(newCandidate, max(candidate.getPeakTotalScore(), newCandidate.getTotalScore()), random);
+    }
+}
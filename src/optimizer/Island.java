@@ -0,0 +1,201 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.Scores;
+import util.Evaluation;
+import util.RandomSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import static optimizer.Candidate.candidate;
+
+/**
+ * Population of candidates that is optimized by a single thread. Islands exchange their best candidates through
+ * lock-free queues: any thread may send candidates to an island, but only the thread of the island integrates them
+ * into its population.
+ */
+class Island {
+    private final int index;
+    private final Population population;
+    private final SelectionPolicy selectionPolicy;
+    private final PopulationControl control;
+    private final RandomSource random;
+    private final ConcurrentLinkedQueue<Evaluation<DietPlan>> immigrants =
+            new ConcurrentLinkedQueue<Evaluation<DietPlan>>();
+    private int iterations = 0;
+    private int numberOfImmigrants = 0;
+    private List<Evaluation<DietPlan>> lastElite = new ArrayList<Evaluation<DietPlan>>(); // For reuse by getElite
+
+    /**
+     * @param candidates Initial population
+     * @param random     Random numbers for immigrants and the selection policy
+     */
+    Island(final int index,
+           final List<Candidate> candidates,
+           final SelectionPolicy selectionPolicy,
+           final PopulationControl control,
+           final RandomSource random) {
+        this.index = index;
+        population = new Population(candidates, selectionPolicy.getProtectedAge());
+        this.selectionPolicy = selectionPolicy;
+        this.control = control;
+        this.random = random;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    int getIterations() {
+        return iterations;
+    }
+
+    int size() {
+        return population.size();
+    }
+
+    /**
+     * @return number of immigrants that have been integrated into the population so far
+     */
+    int getNumberOfImmigrants() {
+        return numberOfImmigrants;
+    }
+
+    /**
+     * Improves all candidates in parallel; each candidate keeps its position in the population. The outcome is
+     * reported to the population control.
+     *
+     * @param compactCandidates Whether the improved candidates are stored in compact form
+     */
+    void improve(final ForkJoinPool pool,
+                 final SearchStrategy searchStrategy,
+                 final Function<DietPlan, Scores> evaluationFunction,
+                 final boolean compactCandidates) {
+        final int numberOfActions = control.getNumberOfActions();
+        final Candidate[] newCandidates = new Candidate[population.size()];
+        final long startTime = System.nanoTime();
+        pool.invoke(new CandidateImprovement(new Generation(population.getCandidates(), iterations), newCandidates,
+                0, newCandidates.length, searchStrategy, evaluationFunction, numberOfActions, compactCandidates));
+        final long nanos = System.nanoTime() - startTime;
+        ++iterations;
+        int improvedCandidates = 0;
+        for (int i = 0; i < newCandidates.length; ++i) {
+            if (newCandidates[i].getPeakTotalScore() > population.get(i).getPeakTotalScore()) {
+                ++improvedCandidates;
+            }
+            population.update(i, newCandidates[i], iterations);
+        }
+        control.update(population, iterations, improvedCandidates, newCandidates.length * numberOfActions, nanos);
+    }
+
+    /**
+     * The elite is chosen by the total scores that candidates store, and the evaluations of diet plans that were
+     * already in the last elite are reused, so that compact candidates are only decoded when they enter the elite.
+     *
+     * @return evaluations of the candidates with the greatest total scores, ordered from best to worst; ties are
+     * resolved by the order of the candidates
+     */
+    List<Evaluation<DietPlan>> getElite(final int eliteSize) {
+        // Insertion into a short sorted array of the best candidates so far
+        final int size = Math.min(eliteSize, population.size());
+        final int[] eliteIndices = new int[size];
+        final double[] eliteTotalScores = new double[size];
+        int count = 0;
+        for (int i = 0; i < population.size(); ++i) {
+            final double totalScore = population.get(i).getTotalScore();
+            if (count < size || totalScore > eliteTotalScores[count - 1]) {
+                int position = count < size ? count++ : count - 1;
+                while (position > 0 && totalScore > eliteTotalScores[position - 1]) {
+                    eliteIndices[position] = eliteIndices[position - 1];
+                    eliteTotalScores[position] = eliteTotalScores[position - 1];
+                    --position;
+                }
+                eliteIndices[position] = i;
+                eliteTotalScores[position] = totalScore;
+            }
+        }
+
+        final ArrayList<Evaluation<DietPlan>> elite = new ArrayList<Evaluation<DietPlan>>(size);
+        for (final int eliteIndex : eliteIndices) {
+            final Candidate candidate = population.get(eliteIndex);
+            Evaluation<DietPlan> evaluation = null;
+            for (final Evaluation<DietPlan> lastEvaluation : lastElite) {
+                if (lastEvaluation.getObject().getHash() == candidate.getHash()) {
+                    evaluation = lastEvaluation;
+                    break;
+                }
+            }
+            elite.add(evaluation != null ? evaluation : candidate.getEvaluation());
+        }
+        if (elite.size() >= lastElite.size()) {
+            lastElite = elite; // The elite for migration may be smaller than the elite for snapshots.
+        }
+        return elite;
+    }
+
+    /**
+     * Removes as many candidates as the population control demands after the last iteration, chosen by the selection
+     * policy; the last candidate is never removed.
+     *
+     * @return number of removed candidates
+     */
+    int eliminateCandidates() {
+        final int count = control.getNumberOfEliminations(population, iterations);
+        int eliminated = 0;
+        while (eliminated < count && population.size() > 1) {
+            population.remove(selectionPolicy.select(population, random, iterations));
+            ++eliminated;
+        }
+        return eliminated;
+    }
+
+    /**
+     * Sends a candidate to this island. This method may be called by any thread.
+     */
+    void receive(final Evaluation<DietPlan> immigrant) {
+        immigrants.offer(immigrant);
+    }
+
+    /**
+     * Received candidates replace the candidates with the lowest current total scores if they are better. Islands
+     * send their elites again at every migration, so immigrants whose diet plans are already in the population are
+     * skipped; otherwise copies of the same diet plan would crowd out the other candidates. Immigrants are new
+     * candidates for the selection policy.
+     */
+    void integrateImmigrants() {
+        Evaluation<DietPlan> immigrant;
+        while ((immigrant = immigrants.poll()) != null) {
+            final int worstPosition = population.getLowestTotalScore();
+            final double totalScore = immigrant.getTotalScore();
+            if (totalScore > population.get(worstPosition).getTotalScore() &&
+                    !population.contains(immigrant.getObject().getHash())) {
+                population.replace(worstPosition, candidate(immigrant, totalScore, random.split()), iterations);
+                ++numberOfImmigrants;
+            }
+        }
+    }
+}
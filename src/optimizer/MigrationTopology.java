@@ -0,0 +1,54 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+/**
+ * Defines to which islands an island sends its best candidates.
+ */
+public enum MigrationTopology {
+    /**
+     * Each island sends its candidates to the next island.
+     */
+    RING {
+        @Override
+        int[] getTargets(final int island, final int numberOfIslands) {
+            return numberOfIslands > 1 ? new int[]{(island + 1) % numberOfIslands} : new int[0];
+        }
+    },
+    /**
+     * Each island sends its candidates to all other islands.
+     */
+    FULLY_CONNECTED {
+        @Override
+        int[] getTargets(final int island, final int numberOfIslands) {
+            final int[] targets = new int[numberOfIslands - 1];
+            for (int i = 0; i < targets.length; ++i) {
+                targets[i] = (island + 1 + i) % numberOfIslands;
+            }
+            return targets;
+        }
+    };
+
+    /**
+     * @return indices of the islands that receive the candidates of the island
+     */
+    abstract int[] getTargets(int island, int numberOfIslands);
+}
@@ -0,0 +1,608 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.*;
+import util.Evaluation;
+import util.RandomSource;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import static diet.BranchAndBound.branchAndBound;
+import static diet.DietPlanTemplate.dietPlanTemplate;
+import static diet.DietPlanTemplates.dietPlanTemplates;
+import static diet.EvaluationCache.evaluationCache;
+import static optimizer.Candidate.candidate;
+import static util.Evaluation.evaluation;
+import static util.RandomSource.randomSource;
+
+/**
+ * Optimizes a population of diet plans without any user interface. The engine either runs on its own thread (start)
+ * or on the calling thread (run); it can be paused, resumed and stopped from any thread. Progress is reported to the
+ * listeners and can be polled with snapshots.
+ * <p/>
+ * The population is divided into islands, which are optimized independently by their own threads and periodically
+ * send their best candidates to other islands. In each iteration of an island, all of its candidates are improved in
+ * parallel. After that, the best candidates are determined and candidates chosen by the selection policy are
+ * eliminated periodically.
+ * Runs with a single island are reproducible; with several islands, the arrival of migrants depends on the timing of
+ * the threads.
+ * <p/>
+ * With {@link SolverMode#BRANCH_AND_BOUND}, there is no population: each iteration solves a random diet plan template
+ * exactly, and the snapshots certify how far the best diet plan can be from the optimum of the solved templates.
+ */
+public class OptimizationEngine {
+    private enum State {
+        NEW, RUNNING, PAUSED, STOPPED
+    }
+
+    // Draws of solved templates in a row after which branch and bound has solved all templates that it can reach
+    private static final int MAX_REPEATED_DRAWS = 10000;
+
+    private static final Comparator<Evaluation<DietPlan>> TOTAL_SCORE_ORDER = new Comparator<Evaluation<DietPlan>>() {
+        @Override
+        public int compare(final Evaluation<DietPlan> evaluation1, final Evaluation<DietPlan> evaluation2) {
+            return Double.compare(evaluation2.getTotalScore(), evaluation1.getTotalScore());
+        }
+    };
+
+    private final OptimizerSettings settings;
+    private final CopyOnWriteArrayList<OptimizationListener> listeners =
+            new CopyOnWriteArrayList<OptimizationListener>();
+    private final Object listenerLock = new Object(); // Held while listeners are called
+    private Optional<Evaluation<DietPlan>> maybeReportedBest = Optional.empty(); // Guarded by listenerLock
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private State state = State.NEW;
+    private long elapsedNanos = 0L;
+    private long resumeTime;
+    private final AtomicReference<OptimizationSnapshot> snapshot;
+    private final AtomicReference<Optional<Evaluation<DietPlan>>> best =
+            new AtomicReference<Optional<Evaluation<DietPlan>>>(Optional.<Evaluation<DietPlan>>empty());
+    private AtomicReferenceArray<OptimizationSnapshot> islandSnapshots; // Written before the islands are started
+
+    public static OptimizationEngine optimizationEngine(final OptimizerSettings settings) {
+        return new OptimizationEngine(settings);
+    }
+
+    private OptimizationEngine(final OptimizerSettings settings) {
+        this.settings = settings;
+        final List<Evaluation<DietPlan>> noElite = Collections.emptyList();
+        snapshot = new AtomicReference<OptimizationSnapshot>(
+                new OptimizationSnapshot(0, 0, 0, Optional.<Evaluation<DietPlan>>empty(), noElite,
+                        Optional.<Double>empty(), 0.0));
+    }
+
+    public OptimizerSettings getSettings() {
+        return settings;
+    }
+
+    public void addListener(final OptimizationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(final OptimizationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts the optimization on a new thread.
+     */
+    public void start() {
+        setRunning();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                optimize();
+            }
+        }, "OptimizationEngine");
+        thread.start();
+    }
+
+    /**
+     * Runs the optimization on the calling thread until it is stopped or the maximum number of iterations is reached.
+     */
+    public void run() {
+        setRunning();
+        optimize();
+    }
+
+    /**
+     * Pauses the optimization after the current iteration.
+     */
+    public synchronized void pause() {
+        if (state == State.RUNNING) {
+            elapsedNanos += System.nanoTime() - resumeTime;
+            state = State.PAUSED;
+        }
+    }
+
+    public synchronized void resume() {
+        if (state == State.PAUSED) {
+            resumeTime = System.nanoTime();
+            state = State.RUNNING;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Stops the optimization after the current iteration. A stopped engine can't be started again.
+     */
+    public synchronized void stop() {
+        if (state == State.RUNNING) {
+            elapsedNanos += System.nanoTime() - resumeTime;
+        }
+        state = State.STOPPED;
+        notifyAll();
+    }
+
+    public synchronized boolean isPaused() {
+        return state == State.PAUSED;
+    }
+
+    /**
+     * Waits until the optimization has finished and the listeners have been notified.
+     */
+    public void awaitTermination() throws InterruptedException {
+        finished.await();
+    }
+
+    /**
+     * The snapshot is published atomically after each iteration, so it can be read at any time without locking and
+     * without slowing down the optimization.
+     *
+     * @return state of the run after the last completed iteration
+     */
+    public OptimizationSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * @return evaluation of the best diet plan found so far with exact scores
+     */
+    public Optional<Evaluation<DietPlan>> getBest() {
+        return snapshot.get().getBest();
+    }
+
+    private synchronized void setRunning() {
+        if (state != State.NEW) {
+            throw new IllegalStateException("The optimization engine has already been started");
+        }
+        resumeTime = System.nanoTime();
+        state = State.RUNNING;
+    }
+
+    /**
+     * @return true if the optimization should continue; false if it has been stopped
+     */
+    private synchronized boolean awaitRunning() {
+        while (state == State.PAUSED) {
+            try {
+                wait();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stop();
+            }
+        }
+        return state == State.RUNNING;
+    }
+
+    private synchronized double getSeconds() {
+        final long nanos = state == State.RUNNING ? elapsedNanos + System.nanoTime() - resumeTime : elapsedNanos;
+        return nanos / 1e9;
+    }
+
+    private void optimize() {
+        try {
+            final Requirements requirements = settings.getRequirements();
+            final Function<DietPlan, Scores> evaluationFunction =
+                    getEvaluationFunction(requirements.getScoringProgram(settings.getScoreMode()),
+                            settings.getEvaluationCacheSize());
+            final RandomSource random = randomSource(settings.getSeed());
+            final DietPlanTemplates templates = dietPlanTemplates(settings.getMealTemplates()); // Shared by all islands
+            if (settings.getSolverMode() == SolverMode.BRANCH_AND_BOUND) {
+                solveTemplates(random, templates);
+                return;
+            }
+
+            final ForkJoinPool pool = new ForkJoinPool(settings.getParallelism());
+            try {
+                final int numberOfIslands = settings.getNumberOfIslands();
+                final Island[] islands = new Island[numberOfIslands];
+                islandSnapshots = new AtomicReferenceArray<OptimizationSnapshot>(numberOfIslands);
+                final List<Evaluation<DietPlan>> noElite = Collections.emptyList();
+                for (int i = 0; i < numberOfIslands; ++i) {
+                    islands[i] = createIsland(i, random.split(), pool, templates, evaluationFunction);
+                    islandSnapshots.set(i, new OptimizationSnapshot(0, islands[i].size(), 0,
+                            Optional.<Evaluation<DietPlan>>empty(), noElite, Optional.<Double>empty(), 0.0));
+                }
+                publishSnapshot();
+
+                if (numberOfIslands == 1) {
+                    optimizeIsland(islands[0], islands, pool, evaluationFunction);
+                } else {
+                    optimizeIslands(islands, pool, evaluationFunction);
+                }
+                if (settings.getScoreMode() == ScoreMode.APPROXIMATE && settings.getPolishIterations() > 0 &&
+                        !snapshot.get().getElite().isEmpty() && awaitRunning()) {
+                    polish(pool, random.split());
+                }
+            } finally {
+                pool.shutdown();
+            }
+        } finally {
+            stop();
+            try {
+                synchronized (listenerLock) {
+                    for (final OptimizationListener listener : listeners) {
+                        listener.optimizationFinished(snapshot.get());
+                    }
+                }
+            } finally {
+                finished.countDown();
+            }
+        }
+    }
+
+    /**
+     * Improves the elite of the run with the exact scoring program, so that the final diet plans aren't limited by the
+     * errors of the approximate scores. The elite forms a single population that is improved by hill climbing for the
+     * polish iterations without eliminations; the snapshots continue to count the iterations.
+     */
+    private void polish(final ForkJoinPool pool, final RandomSource random) {
+        final Function<DietPlan, Scores> evaluationFunction =
+                getEvaluationFunction(settings.getRequirements().getScoringProgram(), 0);
+        final OptimizationSnapshot lastSnapshot = snapshot.get();
+        final ArrayList<Candidate> candidates = new ArrayList<Candidate>();
+        for (final Evaluation<DietPlan> evaluation : lastSnapshot.getElite()) {
+            candidates.add(candidate(evaluation, evaluation.getTotalScore(), random.split()));
+        }
+        final Island island = new Island(0, candidates, settings.getSelectionPolicy(),
+                PopulationControl.fixedControl(settings), random);
+        islandSnapshots = new AtomicReferenceArray<OptimizationSnapshot>(1);
+
+        while (island.getIterations() < settings.getPolishIterations() && awaitRunning()) {
+            island.improve(pool, SearchStrategy.hillClimbing(), evaluationFunction, false);
+            final List<Evaluation<DietPlan>> elite = island.getElite(settings.getEliteSize());
+            for (final Evaluation<DietPlan> evaluation : elite) {
+                evaluation.getTotalScore(); // Completed, so that it can be read by other threads
+            }
+            final Evaluation<DietPlan> bestCandidate = elite.get(0);
+
+            islandSnapshots.set(0, new OptimizationSnapshot(lastSnapshot.getIterations() + island.getIterations(),
+                    island.size(), lastSnapshot.getNumberOfImmigrants(), Optional.of(bestCandidate), elite,
+                    Optional.<Double>empty(), 0.0));
+            final boolean improved = updateBest(bestCandidate);
+            publishSnapshot();
+            if (improved) {
+                notifyListeners(true, false);
+            }
+        }
+    }
+
+    /**
+     * Optimizes one random diet plan template per iteration by branch and bound on the calling thread. Templates are
+     * shared, so a template that has already been solved is recognized by identity and drawn again; only new templates
+     * count as iterations and change the snapshot. The run ends after {@link #MAX_REPEATED_DRAWS} draws in a row that
+     * only find solved templates, which means that (nearly) all templates that can be drawn have been solved.
+     * <p/>
+     * The upper bound of the snapshots is the greatest upper bound of the solved templates; a template whose best diet
+     * plan is proven optimal contributes the total score of that diet plan, so the gap is 0.0 once all solved
+     * templates are proven optimal.
+     */
+    private void solveTemplates(final RandomSource random, final DietPlanTemplates templates) {
+        final ScoringProgram scoringProgram = settings.getRequirements().getScoringProgram();
+        final int numberOfMeals = settings.getRequirements().getNumberOfMeals();
+        final Set<DietPlanTemplate> solvedTemplates =
+                Collections.newSetFromMap(new IdentityHashMap<DietPlanTemplate, Boolean>());
+        final ArrayList<Evaluation<DietPlan>> elite = new ArrayList<Evaluation<DietPlan>>();
+        final List<Evaluation<DietPlan>> noElite = Collections.emptyList();
+        islandSnapshots = new AtomicReferenceArray<OptimizationSnapshot>(1);
+        islandSnapshots.set(0, new OptimizationSnapshot(0, 0, 0, Optional.<Evaluation<DietPlan>>empty(), noElite,
+                Optional.<Double>empty(), 0.0));
+        publishSnapshot();
+
+        double upperBound = Double.NEGATIVE_INFINITY;
+        int iterations = 0;
+        int repeatedDraws = 0;
+        while (iterations < settings.getMaxIterations() && repeatedDraws < MAX_REPEATED_DRAWS && awaitRunning()) {
+            final DietPlanTemplate template = dietPlanTemplate(templates, numberOfMeals, random);
+            if (!solvedTemplates.add(template)) {
+                ++repeatedDraws;
+                continue;
+            }
+            repeatedDraws = 0;
+            ++iterations;
+
+            final BranchAndBound branchAndBound = branchAndBound(template, scoringProgram, settings.getMaxNodes());
+            upperBound = Math.max(upperBound, branchAndBound.isOptimal() ?
+                    branchAndBound.getTotalScore() : branchAndBound.getUpperBound());
+            final DietPlan dietPlan = branchAndBound.getDietPlan();
+            final Scores scores = scoringProgram.evaluate(dietPlan);
+            scores.getTotalScore();
+            final Evaluation<DietPlan> evaluation = evaluation(dietPlan, scores);
+            elite.add(evaluation);
+            elite.sort(TOTAL_SCORE_ORDER);
+            if (elite.size() > settings.getEliteSize()) {
+                elite.remove(elite.size() - 1);
+            }
+            final boolean improved = updateBest(evaluation);
+
+            islandSnapshots.set(0, new OptimizationSnapshot(iterations, solvedTemplates.size(), 0, best.get(),
+                    new ArrayList<Evaluation<DietPlan>>(elite), Optional.of(upperBound), 0.0));
+            publishSnapshot();
+            if (improved) {
+                notifyListeners(true, false);
+            }
+        }
+    }
+
+    /**
+     * Optimizes each island on its own thread. The improvements of the candidates of all islands share the workers
+     * of the pool.
+     */
+    private void optimizeIslands(final Island[] islands,
+                                 final ForkJoinPool pool,
+                                 final Function<DietPlan, Scores> evaluationFunction) {
+        final AtomicReference<Optional<RuntimeException>> maybeFailure =
+                new AtomicReference<Optional<RuntimeException>>(Optional.<RuntimeException>empty());
+        final Thread[] threads = new Thread[islands.length];
+        for (int i = 0; i < islands.length; ++i) {
+            final Island island = islands[i];
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        optimizeIsland(island, islands, pool, evaluationFunction);
+                    } catch (final RuntimeException e) {
+                        maybeFailure.compareAndSet(Optional.<RuntimeException>empty(), Optional.of(e));
+                        stop();
+                    }
+                }
+            }, "OptimizationEngine-Island-" + i);
+            threads[i].start();
+        }
+
+        for (final Thread thread : threads) {
+            boolean joined = false;
+            while (!joined) {
+                try {
+                    thread.join();
+                    joined = true;
+                } catch (final InterruptedException e) {
+                    stop();
+                }
+            }
+        }
+        if (maybeFailure.get().isPresent()) {
+            throw maybeFailure.get().get();
+        }
+    }
+
+    private void optimizeIsland(final Island island,
+                                final Island[] islands,
+                                final ForkJoinPool pool,
+                                final Function<DietPlan, Scores> evaluationFunction) {
+        final int[] targets = settings.getMigrationTopology().getTargets(island.getIndex(), islands.length);
+        Map<Evaluation<DietPlan>, Evaluation<DietPlan>> exactEvaluations =
+                new IdentityHashMap<Evaluation<DietPlan>, Evaluation<DietPlan>>();
+        while (island.getIterations() < settings.getMaxIterations() && awaitRunning()) {
+            island.improve(pool, settings.getSearchStrategy(), evaluationFunction, settings.getCompactCandidates());
+            final int iterations = island.getIterations();
+
+            // Exact evaluations of elite candidates that haven't changed are reused.
+            exactEvaluations = getExactEvaluations(island.getElite(settings.getEliteSize()), exactEvaluations);
+            final List<Evaluation<DietPlan>> elite = getSortedEvaluations(exactEvaluations);
+            final Evaluation<DietPlan> bestCandidate = elite.get(0);
+
+            final boolean eliminated = island.eliminateCandidates() > 0;
+
+            if (iterations % settings.getMigrationInterval() == 0) {
+                for (final Evaluation<DietPlan> emigrant : island.getElite(settings.getMigrationSize())) {
+                    for (final int target : targets) {
+                        islands[target].receive(emigrant);
+                    }
+                }
+            }
+            island.integrateImmigrants();
+
+            islandSnapshots.set(island.getIndex(), new OptimizationSnapshot(iterations, island.size(),
+                    island.getNumberOfImmigrants(), Optional.of(bestCandidate), elite, Optional.<Double>empty(), 0.0));
+            final boolean improved = updateBest(bestCandidate);
+            publishSnapshot();
+            if (improved || eliminated) {
+                notifyListeners(improved, eliminated);
+            }
+        }
+    }
+
+    /**
+     * Calls the listeners with the latest published snapshot. The threads of the islands call the listeners one at a
+     * time; a best diet plan is only reported if it is better than the last reported one, so a diet plan that another
+     * island has already surpassed is dropped.
+     *
+     * @param improved   Whether the calling island has improved the best diet plan
+     * @param eliminated Whether the calling island has eliminated candidates
+     */
+    private void notifyListeners(final boolean improved, final boolean eliminated) {
+        synchronized (listenerLock) {
+            final OptimizationSnapshot currentSnapshot = snapshot.get();
+            final Optional<Evaluation<DietPlan>> maybeBest = currentSnapshot.getBest();
+            if (improved && maybeBest.isPresent() && (!maybeReportedBest.isPresent() ||
+                    maybeBest.get().getTotalScore() > maybeReportedBest.get().getTotalScore())) {
+                maybeReportedBest = maybeBest;
+                for (final OptimizationListener listener : listeners) {
+                    listener.bestDietPlanFound(maybeBest.get(), currentSnapshot);
+                }
+            }
+            if (eliminated) {
+                for (final OptimizationListener listener : listeners) {
+                    listener.candidateEliminated(currentSnapshot);
+                }
+            }
+        }
+    }
+
+    private Island createIsland(final int index,
+                                final RandomSource random,
+                                final ForkJoinPool pool,
+                                final DietPlanTemplates templates,
+                                final Function<DietPlan, Scores> evaluationFunction) {
+        // The candidates are distributed evenly. Each candidate gets its own random numbers, so the result doesn't
+        // depend on the order in which the candidates are created and improved.
+        final int numberOfIslands = settings.getNumberOfIslands();
+        final int numberOfCandidates = settings.getNumberOfCandidates() / numberOfIslands +
+                (index < settings.getNumberOfCandidates() % numberOfIslands ? 1 : 0);
+        final RandomSource[] candidateRandoms = new RandomSource[numberOfCandidates];
+        for (int i = 0; i < numberOfCandidates; ++i) {
+            candidateRandoms[i] = random.split();
+        }
+        final Candidate[] newCandidates = new Candidate[numberOfCandidates];
+        pool.invoke(new CandidateCreation(settings, templates, candidateRandoms, newCandidates, 0, numberOfCandidates,
+                evaluationFunction));
+        final PopulationControl control = settings.getAdaptiveControl() ?
+                PopulationControl.adaptiveControl(settings, numberOfCandidates) :
+                PopulationControl.fixedControl(settings);
+        return new Island(index, Arrays.asList(newCandidates), settings.getSelectionPolicy(), control, random);
+    }
+
+    /**
+     * @return true if the candidate is better than the best diet plan so far and has replaced it
+     */
+    private boolean updateBest(final Evaluation<DietPlan> candidate) {
+        final double totalScore = candidate.getTotalScore();
+        while (true) {
+            final Optional<Evaluation<DietPlan>> maybeBest = best.get();
+            if (maybeBest.isPresent() && totalScore <= maybeBest.get().getTotalScore()) {
+                return false;
+            }
+            if (best.compareAndSet(maybeBest, Optional.of(candidate))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Merges the snapshots of the islands. Published snapshots never lose a best diet plan: the best diet plan is
+     * read after the snapshot that is replaced.
+     *
+     * @return published snapshot
+     */
+    private OptimizationSnapshot publishSnapshot() {
+        while (true) {
+            final OptimizationSnapshot oldSnapshot = snapshot.get();
+            int iterations = Integer.MAX_VALUE;
+            int numberOfCandidates = 0;
+            int numberOfImmigrants = 0;
+            final ArrayList<Evaluation<DietPlan>> elite = new ArrayList<Evaluation<DietPlan>>();
+            Optional<Double> maybeUpperBound = Optional.empty();
+            for (int i = 0; i < islandSnapshots.length(); ++i) {
+                final OptimizationSnapshot islandSnapshot = islandSnapshots.get(i);
+                iterations = Math.min(iterations, islandSnapshot.getIterations());
+                numberOfCandidates += islandSnapshot.getNumberOfCandidates();
+                numberOfImmigrants += islandSnapshot.getNumberOfImmigrants();
+                elite.addAll(islandSnapshot.getElite());
+                final Optional<Double> maybeIslandUpperBound = islandSnapshot.getUpperBound();
+                if (maybeIslandUpperBound.isPresent() && (!maybeUpperBound.isPresent() ||
+                        maybeIslandUpperBound.get() > maybeUpperBound.get())) {
+                    maybeUpperBound = maybeIslandUpperBound;
+                }
+            }
+            elite.sort(TOTAL_SCORE_ORDER); // Stable
+            final int eliteSize = Math.min(settings.getEliteSize(), elite.size());
+            final OptimizationSnapshot newSnapshot = new OptimizationSnapshot(iterations, numberOfCandidates,
+                    numberOfImmigrants, best.get(), new ArrayList<Evaluation<DietPlan>>(elite.subList(0, eliteSize)),
+                    maybeUpperBound, getSeconds());
+            if (snapshot.compareAndSet(oldSnapshot, newSnapshot)) {
+                return newSnapshot;
+            }
+        }
+    }
+
+    /**
+     * @param evaluations         Evaluations used for exploration
+     * @param oldExactEvaluations Exact evaluations by the evaluations used for exploration
+     * @return exact evaluations by the evaluations used for exploration in the order of the evaluations
+     */
+    private Map<Evaluation<DietPlan>, Evaluation<DietPlan>> getExactEvaluations(
+            final List<Evaluation<DietPlan>> evaluations,
+            final Map<Evaluation<DietPlan>, Evaluation<DietPlan>> oldExactEvaluations) {
+        final Map<Evaluation<DietPlan>, Evaluation<DietPlan>> exactEvaluations =
+                new LinkedHashMap<Evaluation<DietPlan>, Evaluation<DietPlan>>();
+        for (final Evaluation<DietPlan> evaluation : evaluations) {
+            final Evaluation<DietPlan> oldExactEvaluation = oldExactEvaluations.get(evaluation);
+            exactEvaluations.put(evaluation,
+                    oldExactEvaluation != null ? oldExactEvaluation : getExactEvaluation(evaluation));
+        }
+        return exactEvaluations;
+    }
+
+    private static List<Evaluation<DietPlan>> getSortedEvaluations(
+            final Map<Evaluation<DietPlan>, Evaluation<DietPlan>> exactEvaluations) {
+        final ArrayList<Evaluation<DietPlan>> sortedEvaluations =
+                new ArrayList<Evaluation<DietPlan>>(exactEvaluations.values());
+        sortedEvaluations.sort(TOTAL_SCORE_ORDER);
+        return sortedEvaluations;
+    }
+
+    /**
+     * @param cacheSize Maximum number of cached scores; 0 for no cache
+     */
+    private static Function<DietPlan, Scores> getEvaluationFunction(final ScoringProgram scoringProgram,
+                                                                    final int cacheSize) {
+        if (cacheSize > 0) {
+            final EvaluationCache cache = evaluationCache(scoringProgram, cacheSize);
+            return new Function<DietPlan, Scores>() {
+                @Override
+                public Scores apply(final DietPlan dietPlan) {
+                    return cache.getScores(dietPlan);
+                }
+            };
+        }
+        return new Function<DietPlan, Scores>() {
+            @Override
+            public Scores apply(final DietPlan dietPlan) {
+                return dietPlan.getScores(scoringProgram);
+            }
+        };
+    }
+
+    /**
+     * Diet plans keep their scores per scoring program, so the exact scores don't replace the scores used for
+     * exploration, and diet plans derived during the polish are evaluated incrementally. The evaluation is completed,
+     * so that it can be read by other threads.
+     */
+    private Evaluation<DietPlan> getExactEvaluation(final Evaluation<DietPlan> candidate) {
+        if (settings.getScoreMode() == ScoreMode.EXACT) {
+            candidate.getTotalScore();
+            return candidate;
+        }
+        final DietPlan dietPlan = candidate.getObject();
+        final Scores scores = dietPlan.getScores(settings.getRequirements().getScoringProgram());
+        scores.getTotalScore();
+        return evaluation(dietPlan, scores);
+    }
+}
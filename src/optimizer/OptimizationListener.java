@@ -0,0 +1,41 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import util.Evaluation;
+
+/**
+ * Receives progress of an optimization run. With several islands, the methods are called by the threads of the
+ * islands, but never concurrently, so listeners don't need to be thread-safe. Reported best diet plans get better with
+ * every call.
+ */
+public interface OptimizationListener {
+    /**
+     * @param best     Evaluation of the new best diet plan with exact scores
+     * @param snapshot State of the run after the iteration that found the diet plan
+     */
+    void bestDietPlanFound(Evaluation<DietPlan> best, OptimizationSnapshot snapshot);
+
+    void candidateEliminated(OptimizationSnapshot snapshot);
+
+    void optimizationFinished(OptimizationSnapshot snapshot);
+}
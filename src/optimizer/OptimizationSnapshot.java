@@ -0,0 +1,114 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import util.Evaluation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * State of an optimization run after an iteration. Snapshots are immutable and all evaluations in them are complete
+ * and exact, so they can be read by any thread.
+ */
+public class OptimizationSnapshot {
+    private final int iterations;
+    private final int numberOfCandidates;
+    private final int numberOfImmigrants;
+    private final Optional<Evaluation<DietPlan>> maybeBest;
+    private final List<Evaluation<DietPlan>> elite;
+    private final Optional<Double> maybeUpperBound;
+    private final double seconds;
+
+    OptimizationSnapshot(final int iterations,
+                         final int numberOfCandidates,
+                         final int numberOfImmigrants,
+                         final Optional<Evaluation<DietPlan>> maybeBest,
+                         final List<Evaluation<DietPlan>> elite,
+                         final Optional<Double> maybeUpperBound,
+                         final double seconds) {
+        this.iterations = iterations;
+        this.numberOfCandidates = numberOfCandidates;
+        this.numberOfImmigrants = numberOfImmigrants;
+        this.maybeBest = maybeBest;
+        this.elite = Collections.unmodifiableList(elite);
+        this.maybeUpperBound = maybeUpperBound;
+        this.seconds = seconds;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getNumberOfCandidates() {
+        return numberOfCandidates;
+    }
+
+    /**
+     * @return number of candidates that islands have taken over from other islands so far
+     */
+    public int getNumberOfImmigrants() {
+        return numberOfImmigrants;
+    }
+
+    /**
+     * @return evaluation of the best diet plan found so far with exact scores
+     */
+    public Optional<Evaluation<DietPlan>> getBest() {
+        return maybeBest;
+    }
+
+    /**
+     * @return evaluations of the best current candidates with exact scores, ordered from best to worst
+     */
+    public List<Evaluation<DietPlan>> getElite() {
+        return elite;
+    }
+
+    /**
+     * @return upper bound of the total score of all diet plans of the templates that have been solved by branch and
+     * bound, which certifies how far the best diet plan can be from their optimum; empty if the engine doesn't run
+     * branch and bound
+     */
+    public Optional<Double> getUpperBound() {
+        return maybeUpperBound;
+    }
+
+    /**
+     * @return difference between the upper bound and the total score of the best diet plan, which is 0.0 if the best
+     * diet plan is proven optimal for the solved templates; empty if the engine doesn't run branch and bound
+     */
+    public Optional<Double> getGap() {
+        if (!maybeUpperBound.isPresent() || !maybeBest.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(Math.max(0.0, maybeUpperBound.get() - maybeBest.get().getTotalScore()));
+    }
+
+    /**
+     * @return time the engine has been running (excluding pauses)
+     */
+    public double getSeconds() {
+        return seconds;
+    }
+}
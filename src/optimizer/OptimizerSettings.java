@@ -0,0 +1,537 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.*;
+import util.Limits2;
+import util.Pair;
+
+import java.util.ArrayList;
+
+import static util.Limits2.limits2;
+import static util.Pair.pair;
+
+/**
+ * Parameters of an optimization run. Settings are immutable; the with-methods return changed copies.
+ */
+public class OptimizerSettings {
+    private final Requirements requirements;
+    private final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplates;
+    private int numberOfCandidates;
+    private int numberOfActions;
+    private int eliminationInterval;
+    private int maxIterations;
+    private int parallelism;
+    private int eliteSize;
+    private int numberOfIslands;
+    private int migrationInterval;
+    private int migrationSize;
+    private MigrationTopology migrationTopology;
+    private ScoreMode scoreMode;
+    private int polishIterations;
+    private SearchStrategy searchStrategy;
+    private boolean warmStart;
+    private SelectionPolicy selectionPolicy;
+    private int eliminationSize;
+    private boolean adaptiveControl;
+    private int evaluationCacheSize;
+    private boolean compactCandidates;
+    private SolverMode solverMode;
+    private long maxNodes;
+    private long seed;
+
+    /**
+     * @return settings with the requirements and meal templates of the author and default strategy parameters
+     */
+    public static OptimizerSettings defaultSettings() {
+        return optimizerSettings(new Requirements(PersonalDetails.ANDREAS, 4, 12), getDefaultMealTemplates());
+    }
+
+    public static OptimizerSettings optimizerSettings(final Requirements requirements,
+                                                      final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplates) {
+        return new OptimizerSettings(requirements, mealTemplates);
+    }
+
+    private OptimizerSettings(final Requirements requirements,
+                              final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplates) {
+        this.requirements = requirements;
+        this.mealTemplates = mealTemplates;
+        numberOfCandidates = 1000;
+        numberOfActions = 20;
+        eliminationInterval = 50;
+        maxIterations = Integer.MAX_VALUE;
+        parallelism = Runtime.getRuntime().availableProcessors();
+        eliteSize = 10;
+        numberOfIslands = 1;
+        migrationInterval = 50;
+        migrationSize = 1;
+        migrationTopology = MigrationTopology.RING;
+        scoreMode = ScoreMode.APPROXIMATE;
+        polishIterations = 0;
+        searchStrategy = SearchStrategy.hillClimbing();
+        warmStart = true;
+        selectionPolicy = SelectionPolicy.truncation();
+        eliminationSize = 1;
+        adaptiveControl = false;
+        evaluationCacheSize = 0;
+        compactCandidates = false;
+        solverMode = SolverMode.POPULATION;
+        maxNodes = 1000000L;
+        seed = System.nanoTime();
+    }
+
+    /**
+     * Copies the settings. The with-methods change a single field of the copy before it is validated and returned;
+     * the fields are never changed after that.
+     */
+    private OptimizerSettings(final OptimizerSettings settings) {
+        requirements = settings.requirements;
+        mealTemplates = settings.mealTemplates;
+        numberOfCandidates = settings.numberOfCandidates;
+        numberOfActions = settings.numberOfActions;
+        eliminationInterval = settings.eliminationInterval;
+        maxIterations = settings.maxIterations;
+        parallelism = settings.parallelism;
+        eliteSize = settings.eliteSize;
+        numberOfIslands = settings.numberOfIslands;
+        migrationInterval = settings.migrationInterval;
+        migrationSize = settings.migrationSize;
+        migrationTopology = settings.migrationTopology;
+        scoreMode = settings.scoreMode;
+        polishIterations = settings.polishIterations;
+        searchStrategy = settings.searchStrategy;
+        warmStart = settings.warmStart;
+        selectionPolicy = settings.selectionPolicy;
+        eliminationSize = settings.eliminationSize;
+        adaptiveControl = settings.adaptiveControl;
+        evaluationCacheSize = settings.evaluationCacheSize;
+        compactCandidates = settings.compactCandidates;
+        solverMode = settings.solverMode;
+        maxNodes = settings.maxNodes;
+        seed = settings.seed;
+    }
+
+    /**
+     * @return these settings
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    private OptimizerSettings validated() {
+        if (numberOfCandidates < 1 || numberOfActions < 1 || eliminationInterval < 1 || maxIterations < 0 ||
+                parallelism < 1 || eliteSize < 1 || numberOfIslands < 1 || numberOfIslands > numberOfCandidates ||
+                migrationInterval < 1 || migrationSize < 0 || polishIterations < 0 || eliminationSize < 0 ||
+                evaluationCacheSize < 0 || maxNodes < 1L) {
+            throw new IllegalArgumentException("Invalid optimizer settings");
+        }
+        return this;
+    }
+
+    public Requirements getRequirements() {
+        return requirements;
+    }
+
+    public ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> getMealTemplates() {
+        return mealTemplates;
+    }
+
+    /**
+     * @return size of the initial population; the candidates are distributed evenly to the islands
+     */
+    public int getNumberOfCandidates() {
+        return numberOfCandidates;
+    }
+
+    /**
+     * @return number of random actions that are tried on each candidate per iteration
+     */
+    public int getNumberOfActions() {
+        return numberOfActions;
+    }
+
+    /**
+     * @return number of iterations after which candidates are eliminated
+     */
+    public int getEliminationInterval() {
+        return eliminationInterval;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * @return number of worker threads
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return number of best candidates in the elite of the snapshots
+     */
+    public int getEliteSize() {
+        return eliteSize;
+    }
+
+    /**
+     * @return number of populations that are optimized independently and exchange their best candidates
+     */
+    public int getNumberOfIslands() {
+        return numberOfIslands;
+    }
+
+    /**
+     * @return number of iterations of an island after which it sends its best candidates to other islands
+     */
+    public int getMigrationInterval() {
+        return migrationInterval;
+    }
+
+    /**
+     * @return number of candidates that an island sends to each target island
+     */
+    public int getMigrationSize() {
+        return migrationSize;
+    }
+
+    public MigrationTopology getMigrationTopology() {
+        return migrationTopology;
+    }
+
+    /**
+     * @return mode for exploring diet plans; diet plans are always reported with exact scores
+     */
+    public ScoreMode getScoreMode() {
+        return scoreMode;
+    }
+
+    /**
+     * @return number of iterations in which the elite is improved with exact scores by hill climbing after the
+     * maximum number of iterations has been reached with approximate scores, or 0 (default) for no polish. The polish
+     * removes the limit that the errors of the approximate scores set to the final diet plans; it is skipped if the
+     * run is stopped.
+     */
+    public int getPolishIterations() {
+        return polishIterations;
+    }
+
+    /**
+     * @return strategy for improving the candidates in each iteration
+     */
+    public SearchStrategy getSearchStrategy() {
+        return searchStrategy;
+    }
+
+    /**
+     * @return true if the candidates start with the rounded solution of the linear relaxation of their diet plan
+     * templates; false if they start with the minimal diet plans
+     */
+    public boolean getWarmStart() {
+        return warmStart;
+    }
+
+    /**
+     * @return policy that decides which candidates are eliminated
+     */
+    public SelectionPolicy getSelectionPolicy() {
+        return selectionPolicy;
+    }
+
+    /**
+     * @return number of candidates that each island eliminates at once after each elimination interval
+     */
+    public int getEliminationSize() {
+        return eliminationSize;
+    }
+
+    /**
+     * @return true if each island retunes its number of actions and its elimination rate during the run from the share
+     * of improved candidates, the measured time per candidate and the diversity of its population; false if the
+     * number of actions, the elimination interval and the elimination size are constant. Runs with adaptive control
+     * are not reproducible, because they depend on measured times.
+     */
+    public boolean getAdaptiveControl() {
+        return adaptiveControl;
+    }
+
+    /**
+     * @return maximum number of scores that are cached by the hashes of their diet plans, or 0 (default) if diet plans
+     * are always evaluated. Scores are mostly derived incrementally from the scores of similar diet plans, which costs
+     * about as much as a lookup, so the cache only pays off if equal diet plans are often evaluated from scratch or
+     * with expensive scoring programs. Runs with a cache and several threads are not exactly reproducible, because
+     * cached scores may differ from recomputed scores in rounding errors.
+     */
+    public int getEvaluationCacheSize() {
+        return evaluationCacheSize;
+    }
+
+    /**
+     * @return true if candidates keep only the portions of their diet plans between iterations, which reduces the
+     * memory of a diet plan and its scores from tens of kilobytes to a few hundred bytes (the templates of the
+     * candidates are kept as they are); the diet plans are decoded and evaluated from scratch in each iteration,
+     * which costs time. Decoded scores may differ from the incrementally computed scores in rounding errors, so runs
+     * with and without compact candidates can diverge.
+     */
+    public boolean getCompactCandidates() {
+        return compactCandidates;
+    }
+
+    /**
+     * @return how the engine searches; the population settings only apply to {@link SolverMode#POPULATION}
+     */
+    public SolverMode getSolverMode() {
+        return solverMode;
+    }
+
+    /**
+     * @return maximum number of nodes of the search tree that branch and bound expands per diet plan template
+     */
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * @return master seed of the random numbers; runs with the same seed and settings find the same diet plans
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public OptimizerSettings withNumberOfCandidates(final int numberOfCandidates) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.numberOfCandidates = numberOfCandidates;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withNumberOfActions(final int numberOfActions) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.numberOfActions = numberOfActions;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withEliminationInterval(final int eliminationInterval) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.eliminationInterval = eliminationInterval;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withMaxIterations(final int maxIterations) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.maxIterations = maxIterations;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withParallelism(final int parallelism) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.parallelism = parallelism;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withEliteSize(final int eliteSize) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.eliteSize = eliteSize;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withNumberOfIslands(final int numberOfIslands) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.numberOfIslands = numberOfIslands;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withMigrationInterval(final int migrationInterval) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.migrationInterval = migrationInterval;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withMigrationSize(final int migrationSize) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.migrationSize = migrationSize;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withMigrationTopology(final MigrationTopology migrationTopology) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.migrationTopology = migrationTopology;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withScoreMode(final ScoreMode scoreMode) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.scoreMode = scoreMode;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withPolishIterations(final int polishIterations) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.polishIterations = polishIterations;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withSearchStrategy(final SearchStrategy searchStrategy) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.searchStrategy = searchStrategy;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withWarmStart(final boolean warmStart) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.warmStart = warmStart;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withSelectionPolicy(final SelectionPolicy selectionPolicy) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.selectionPolicy = selectionPolicy;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withEliminationSize(final int eliminationSize) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.eliminationSize = eliminationSize;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withAdaptiveControl(final boolean adaptiveControl) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.adaptiveControl = adaptiveControl;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withEvaluationCacheSize(final int evaluationCacheSize) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.evaluationCacheSize = evaluationCacheSize;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withCompactCandidates(final boolean compactCandidates) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.compactCandidates = compactCandidates;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withSolverMode(final SolverMode solverMode) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.solverMode = solverMode;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withMaxNodes(final long maxNodes) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.maxNodes = maxNodes;
+        return settings.validated();
+    }
+
+    public OptimizerSettings withSeed(final long seed) {
+        final OptimizerSettings settings = new OptimizerSettings(this);
+        settings.seed = seed;
+        return settings.validated();
+    }
+
+    private static ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> getDefaultMealTemplates() {
+        final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplates =
+                new ArrayList<Pair<ArrayList<MealTemplate>, Limits2>>();
+
+        /* Generic meals
+        final ArrayList<MealTemplate> genericList = new ArrayList<MealTemplate>();
+        genericList.add(MealTemplate.GENERIC_MEAL);
+        mealTemplates.add(pair(genericList, limits2(0.0, 1.0)));
+        */
+
+        final ArrayList<MealTemplate> workList = new ArrayList<MealTemplate>();
+        workList.add(MealTemplate.RANDOM_MIX);
+        workList.add(MealTemplate.AVOCADO_ON_TOAST);
+        workList.add(MealTemplate.AVOCADO_SALAD);
+        workList.add(MealTemplate.CABBAGE_SALAD);
+        workList.add(MealTemplate.BOILED_EGGS);
+        workList.add(MealTemplate.QUINOA_SALAD);
+        workList.add(MealTemplate.AVOCADO_SALAD_WITH_RANDOM_MIX);
+        workList.add(MealTemplate.BOILED_EGGS_WITH_RANDOM_MIX);
+        workList.add(MealTemplate.CABBAGE_SALAD_WITH_BOILED_EGGS);
+        workList.add(MealTemplate.QUINOA_SALAD_WITH_RANDOM_MIX);
+        mealTemplates.add(pair(workList, limits2(0.34, 1.0)));
+
+        final ArrayList<MealTemplate> homeList = new ArrayList<MealTemplate>();
+        homeList.add(MealTemplate.RANDOM_MIX);
+        homeList.add(MealTemplate.ALMOND_MILK_SMOOTHIE);
+        homeList.add(MealTemplate.AVOCADO_ON_TOAST);
+        homeList.add(MealTemplate.AVOCADO_SALAD);
+        homeList.add(MealTemplate.BOILED_EGGS);
+        homeList.add(MealTemplate.CABBAGE_SALAD);
+        homeList.add(MealTemplate.FRIED_EGGS);
+        homeList.add(MealTemplate.QUINOA_SALAD);
+        homeList.add(MealTemplate.SCRAMBLED_EGGS);
+        homeList.add(MealTemplate.AVOCADO_ON_TOAST_WITH_FRIED_EGGS);
+        homeList.add(MealTemplate.AVOCADO_SALAD_WITH_RANDOM_MIX);
+        homeList.add(MealTemplate.BOILED_EGGS_WITH_RANDOM_MIX);
+        homeList.add(MealTemplate.CABBAGE_SALAD_WITH_BOILED_EGGS);
+        homeList.add(MealTemplate.FRIED_EGGS_WITH_RANDOM_MIX);
+        homeList.add(MealTemplate.QUINOA_SALAD_WITH_RANDOM_MIX);
+        homeList.add(MealTemplate.SCRAMBLED_EGGS_WITH_RANDOM_MIX);
+        mealTemplates.add(pair(homeList, limits2(0.0, 0.66)));
+
+        final ArrayList<MealTemplate> elaborateList = new ArrayList<MealTemplate>();
+        elaborateList.add(MealTemplate.STIR_FRY);
+        mealTemplates.add(pair(elaborateList, limits2(0.0, 0.2)));
+
+        /*
+        final ArrayList<MealTemplate> breakfastList = new ArrayList<MealTemplate>();
+        breakfastList.add(MealTemplate.BREAKFAST_1);
+        breakfastList.add(MealTemplate.BREAKFAST_2_WITH_CREAM);
+        breakfastList.add(MealTemplate.BREAKFAST_2_WITH_DOUBLE_CREAM);
+        breakfastList.add(MealTemplate.BREAKFAST_2_WITH_YOGHURT);
+        breakfastList.add(MealTemplate.SMOOTHIE_1_WITH_ALMONDS);
+        breakfastList.add(MealTemplate.SMOOTHIE_1_WITH_YOGHURT);
+        mealTemplates.add(pair(breakfastList, limits2(0.3, 1.0)));
+
+        final ArrayList<MealTemplate> saladList = new ArrayList<MealTemplate>();
+        saladList.add(MealTemplate.SALAD_1_WITH_MAYONNAISE);
+        saladList.add(MealTemplate.SALAD_1_WITH_SOUR_CREAM);
+        saladList.add(MealTemplate.SALAD_1_WITH_YOGHURT);
+        mealTemplates.add(pair(saladList, limits2(0.1, 1.0)));
+
+        final ArrayList<MealTemplate> stirFryList = new ArrayList<MealTemplate>();
+        stirFryList.add(MealTemplate.STIR_FRY_1);
+        mealTemplates.add(pair(stirFryList, limits2(0.1, 0.3)));
+        */
+
+        /*
+        final ArrayList<MealTemplate> breakfastList = new ArrayList<MealTemplate>();
+        breakfastList.add(MealTemplate.AVOCADO_ON_TOAST);
+        breakfastList.add(MealTemplate.MUESLI);
+        breakfastList.add(MealTemplate.SNACK);
+        mealTemplates.add(pair(breakfastList, limits2(0.3, 1.0)));
+
+        final ArrayList<MealTemplate> stirFryList = new ArrayList<MealTemplate>();
+        stirFryList.add(MealTemplate.STIR_FRY_WITH_GNOCCHI);
+        stirFryList.add(MealTemplate.STIR_FRY_WITH_PASTA);
+        stirFryList.add(MealTemplate.STIR_FRY_WITH_RICE);
+        mealTemplates.add(pair(stirFryList, limits2(0.0, 0.4)));
+
+        final ArrayList<MealTemplate> otherList = new ArrayList<MealTemplate>();
+        otherList.add(MealTemplate.SALAD);
+        otherList.add(MealTemplate.SMOOTHIE);
+        mealTemplates.add(pair(otherList, limits2(0.0, 1.0)));
+        */
+
+        return mealTemplates;
+    }
+}
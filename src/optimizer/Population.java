@@ -0,0 +1,213 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import util.IndexedHeap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static util.IndexedHeap.indexedHeap;
+
+/**
+ * Candidates of an island with indexed min-heaps on their peak and current total scores. Candidates are replaced in
+ * place; the heaps are updated in logarithmic time, so neither elimination nor the integration of immigrants scans the
+ * population. The candidates are also counted by the hashes of their diet plans, so that immigrants that are already
+ * in the population are found without a scan. A removed candidate is replaced by the last candidate, so positions are
+ * dense but not stable across removals.
+ * <p>
+ * Candidates that entered the population less than a given number of iterations ago are young: they are kept in a
+ * separate heap and are only eliminated if there is no older candidate.
+ */
+class Population {
+    private final ArrayList<Candidate> candidates;
+    private final List<Candidate> candidatesView;
+    private final int[] births; // Iteration in which the candidate at each position entered the population
+    private final int[] lastImprovements; // Iteration in which the peak total score of each candidate last increased
+    private final IndexedHeap oldCandidates; // Peak total scores of candidates that may be eliminated
+    private final IndexedHeap youngCandidates; // Peak total scores of protected candidates
+    private final IndexedHeap totalScores; // Current total scores of all candidates
+    private final HashMap<Long, Integer> hashCounts; // Number of candidates by the hashes of their diet plans
+    private final int protectedAge;
+
+    /**
+     * @param protectedAge Number of iterations for which new candidates are protected from elimination
+     */
+    Population(final List<Candidate> initialCandidates, final int protectedAge) {
+        final int size = initialCandidates.size();
+        candidates = new ArrayList<Candidate>(initialCandidates);
+        candidatesView = Collections.unmodifiableList(candidates);
+        births = new int[size];
+        lastImprovements = new int[size];
+        oldCandidates = indexedHeap(size);
+        youngCandidates = indexedHeap(size);
+        totalScores = indexedHeap(size);
+        hashCounts = new HashMap<Long, Integer>(2 * size);
+        this.protectedAge = protectedAge;
+        for (int i = 0; i < size; ++i) {
+            addToHeaps(i);
+            addHash(candidates.get(i));
+        }
+    }
+
+    int size() {
+        return candidates.size();
+    }
+
+    Candidate get(final int position) {
+        return candidates.get(position);
+    }
+
+    /**
+     * @return true if a candidate has a diet plan with the hash
+     */
+    boolean contains(final long hash) {
+        return hashCounts.containsKey(hash);
+    }
+
+    /**
+     * @return read-only view of the candidates in the order of their positions
+     */
+    List<Candidate> getCandidates() {
+        return candidatesView;
+    }
+
+    /**
+     * Replaces a candidate with its improved version, which keeps the age of the candidate.
+     *
+     * @param iteration Iteration that improved the candidate
+     */
+    void update(final int position, final Candidate candidate, final int iteration) {
+        if (candidate.getPeakTotalScore() > candidates.get(position).getPeakTotalScore()) {
+            lastImprovements[position] = iteration;
+        }
+        removeHash(candidates.get(position));
+        addHash(candidate);
+        candidates.set(position, candidate);
+        getPeakHeap(position).update(position, candidate.getPeakTotalScore());
+        totalScores.update(position, candidate.getTotalScore());
+    }
+
+    /**
+     * Replaces a candidate with a new candidate that enters the population in the given iteration.
+     */
+    void replace(final int position, final Candidate candidate, final int iteration) {
+        getPeakHeap(position).remove(position);
+        totalScores.remove(position);
+        removeHash(candidates.get(position));
+        addHash(candidate);
+        candidates.set(position, candidate);
+        births[position] = iteration;
+        lastImprovements[position] = iteration;
+        addToHeaps(position);
+    }
+
+    /**
+     * Removes a candidate; the last candidate takes its position.
+     */
+    void remove(final int position) {
+        getPeakHeap(position).remove(position);
+        totalScores.remove(position);
+        removeHash(candidates.get(position));
+        final int last = candidates.size() - 1;
+        if (position < last) {
+            final Candidate lastCandidate = candidates.get(last);
+            final IndexedHeap lastPeakHeap = getPeakHeap(last);
+            lastPeakHeap.remove(last);
+            totalScores.remove(last);
+            candidates.set(position, lastCandidate);
+            births[position] = births[last];
+            lastImprovements[position] = lastImprovements[last];
+            lastPeakHeap.add(position, lastCandidate.getPeakTotalScore());
+            totalScores.add(position, lastCandidate.getTotalScore());
+        }
+        candidates.remove(last);
+    }
+
+    /**
+     * @return position of the candidate with the lowest current total score; ties are resolved by the position
+     */
+    int getLowestTotalScore() {
+        return totalScores.peek();
+    }
+
+    /**
+     * @return position of the candidate with the lowest peak total score among the candidates that are old enough to
+     * be eliminated, or among the young candidates if there is no such candidate; ties are resolved by the position
+     */
+    int getLowestPeakTotalScore(final int iteration) {
+        ageCandidates(iteration);
+        return oldCandidates.isEmpty() ? youngCandidates.peek() : oldCandidates.peek();
+    }
+
+    /**
+     * @return iteration in which the peak total score of the candidate last increased or the candidate entered the
+     * population
+     */
+    int getLastImprovement(final int position) {
+        return lastImprovements[position];
+    }
+
+    private void addToHeaps(final int position) {
+        final Candidate candidate = candidates.get(position);
+        (protectedAge > 0 ? youngCandidates : oldCandidates).add(position, candidate.getPeakTotalScore());
+        totalScores.add(position, candidate.getTotalScore());
+    }
+
+    private void addHash(final Candidate candidate) {
+        final Integer count = hashCounts.get(candidate.getHash());
+        hashCounts.put(candidate.getHash(), count == null ? 1 : count + 1);
+    }
+
+    private void removeHash(final Candidate candidate) {
+        final int count = hashCounts.get(candidate.getHash());
+        if (count == 1) {
+            hashCounts.remove(candidate.getHash());
+        } else {
+            hashCounts.put(candidate.getHash(), count - 1);
+        }
+    }
+
+    private IndexedHeap getPeakHeap(final int position) {
+        return youngCandidates.contains(position) ? youngCandidates : oldCandidates;
+    }
+
+    /**
+     * Moves the candidates that are no longer young to the heap of old candidates. Only new candidates are young, so
+     * this takes time in proportion to the number of new candidates.
+     */
+    private void ageCandidates(final int iteration) {
+        final int[] agedPositions = new int[youngCandidates.size()];
+        int count = 0;
+        for (int i = 0; i < youngCandidates.size(); ++i) {
+            final int position = youngCandidates.getItem(i);
+            if (iteration - births[position] >= protectedAge) {
+                agedPositions[count++] = position;
+            }
+        }
+        for (int i = 0; i < count; ++i) {
+            youngCandidates.remove(agedPositions[i]);
+            oldCandidates.add(agedPositions[i], candidates.get(agedPositions[i]).getPeakTotalScore());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+/**
+ * Decides how many actions an island tries per candidate and when it eliminates candidates. Each island has its own
+ * control, which is only used by the thread of the island.
+ */
+abstract class PopulationControl {
+    /**
+     * @return control with the constant number of actions, elimination interval and elimination size of the settings
+     */
+    static PopulationControl fixedControl(final OptimizerSettings settings) {
+        return new PopulationControl() {
+            @Override
+            int getNumberOfActions() {
+                return settings.getNumberOfActions();
+            }
+
+            @Override
+            void update(final Population population,
+                        final int iteration,
+                        final int improvedCandidates,
+                        final int numberOfEvaluations,
+                        final long nanos) {
+            }
+
+            @Override
+            int getNumberOfEliminations(final Population population, final int iteration) {
+                return iteration % settings.getEliminationInterval() == 0 ? settings.getEliminationSize() : 0;
+            }
+        };
+    }
+
+    /**
+     * @param initialSize Size of the initial population of the island
+     */
+    static PopulationControl adaptiveControl(final OptimizerSettings settings, final int initialSize) {
+        return new AdaptiveControl(settings, initialSize);
+    }
+
+    PopulationControl() {
+    }
+
+    /**
+     * @return number of actions for each candidate in the next iteration
+     */
+    abstract int getNumberOfActions();
+
+    /**
+     * Records the outcome of an iteration.
+     *
+     * @param population          Population after the iteration
+     * @param iteration           Number of completed iterations
+     * @param improvedCandidates  Number of candidates whose peak total scores have increased in the iteration
+     * @param numberOfEvaluations Number of actions that have been tried in the iteration
+     * @param nanos               Time needed to improve the candidates
+     */
+    abstract void update(Population population,
+                         int iteration,
+                         int improvedCandidates,
+                         int numberOfEvaluations,
+                         long nanos);
+
+    /**
+     * @param iteration Number of completed iterations
+     * @return number of candidates to eliminate after the iteration
+     */
+    abstract int getNumberOfEliminations(Population population, int iteration);
+}
@@ -0,0 +1,85 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.Scores;
+
+import java.util.function.Function;
+
+/**
+ * Strategy for improving a single candidate in an iteration. All strategies are built on the same moves (adding or
+ * removing portions of ingredients) and use the same evaluation function.
+ */
+public abstract class SearchStrategy {
+    /**
+     * Tries random moves and keeps the best of the moves that improve the score with the greatest potential, as long
+     * as the total score doesn't get worse.
+     */
+    public static SearchStrategy hillClimbing() {
+        return new HillClimbing();
+    }
+
+    /**
+     * Each candidate is an independent annealing chain; moves that lower the total score are accepted with a
+     * probability that depends on the temperature.
+     */
+    public static SearchStrategy simulatedAnnealing(final CoolingSchedule coolingSchedule) {
+        return new SimulatedAnnealing(coolingSchedule);
+    }
+
+    /**
+     * Changes several portions of a parent at once; small changes are more likely than large changes. A child replaces
+     * the candidate if it is better.
+     *
+     * @param maxDistance         Maximum number of portion changes of a child
+     * @param distanceDecay       Ratio of the probabilities of consecutive distances, between 0.0 (excl.) and 1.0
+     *                            (incl.)
+     * @param parentSelectionRate Probability that the parent of a child is selected from all candidates in proportion
+     *                            to their total scores instead of being the candidate itself; such a child must also
+     *                            be better than its parent
+     */
+    public static SearchStrategy distanceSampling(final int maxDistance,
+                                                  final double distanceDecay,
+                                                  final double parentSelectionRate) {
+        return new DistanceSampling(maxDistance, distanceDecay, parentSelectionRate);
+    }
+
+    /**
+     * Distance sampling with up to 8 portion changes, each half as likely as the previous one. With the default number
+     * of actions, a candidate creates about one child of another parent per iteration.
+     */
+    public static SearchStrategy distanceSampling() {
+        return distanceSampling(8, 0.5, 0.05);
+    }
+
+    SearchStrategy() {
+    }
+
+    /**
+     * @param index Index of the candidate in the generation
+     * @return improved candidate or the candidate itself
+     */
+    abstract Candidate improve(Generation generation,
+                               int index,
+                               Function<DietPlan, Scores> evaluationFunction,
+                               int numberOfActions);
+}
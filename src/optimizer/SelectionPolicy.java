@@ -0,0 +1,103 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import util.RandomSource;
+
+/**
+ * Decides which candidate of an island is eliminated. Candidates are compared by their peak total scores, so a
+ * candidate that is temporarily worse, e.g. in simulated annealing, is not punished for it.
+ */
+public abstract class SelectionPolicy {
+    /**
+     * Eliminates the candidate with the lowest peak total score.
+     */
+    public static SelectionPolicy truncation() {
+        return ageLayered(0);
+    }
+
+    /**
+     * Eliminates the worst of a number of randomly drawn candidates, so weak candidates survive with some probability
+     * and the population stays more diverse.
+     *
+     * @param size Number of candidates that are drawn with replacement; a greater size means a stronger selection
+     */
+    public static SelectionPolicy tournament(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid tournament size: " + size);
+        }
+        return new SelectionPolicy(0) {
+            @Override
+            int select(final Population population, final RandomSource random, final int iteration) {
+                int worstPosition = random.nextInt(population.size());
+                for (int i = 1; i < size; ++i) {
+                    final int position = random.nextInt(population.size());
+                    final double peakTotalScore = population.get(position).getPeakTotalScore();
+                    final double worstPeakTotalScore = population.get(worstPosition).getPeakTotalScore();
+                    if (peakTotalScore < worstPeakTotalScore ||
+                            peakTotalScore == worstPeakTotalScore && position < worstPosition) {
+                        worstPosition = position;
+                    }
+                }
+                return worstPosition;
+            }
+        };
+    }
+
+    /**
+     * Divides the population into two age layers: candidates that entered the population less than the given number
+     * of iterations ago, i.e. the initial candidates and immigrants, only compete with each other, and only if there
+     * is no older candidate. New genetic material gets time to improve before it has to compete with established
+     * candidates. Within a layer, the candidate with the lowest peak total score is eliminated.
+     *
+     * @param protectedAge Number of iterations for which new candidates are protected
+     */
+    public static SelectionPolicy ageLayered(final int protectedAge) {
+        if (protectedAge < 0) {
+            throw new IllegalArgumentException("Invalid protected age: " + protectedAge);
+        }
+        return new SelectionPolicy(protectedAge) {
+            @Override
+            int select(final Population population, final RandomSource random, final int iteration) {
+                return population.getLowestPeakTotalScore(iteration);
+            }
+        };
+    }
+
+    private final int protectedAge;
+
+    SelectionPolicy(final int protectedAge) {
+        this.protectedAge = protectedAge;
+    }
+
+    /**
+     * @return number of iterations for which new candidates are protected from elimination
+     */
+    int getProtectedAge() {
+        return protectedAge;
+    }
+
+    /**
+     * @param iteration Number of completed iterations of the island
+     * @return position of the candidate to be eliminated; the population has at least two candidates
+     */
+    abstract int select(Population population, RandomSource random, int iteration);
+}
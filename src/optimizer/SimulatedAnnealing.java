@@ -0,0 +1,91 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+import diet.DietPlan;
+import diet.FoodItem;
+import diet.Scores;
+import util.Evaluation;
+import util.Pair;
+import util.RandomSource;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.lang.Math.log;
+import static java.lang.Math.max;
+import static optimizer.Candidate.candidate;
+import static util.Evaluation.evaluation;
+
+/**
+ * Simulated annealing with the Metropolis criterion on the total score. Every action is a single move that is
+ * accepted or rejected immediately, so a candidate can cross plateaus and valleys of the total score.
+ */
+class SimulatedAnnealing extends SearchStrategy {
+    private final CoolingSchedule coolingSchedule;
+
+    SimulatedAnnealing(final CoolingSchedule coolingSchedule) {
+        this.coolingSchedule = coolingSchedule;
+    }
+
+    @Override
+    Candidate improve(final Generation generation,
+                      final int index,
+                      final Function<DietPlan, Scores> evaluationFunction,
+                      final int numberOfActions) {
+        final Candidate candidate = generation.getCandidate(index);
+        final RandomSource random = candidate.getRandom();
+        final double temperature = coolingSchedule.getTemperature(generation.getIteration());
+        Evaluation<DietPlan> current = generation.getEvaluation(index);
+        double currentTotalScore = current.getTotalScore();
+        double peakTotalScore = candidate.getPeakTotalScore();
+        boolean changed = false;
+
+        for (int i = 0; i < numberOfActions; ++i) {
+            final DietPlan dietPlan = current.getObject();
+            final ArrayList<Pair<Integer, FoodItem>> variableIngredients = dietPlan.getVariableIngredients();
+            final Pair<Integer, FoodItem> ingredientId =
+                    variableIngredients.get(random.nextInt(variableIngredients.size()));
+            final Optional<DietPlan> maybeNewDietPlan = random.nextBoolean() ?
+                    dietPlan.addPortion(ingredientId) :
+                    dietPlan.removePortion(ingredientId);
+            if (!maybeNewDietPlan.isPresent()) {
+                continue;
+            }
+
+            // A move is accepted with probability min(1, exp(diff / temperature)). Drawing the random number first
+            // turns this into a threshold, so the total score is only computed as far as necessary to compare it.
+            final double threshold = temperature > 0.0 ?
+                    currentTotalScore + temperature * log(1.0 - random.nextDouble()) :
+                    currentTotalScore;
+            final Evaluation<DietPlan> newCandidate = evaluation(maybeNewDietPlan.get(), evaluationFunction);
+            if (newCandidate.getTotalScore(threshold) >= threshold) {
+                current = newCandidate;
+                currentTotalScore = newCandidate.getTotalScore();
+                peakTotalScore = max(peakTotalScore, currentTotalScore);
+                changed = true;
+            }
+        }
+
+        return changed ? candidate(current, peakTotalScore, random) : candidate;
+    }
+}
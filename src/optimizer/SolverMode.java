@@ -0,0 +1,39 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package optimizer;
+
+/**
+ * Defines how the engine searches for the best diet plan.
+ */
+public enum SolverMode {
+    /**
+     * A population of candidates with random diet plan templates is improved by the search strategy. Meal templates
+     * are swapped during the search, so the candidates explore the templates as well as the portions.
+     */
+    POPULATION,
+    /**
+     * Each iteration draws a random diet plan template and optimizes its portions exactly by branch and bound until
+     * optimality is proven or the node limit is reached. This pays off for templates with few meals, where the search
+     * tree is small enough to be searched completely; the snapshots report a certified upper bound of the total score
+     * of all diet plans of the solved templates. The run ends when random draws only find solved templates.
+     */
+    BRANCH_AND_BOUND
+}
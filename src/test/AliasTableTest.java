@@ -0,0 +1,58 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package test;
+
+import util.AliasTable;
+import util.RandomSource;
+
+import static util.AliasTable.aliasTable;
+import static util.RandomSource.randomSource;
+
+public class AliasTableTest {
+    private static final int NUMBER_OF_SAMPLES = 100000;
+
+    public static void runTests() {
+        runDistributionTests();
+        runDegenerateTests();
+    }
+
+    private static void runDistributionTests() {
+        final double[] weights = new double[]{1.0, 0.0, 3.0, 4.0, 2.0};
+        final AliasTable aliasTable = aliasTable(weights);
+        final RandomSource random = randomSource(0L);
+        final int[] counts = new int[weights.length];
+        for (int i = 0; i < NUMBER_OF_SAMPLES; ++i) {
+            ++counts[aliasTable.sample(random)];
+        }
+        for (int i = 0; i < weights.length; ++i) {
+            Test.test(weights[i] / 10.0, (double) counts[i] / NUMBER_OF_SAMPLES, 0.01);
+        }
+        Test.test(0, counts[1]);
+    }
+
+    private static void runDegenerateTests() {
+        final AliasTable aliasTable = aliasTable(new double[]{0.0, 5.0, 0.0});
+        final RandomSource random = randomSource(0L);
+        for (int i = 0; i < 100; ++i) {
+            Test.test(1, aliasTable.sample(random));
+        }
+    }
+}
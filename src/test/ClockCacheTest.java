@@ -0,0 +1,114 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package test;
+
+import util.ClockCache;
+import util.RandomSource;
+
+import java.util.HashMap;
+import java.util.Optional;
+
+import static util.ClockCache.clockCache;
+import static util.RandomSource.randomSource;
+
+public class ClockCacheTest {
+    public static void runTests() {
+        runEvictionTests();
+        runRandomTests();
+        runConcurrentTests();
+    }
+
+    private static void runEvictionTests() {
+        final ClockCache<String> cache = clockCache(4); // A single bucket
+        cache.put(1L, "a");
+        cache.put(2L, "b");
+        cache.put(3L, "c");
+        cache.put(4L, "d");
+        cache.put(4L, "e"); // Replaces the value
+        Test.test(4, cache.size());
+        Test.test(Optional.of("a"), cache.get(1L));
+
+        // The hand skips the entry that has been read and evicts the next one.
+        cache.put(5L, "f");
+        Test.test(4, cache.size());
+        Test.test(Optional.of("a"), cache.get(1L));
+        Test.test(Optional.<String>empty(), cache.get(2L));
+        Test.test(Optional.of("c"), cache.get(3L));
+        Test.test(Optional.of("e"), cache.get(4L));
+        Test.test(Optional.of("f"), cache.get(5L));
+    }
+
+    private static void runRandomTests() {
+        // Keys with equal lowest bits, so that they compete for the slots of a single bucket
+        final ClockCache<Long> cache = clockCache(64);
+        final HashMap<Long, Long> values = new HashMap<Long, Long>();
+        final RandomSource random = randomSource(0L);
+        for (int i = 0; i < 10000; ++i) {
+            final long key = random.nextInt(200) * 64L;
+            if (random.nextBoolean()) {
+                cache.put(key, (long) i);
+                values.put(key, (long) i);
+                Test.test(Optional.of((long) i), cache.get(key));
+            } else {
+                final Optional<Long> value = cache.get(key);
+                if (value.isPresent()) {
+                    Test.test(values.get(key), value.get());
+                }
+            }
+            Test.test(true, cache.size() <= 64);
+        }
+    }
+
+    private static void runConcurrentTests() {
+        // Each key has a single value, so any value that is found must belong to its key.
+        final ClockCache<Long> cache = clockCache(256);
+        final Thread[] threads = new Thread[4];
+        final boolean[] failed = new boolean[threads.length];
+        for (int t = 0; t < threads.length; ++t) {
+            final int threadIndex = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final RandomSource random = randomSource(threadIndex);
+                    for (int i = 0; i < 100000; ++i) {
+                        final long key = random.nextInt(1000);
+                        final Optional<Long> value = cache.get(key);
+                        if (value.isPresent()) {
+                            failed[threadIndex] |= value.get() != 2 * key;
+                        } else {
+                            cache.put(key, 2 * key);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; ++t) {
+            try {
+                threads[t].join();
+            } catch (final InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            Test.test(false, failed[t]);
+        }
+        Test.test(true, cache.size() <= 256);
+    }
+}
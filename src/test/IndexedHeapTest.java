@@ -0,0 +1,90 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package test;
+
+import util.IndexedHeap;
+import util.RandomSource;
+
+import java.util.Arrays;
+
+import static util.IndexedHeap.indexedHeap;
+import static util.RandomSource.randomSource;
+
+public class IndexedHeapTest {
+    public static void runTests() {
+        runOrderTests();
+        runRandomTests();
+    }
+
+    private static void runOrderTests() {
+        final IndexedHeap heap = indexedHeap(2);
+        heap.add(0, 3.0);
+        heap.add(1, 1.0);
+        heap.add(4, 1.0); // Grows the heap
+        heap.add(2, 2.0);
+        Test.test(4, heap.size());
+        Test.test(1, heap.peek()); // Tie with item 4
+        heap.update(1, 5.0);
+        Test.test(4, heap.peek());
+        heap.remove(4);
+        Test.test(2, heap.peek());
+        Test.test(false, heap.contains(4));
+        Test.test(5.0, heap.getKey(1), 0.0);
+        heap.update(0, 0.5);
+        Test.test(0, heap.peek());
+    }
+
+    private static void runRandomTests() {
+        final int capacity = 50;
+        final IndexedHeap heap = indexedHeap(capacity);
+        final double[] keys = new double[capacity];
+        Arrays.fill(keys, Double.NaN);
+        final RandomSource random = randomSource(0L);
+        for (int i = 0; i < 10000; ++i) {
+            final int item = random.nextInt(capacity);
+            final double key = random.nextInt(10); // Many ties
+            if (heap.contains(item)) {
+                if (random.nextBoolean()) {
+                    heap.update(item, key);
+                    keys[item] = key;
+                } else {
+                    heap.remove(item);
+                    keys[item] = Double.NaN;
+                }
+            } else {
+                heap.add(item, key);
+                keys[item] = key;
+            }
+
+            int minItem = -1;
+            for (int j = 0; j < capacity; ++j) {
+                if (!Double.isNaN(keys[j]) && (minItem < 0 || keys[j] < keys[minItem])) {
+                    minItem = j;
+                }
+            }
+            if (minItem >= 0) {
+                Test.test(minItem, heap.peek());
+            } else {
+                Test.test(true, heap.isEmpty());
+            }
+        }
+    }
+}
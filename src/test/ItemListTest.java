@@ -0,0 +1,85 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package test;
+
+import diet.FoodItem;
+import diet.FoodItems;
+
+public class ItemListTest {
+    private static final double TEST_TOLERANCE = 1e-9;
+
+    public static void runTests() {
+        runSetTests();
+        runIterationTests();
+        runAddTests();
+    }
+
+    private static void runSetTests() {
+        final FoodItems foodItems = new FoodItems();
+        Test.test(0.0, foodItems.get(FoodItem.COLES_AVOCADO), TEST_TOLERANCE);
+        foodItems.set(FoodItem.COLES_AVOCADO, 2.5);
+        Test.test(2.5, foodItems.get(FoodItem.COLES_AVOCADO), TEST_TOLERANCE);
+        Test.test(1, foodItems.getCount());
+        foodItems.set(FoodItem.COLES_AVOCADO, -1.0);
+        Test.test(0.0, foodItems.get(FoodItem.COLES_AVOCADO), TEST_TOLERANCE);
+        Test.test(0, foodItems.getCount());
+    }
+
+    private static void runIterationTests() {
+        final FoodItem[] items = FoodItem.values();
+        final FoodItems foodItems = new FoodItems();
+        Test.test(-1, foodItems.firstIndex());
+
+        // Items in different words of the bit set, including the first and the last item
+        final int[] expected = new int[]{0, 1, 63, 64, 65, 127, 128, items.length - 1};
+        for (final int index : expected) {
+            foodItems.set(items[index], index + 1.0);
+        }
+        final int[] actual = new int[foodItems.getCount()];
+        int count = 0;
+        for (int index = foodItems.firstIndex(); index >= 0; index = foodItems.nextIndex(index)) {
+            actual[count++] = index;
+            Test.test(items[index], foodItems.getItem(index));
+            Test.test(index + 1.0, foodItems.getAmount(index), TEST_TOLERANCE);
+        }
+        Test.testArray(expected, actual);
+    }
+
+    private static void runAddTests() {
+        final FoodItems foodItems = new FoodItems();
+        foodItems.set(FoodItem.COLES_AVOCADO, 1.0);
+        foodItems.set(FoodItem.COLES_BANANA, 2.0);
+        final FoodItems toAdd = new FoodItems();
+        toAdd.set(FoodItem.COLES_BANANA, 1.0);
+        toAdd.set(FoodItem.COLES_CARROT, 3.0);
+
+        foodItems.add(toAdd);
+        Test.test(1.0, foodItems.get(FoodItem.COLES_AVOCADO), TEST_TOLERANCE);
+        Test.test(3.0, foodItems.get(FoodItem.COLES_BANANA), TEST_TOLERANCE);
+        Test.test(3.0, foodItems.get(FoodItem.COLES_CARROT), TEST_TOLERANCE);
+
+        foodItems.addScaled(toAdd, -3.0);
+        Test.test(1.0, foodItems.get(FoodItem.COLES_AVOCADO), TEST_TOLERANCE);
+        Test.test(0.0, foodItems.get(FoodItem.COLES_BANANA), TEST_TOLERANCE);
+        Test.test(0.0, foodItems.get(FoodItem.COLES_CARROT), TEST_TOLERANCE);
+        Test.test(1, foodItems.getCount());
+    }
+}
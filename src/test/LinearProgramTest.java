@@ -0,0 +1,80 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package test;
+
+import util.LinearProgram;
+
+import java.util.Optional;
+
+import static util.LinearProgram.linearProgram;
+
+public class LinearProgramTest {
+    private static final double TEST_TOLERANCE = 1e-9;
+
+    public static void runTests() {
+        runOptimumTests();
+        runRangeTests();
+        runInfeasibilityTests();
+    }
+
+    private static void runOptimumTests() {
+        // Maximize x + y with x + 2y <= 4 and 3x + y <= 6
+        final LinearProgram linearProgram = linearProgram();
+        final int x = linearProgram.addVariable(0.0, Double.POSITIVE_INFINITY, -1.0);
+        final int y = linearProgram.addVariable(0.0, Double.POSITIVE_INFINITY, -1.0);
+        linearProgram.addConstraint(new int[]{x, y}, new double[]{1.0, 2.0}, Double.NEGATIVE_INFINITY, 4.0);
+        linearProgram.addConstraint(new int[]{x, y}, new double[]{3.0, 1.0}, Double.NEGATIVE_INFINITY, 6.0);
+        final double[] solution = linearProgram.minimize().get();
+        Test.test(1.6, solution[x], TEST_TOLERANCE);
+        Test.test(1.2, solution[y], TEST_TOLERANCE);
+
+        // Unbounded
+        final LinearProgram unbounded = linearProgram();
+        final int z = unbounded.addVariable(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 1.0);
+        unbounded.addConstraint(new int[]{z}, new double[]{1.0}, Double.NEGATIVE_INFINITY, 1.0);
+        Test.test(false, unbounded.minimize().isPresent());
+    }
+
+    private static void runRangeTests() {
+        // Minimize the deviations of x + y from [3, 4] and of x - y from 2 with x in [0, 2] and y in [0, 5]
+        final LinearProgram linearProgram = linearProgram();
+        final int x = linearProgram.addVariable(0.0, 2.0, 0.0);
+        final int y = linearProgram.addVariable(0.0, 5.0, 0.0);
+        final int below = linearProgram.addVariable(0.0, Double.POSITIVE_INFINITY, 1.0);
+        final int above = linearProgram.addVariable(0.0, Double.POSITIVE_INFINITY, 1.0);
+        linearProgram.addConstraint(new int[]{x, y}, new double[]{1.0, 1.0}, 3.0, 4.0);
+        linearProgram.addConstraint(new int[]{x, y, below, above}, new double[]{1.0, -1.0, 1.0, -1.0}, 2.0, 2.0);
+        final double[] solution = linearProgram.minimize().get();
+        Test.test(2.0, solution[x], TEST_TOLERANCE);
+        Test.test(1.0, solution[y], TEST_TOLERANCE);
+        Test.test(1.0, solution[below], TEST_TOLERANCE);
+        Test.test(0.0, solution[above], TEST_TOLERANCE);
+    }
+
+    private static void runInfeasibilityTests() {
+        final LinearProgram linearProgram = linearProgram();
+        final int x = linearProgram.addVariable(0.0, 1.0, 1.0);
+        final int y = linearProgram.addVariable(0.0, 1.0, 1.0);
+        linearProgram.addConstraint(new int[]{x, y}, new double[]{1.0, 1.0}, 3.0, Double.POSITIVE_INFINITY);
+        final Optional<double[]> maybeSolution = linearProgram.minimize();
+        Test.test(false, maybeSolution.isPresent());
+    }
+}
@@ -0,0 +1,286 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package test;
+
+import diet.DietPlan;
+import diet.PersonalDetails;
+import diet.Requirements;
+import optimizer.CoolingSchedule;
+import optimizer.CoolingSchedules;
+import optimizer.MigrationTopology;
+import optimizer.OptimizationEngine;
+import optimizer.OptimizationListener;
+import optimizer.OptimizationSnapshot;
+import optimizer.OptimizerSettings;
+import optimizer.SearchStrategy;
+import optimizer.SelectionPolicy;
+import optimizer.SolverMode;
+import util.Evaluation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static optimizer.OptimizationEngine.optimizationEngine;
+import static optimizer.OptimizerSettings.defaultSettings;
+import static optimizer.OptimizerSettings.optimizerSettings;
+
+public class OptimizationEngineTest {
+    private static final OptimizerSettings SETTINGS = defaultSettings()
+            .withNumberOfCandidates(20)
+            .withNumberOfActions(5)
+            .withEliminationInterval(2)
+            .withMaxIterations(5)
+            .withEliteSize(3)
+            .withSeed(1L);
+
+    public static void runTests() {
+        runReproducibilityTests();
+        runSnapshotTests();
+        runIslandTests();
+        runListenerTests();
+        runAnnealingTests();
+        runDistanceSamplingTests();
+        runSelectionTests();
+        runAdaptiveControlTests();
+        runEvaluationCacheTests();
+        runCompactCandidateTests();
+        runPolishTests();
+        runBranchAndBoundTests();
+        runStopTests();
+    }
+
+    private static void runReproducibilityTests() {
+        final OptimizationSnapshot snapshot1 = runEngine(SETTINGS.withParallelism(1));
+        final OptimizationSnapshot snapshot2 = runEngine(SETTINGS.withParallelism(2));
+        Test.test(5, snapshot1.getIterations());
+        Test.test(18, snapshot1.getNumberOfCandidates());
+        Test.test(true, snapshot1.getBest().isPresent());
+        Test.test(snapshot1.getBest().get().getTotalScore(), snapshot2.getBest().get().getTotalScore(), 0.0);
+    }
+
+    private static void runSnapshotTests() {
+        final OptimizationSnapshot snapshot = runEngine(SETTINGS);
+        final List<Evaluation<DietPlan>> elite = snapshot.getElite();
+        Test.test(3, elite.size());
+        for (int i = 1; i < elite.size(); ++i) {
+            Test.test(true, elite.get(i - 1).getTotalScore() >= elite.get(i).getTotalScore());
+        }
+        Test.test(true, snapshot.getBest().get().getTotalScore() >= elite.get(0).getTotalScore());
+    }
+
+    private static void runIslandTests() {
+        final OptimizationSnapshot snapshot = runEngine(SETTINGS
+                .withNumberOfIslands(3)
+                .withMigrationInterval(2)
+                .withMigrationTopology(MigrationTopology.FULLY_CONNECTED));
+        Test.test(5, snapshot.getIterations());
+        Test.test(14, snapshot.getNumberOfCandidates()); // 7 + 7 + 6 candidates, two eliminations per island
+        Test.test(3, snapshot.getElite().size());
+        Test.test(true, snapshot.getBest().get().getTotalScore() >= snapshot.getElite().get(0).getTotalScore());
+        Test.test(true, snapshot.getNumberOfImmigrants() > 0);
+
+        // Without emigrants, the islands stay apart.
+        final OptimizationSnapshot isolatedSnapshot = runEngine(SETTINGS
+                .withNumberOfIslands(3)
+                .withMigrationSize(0));
+        Test.test(0, isolatedSnapshot.getNumberOfImmigrants());
+    }
+
+    private static void runListenerTests() {
+        final OptimizationEngine engine = optimizationEngine(SETTINGS
+                .withNumberOfIslands(4)
+                .withParallelism(4)
+                .withMaxIterations(20));
+        final AtomicInteger activeCalls = new AtomicInteger(0);
+        final AtomicInteger concurrentCalls = new AtomicInteger(0);
+        final ArrayList<Double> reportedTotalScores = new ArrayList<Double>();
+        engine.addListener(new OptimizationListener() {
+            @Override
+            public void bestDietPlanFound(final Evaluation<DietPlan> best, final OptimizationSnapshot snapshot) {
+                enter();
+                reportedTotalScores.add(best.getTotalScore());
+                Thread.yield();
+                activeCalls.decrementAndGet();
+            }
+
+            @Override
+            public void candidateEliminated(final OptimizationSnapshot snapshot) {
+                enter();
+                Thread.yield();
+                activeCalls.decrementAndGet();
+            }
+
+            @Override
+            public void optimizationFinished(final OptimizationSnapshot snapshot) {
+            }
+
+            private void enter() {
+                if (activeCalls.incrementAndGet() > 1) {
+                    concurrentCalls.incrementAndGet();
+                }
+            }
+        });
+        engine.run();
+
+        // Listeners are called one at a time and the reported best diet plans only get better.
+        Test.test(0, concurrentCalls.get());
+        Test.test(true, !reportedTotalScores.isEmpty());
+        for (int i = 1; i < reportedTotalScores.size(); ++i) {
+            Test.test(true, reportedTotalScores.get(i) > reportedTotalScores.get(i - 1));
+        }
+        Test.test(engine.getSnapshot().getBest().get().getTotalScore(),
+                reportedTotalScores.get(reportedTotalScores.size() - 1), 0.0);
+    }
+
+    private static void runAnnealingTests() {
+        final CoolingSchedule exponential = CoolingSchedules.exponential(1.0, 0.5, 0.1);
+        Test.test(1.0, exponential.getTemperature(0), 0.0);
+        Test.test(0.25, exponential.getTemperature(2), 0.0);
+        Test.test(0.1, exponential.getTemperature(10), 0.0);
+        final CoolingSchedule linear = CoolingSchedules.linear(1.0, 4);
+        Test.test(0.75, linear.getTemperature(1), 0.0);
+        Test.test(0.0, linear.getTemperature(5), 0.0);
+
+        final OptimizerSettings settings =
+                SETTINGS.withSearchStrategy(SearchStrategy.simulatedAnnealing(CoolingSchedules.standard()));
+        final OptimizationSnapshot snapshot1 = runEngine(settings.withParallelism(1));
+        final OptimizationSnapshot snapshot2 = runEngine(settings.withParallelism(2));
+        Test.test(5, snapshot1.getIterations());
+        Test.test(true, snapshot1.getBest().isPresent());
+        Test.test(snapshot1.getBest().get().getTotalScore(), snapshot2.getBest().get().getTotalScore(), 0.0);
+    }
+
+    private static void runDistanceSamplingTests() {
+        final OptimizerSettings settings = SETTINGS.withSearchStrategy(SearchStrategy.distanceSampling());
+        final OptimizationSnapshot snapshot1 = runEngine(settings.withParallelism(1));
+        final OptimizationSnapshot snapshot2 = runEngine(settings.withParallelism(2));
+        Test.test(5, snapshot1.getIterations());
+        Test.test(snapshot1.getBest().get().getTotalScore(), snapshot2.getBest().get().getTotalScore(), 0.0);
+        Test.test(true, snapshot1.getBest().get().getTotalScore() >=
+                runEngine(settings.withMaxIterations(1)).getBest().get().getTotalScore());
+    }
+
+    private static void runSelectionTests() {
+        final OptimizerSettings tournament =
+                SETTINGS.withSelectionPolicy(SelectionPolicy.tournament(3)).withEliminationSize(2);
+        final OptimizationSnapshot snapshot1 = runEngine(tournament.withParallelism(1));
+        final OptimizationSnapshot snapshot2 = runEngine(tournament.withParallelism(2));
+        Test.test(16, snapshot1.getNumberOfCandidates()); // Two eliminations of two candidates
+        Test.test(snapshot1.getBest().get().getTotalScore(), snapshot2.getBest().get().getTotalScore(), 0.0);
+
+        final OptimizationSnapshot ageLayered = runEngine(SETTINGS
+                .withSelectionPolicy(SelectionPolicy.ageLayered(3))
+                .withNumberOfIslands(2)
+                .withMigrationInterval(1));
+        Test.test(16, ageLayered.getNumberOfCandidates());
+        Test.test(true, ageLayered.getBest().get().getTotalScore() >= ageLayered.getElite().get(0).getTotalScore());
+
+        final OptimizationSnapshot lastCandidate = runEngine(SETTINGS.withNumberOfCandidates(3).withEliminationSize(5));
+        Test.test(1, lastCandidate.getNumberOfCandidates());
+    }
+
+    private static void runAdaptiveControlTests() {
+        final OptimizationSnapshot snapshot = runEngine(SETTINGS.withAdaptiveControl(true).withMaxIterations(40));
+        Test.test(40, snapshot.getIterations());
+        Test.test(true, snapshot.getNumberOfCandidates() >= 2); // Never below a tenth of the initial population
+        Test.test(true, snapshot.getNumberOfCandidates() <= 20);
+        Test.test(true, snapshot.getBest().get().getTotalScore() >=
+                runEngine(SETTINGS.withMaxIterations(1)).getBest().get().getTotalScore());
+    }
+
+    private static void runEvaluationCacheTests() {
+        final OptimizationSnapshot snapshot = runEngine(SETTINGS.withEvaluationCacheSize(100).withParallelism(1));
+        Test.test(runEngine(SETTINGS.withParallelism(1)).getBest().get().getTotalScore(),
+                snapshot.getBest().get().getTotalScore(), 1e-9);
+    }
+
+    private static void runCompactCandidateTests() {
+        final OptimizationSnapshot snapshot = runEngine(SETTINGS.withCompactCandidates(true).withParallelism(1));
+        Test.test(18, snapshot.getNumberOfCandidates());
+        Test.test(runEngine(SETTINGS.withParallelism(1)).getBest().get().getTotalScore(),
+                snapshot.getBest().get().getTotalScore(), 1e-9);
+    }
+
+    private static void runPolishTests() {
+        // The elite is improved with exact scores after the last iteration.
+        final OptimizationSnapshot snapshot = runEngine(SETTINGS.withParallelism(1));
+        final OptimizationSnapshot polishedSnapshot = runEngine(SETTINGS.withPolishIterations(3).withParallelism(1));
+        Test.test(8, polishedSnapshot.getIterations());
+        Test.test(3, polishedSnapshot.getNumberOfCandidates());
+        Test.test(true, polishedSnapshot.getBest().get().getTotalScore() >=
+                snapshot.getBest().get().getTotalScore());
+        Test.test(polishedSnapshot.getBest().get().getTotalScore(),
+                polishedSnapshot.getBest().get().getObject().getScores(SETTINGS.getRequirements()).getTotalScore(),
+                0.0);
+    }
+
+    private static void runBranchAndBoundTests() {
+        // Templates with a single meal are solved completely, so the best diet plan is proven optimal. The run ends
+        // when all ten templates with a single meal have been solved.
+        final OptimizerSettings settings = optimizerSettings(new Requirements(PersonalDetails.ANDREAS, 1, 1),
+                SETTINGS.getMealTemplates())
+                .withSolverMode(SolverMode.BRANCH_AND_BOUND)
+                .withEliteSize(3)
+                .withSeed(1L);
+        final OptimizationSnapshot snapshot = runEngine(settings);
+        Test.test(10, snapshot.getIterations());
+        Test.test(10, snapshot.getNumberOfCandidates());
+        Test.test(3, snapshot.getElite().size());
+        Test.test(snapshot.getBest().get().getTotalScore(), snapshot.getElite().get(0).getTotalScore(), 0.0);
+        Test.test(snapshot.getBest().get().getTotalScore(), snapshot.getUpperBound().get(), 0.0);
+        Test.test(0.0, snapshot.getGap().get(), 0.0);
+
+        // With a node limit, the upper bound certifies the gap.
+        final OptimizationSnapshot limitedSnapshot = runEngine(optimizerSettings(
+                new Requirements(PersonalDetails.ANDREAS, 1, 3), SETTINGS.getMealTemplates())
+                .withSolverMode(SolverMode.BRANCH_AND_BOUND)
+                .withMaxNodes(100L)
+                .withMaxIterations(1)
+                .withSeed(1L));
+        Test.test(true, limitedSnapshot.getGap().get() > 0.0);
+        Test.test(limitedSnapshot.getBest().get().getTotalScore() + limitedSnapshot.getGap().get(),
+                limitedSnapshot.getUpperBound().get(), 1e-9);
+
+        // Population runs don't certify a bound.
+        Test.test(false, runEngine(SETTINGS.withMaxIterations(1)).getUpperBound().isPresent());
+    }
+
+    private static void runStopTests() {
+        final OptimizationEngine engine = optimizationEngine(SETTINGS.withMaxIterations(Integer.MAX_VALUE));
+        engine.start();
+        engine.pause();
+        Test.test(true, engine.isPaused());
+        engine.stop();
+        try {
+            engine.awaitTermination();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Test.test(false, engine.isPaused());
+    }
+
+    private static OptimizationSnapshot runEngine(final OptimizerSettings settings) {
+        final OptimizationEngine engine = optimizationEngine(settings);
+        engine.run();
+        return engine.getSnapshot();
+    }
+}
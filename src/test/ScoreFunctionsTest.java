@@ -21,6 +21,7 @@
 package test;
 
 import diet.ScoreFunctions;
+import diet.ScoreMode;
 import diet.ScoreParams;
 
 import static diet.ScoreParams.scoreParams;
@@ -30,6 +31,7 @@ public class ScoreFunctionsTest {
     
     public static void runTests() {
         runStandardTests();
+        runApproximationTests();
     }
 
     private static void runStandardTests() {
@@ -83,6 +85,29 @@ public class ScoreFunctionsTest {
                                      final double upperCritical) {
         final double score = computeScore(value, lowerCritical, lowerOptimal, upperOptimal, upperCritical);
         Test.test(expected, score, TEST_TOLERANCE);
+        final double batchScore = computeBatchScore(value, lowerCritical, lowerOptimal, upperOptimal, upperCritical);
+        Test.test(score, batchScore, 0.0);
+        final ScoreParams scoreParams = scoreParams(lowerCritical, lowerOptimal, upperOptimal, upperCritical, 1.0);
+        final double approximateScore = ScoreFunctions.standard(value, scoreParams, ScoreMode.APPROXIMATE);
+        Test.test(expected, approximateScore, TEST_TOLERANCE + ScoreFunctions.MAX_APPROXIMATION_ERROR);
+    }
+
+    private static void runApproximationTests() {
+        // Dense sampling of the logistic function, including the points between the table entries
+        double maxError = 0.0;
+        for (double x = -20.0; x <= 20.0; x += 1.0 / 1024.0) {
+            final double error = Math.abs(ScoreFunctions.approximateLogistic(x) - 1.0 / (1.0 + Math.exp(-x)));
+            maxError = Math.max(maxError, error);
+        }
+        Test.test(true, maxError <= ScoreFunctions.MAX_APPROXIMATION_ERROR);
+
+        // Standard score function with smooth lower and upper limits
+        final ScoreParams scoreParams = scoreParams(1.0, 2.0, 4.0, 5.0, 1.0);
+        for (double value = -1.0; value <= 7.0; value += 1.0 / 1024.0) {
+            final double exactScore = ScoreFunctions.standard(value, scoreParams);
+            final double approximateScore = ScoreFunctions.standard(value, scoreParams, ScoreMode.APPROXIMATE);
+            Test.test(exactScore, approximateScore, ScoreFunctions.MAX_APPROXIMATION_ERROR);
+        }
     }
 
     private static double computeScore(final double value,
@@ -93,4 +118,16 @@ public class ScoreFunctionsTest {
         final ScoreParams scoreParams = scoreParams(lowerCritical, lowerOptimal, upperOptimal, upperCritical, 1.0);
         return ScoreFunctions.standard(value, scoreParams);
     }
+
+    private static double computeBatchScore(final double value,
+                                            final double lowerCritical,
+                                            final double lowerOptimal,
+                                            final double upperOptimal,
+                                            final double upperCritical) {
+        final ScoreParams scoreParams = scoreParams(lowerCritical, lowerOptimal, upperOptimal, upperCritical, 1.0);
+        final double[] scores = new double[2];
+        ScoreFunctions.standard(new double[]{value}, new double[]{lowerCritical}, new double[]{scoreParams.getLowerK()},
+                new double[]{upperCritical}, new double[]{scoreParams.getUpperK()}, scores, 1, 1);
+        return scores[1];
+    }
 }
@@ -0,0 +1,454 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package test;
+
+import diet.*;
+import util.Limits2;
+import util.Pair;
+import util.RandomSource;
+
+import java.util.ArrayList;
+import java.util.Optional;
+
+import static diet.DietPlanTemplate.dietPlanTemplate;
+import static util.Limits2.limits2;
+import static util.Pair.pair;
+import static util.RandomSource.randomSource;
+
+public class ScoresTest {
+    private static final double TEST_TOLERANCE = 1e-9;
+    private static final Requirements REQUIREMENTS = new Requirements(PersonalDetails.ANDREAS, 1, 3);
+
+    public static void runTests() {
+        runTotalScoreTests();
+        runSelectionTests();
+        runLazyEvaluationTests();
+        runMultipleChangeTests();
+        runInfluenceIndexTests();
+        runTransferTests();
+        runSwapTests();
+        runHashTests();
+        runPortionVectorTests();
+        runRelaxationTests();
+        runBranchAndBoundTests();
+    }
+
+    private static void runTotalScoreTests() {
+        final Scores scores = createScores();
+        final ScoreLayout layout = scores.getLayout();
+        final int size = scores.size();
+        final double weightSum = layout.getWeightSum();
+        Test.test(0.5 * weightSum, scores.getTotalScore(), TEST_TOLERANCE);
+
+        // Changes after the tree has been built
+        final int heaviestSlot = layout.getSlotByWeight(0);
+        final int lightestSlot = layout.getSlotByWeight(size - 1);
+        scores.setScore(heaviestSlot, 0.0);
+        scores.setScore(lightestSlot, 1.0);
+        final double weight = layout.getWeight(heaviestSlot);
+        final double totalScore = 0.5 * weightSum - 0.5 * weight + 0.5 * layout.getWeight(lightestSlot);
+        Test.test(totalScore, scores.getTotalScore(), TEST_TOLERANCE);
+        Test.test(heaviestSlot, scores.getWorstScore());
+
+        final Scores copy = new Scores(scores);
+        copy.setScore(heaviestSlot, 1.0);
+        Test.test(totalScore + weight, copy.getTotalScore(), TEST_TOLERANCE);
+        Test.test(totalScore, scores.getTotalScore(), TEST_TOLERANCE);
+    }
+
+    private static void runSelectionTests() {
+        final Scores scores = createScores();
+        final ScoreLayout layout = scores.getLayout();
+        final int size = scores.size();
+        double diffSum = 0.0;
+        for (int slot = 0; slot < size; ++slot) {
+            // The score is selected if the selector points to the middle of its difference.
+            final double diff = 0.5 * layout.getWeight(slot);
+            final double sel = (diffSum + 0.5 * diff) / (0.5 * layout.getWeightSum());
+            Test.test(slot, scores.selectScoreByDiff(sel));
+            diffSum += diff;
+        }
+
+        for (int slot = 0; slot < size; ++slot) {
+            scores.setScore(slot, 1.0);
+        }
+        Test.test(Scores.TOTAL_SCORE, scores.selectScoreByDiff(0.5));
+        scores.setScore(size / 2, 0.0);
+        Test.test(size / 2, scores.selectScoreByDiff(0.0));
+        Test.test(size / 2, scores.selectScoreByDiff(0.999));
+        Test.test(size / 2, scores.getWorstScore());
+    }
+
+    private static void runLazyEvaluationTests() {
+        final DietPlan dietPlan = createDietPlan();
+
+        final Scores scores = REQUIREMENTS.getScoringProgram().evaluate(dietPlan);
+        final Scores completeScores = new Scores(scores);
+        completeScores.getTotalScore();
+        Test.test(scores.size(), scores.getPendingCount());
+        Test.test(0, completeScores.getPendingCount());
+
+        final int slot = scores.getLayout().getMealSlot(1, 0);
+        Test.test(completeScores.getScore(slot), scores.getScore(slot), TEST_TOLERANCE);
+        Test.test(scores.size() - 1, scores.getPendingCount());
+        Test.test(true, scores.isComputed(slot));
+
+        final double totalScore = completeScores.getTotalScore();
+        Test.test(true, scores.getTotalScore(totalScore + 1.0) < totalScore + 1.0);
+        // A bound that the total score only reaches is not aborted, so that comparisons by >= stay exact.
+        Test.test(totalScore, REQUIREMENTS.getScoringProgram().evaluate(dietPlan).getTotalScore(totalScore),
+                TEST_TOLERANCE);
+        Test.test(true, REQUIREMENTS.getScoringProgram().evaluate(dietPlan).getTotalScore(totalScore + 1e-6) <
+                totalScore + 1e-6);
+        Test.test(totalScore, scores.getTotalScore(totalScore - 1.0), TEST_TOLERANCE);
+        Test.test(totalScore, scores.getTotalScore(), TEST_TOLERANCE);
+
+        // Diet plans keep their scores for each scoring program.
+        final ScoringProgram exactProgram = REQUIREMENTS.getScoringProgram(ScoreMode.EXACT);
+        final ScoringProgram approximateProgram = REQUIREMENTS.getScoringProgram(ScoreMode.APPROXIMATE);
+        final Scores exactScores = dietPlan.getScores(exactProgram);
+        final Scores approximateScores = dietPlan.getScores(approximateProgram);
+        Test.test(true, exactScores != approximateScores);
+        Test.test(true, exactScores == dietPlan.getScores(exactProgram));
+        Test.test(true, approximateScores == dietPlan.getScores(approximateProgram));
+    }
+
+    private static void runMultipleChangeTests() {
+        final DietPlan dietPlan = createDietPlan();
+        dietPlan.getScores(REQUIREMENTS);
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = dietPlan.getVariableIngredients();
+        final Pair<Integer, FoodItem> first = variableIngredients.get(0);
+        final Pair<Integer, FoodItem> last = variableIngredients.get(variableIngredients.size() - 1);
+
+        final ArrayList<Pair<Pair<Integer, FoodItem>, Integer>> portionChanges =
+                new ArrayList<Pair<Pair<Integer, FoodItem>, Integer>>();
+        portionChanges.add(pair(first, 1));
+        portionChanges.add(pair(last, 1));
+        portionChanges.add(pair(first, 1));
+        final DietPlan changedDietPlan = dietPlan.changePortions(portionChanges).get();
+        final DietPlan expectedDietPlan =
+                dietPlan.addPortion(first).get().addPortion(last).get().addPortion(first).get();
+        Test.test(expectedDietPlan.getMeal(first.a()).getAmount(first.b()),
+                changedDietPlan.getMeal(first.a()).getAmount(first.b()), TEST_TOLERANCE);
+        Test.test(expectedDietPlan.getCosts(), changedDietPlan.getCosts(), TEST_TOLERANCE);
+
+        // Scores derived from the origin are the same as the scores of an unrelated diet plan
+        final ArrayList<Meal> meals = new ArrayList<Meal>();
+        for (final Meal meal : changedDietPlan.getMeals()) {
+            meals.add(Meal.meal(meal.getTemplate(), meal.getIngredients()));
+        }
+        final DietPlan freshDietPlan = DietPlan.dietPlan(createDietPlanTemplate(), meals);
+        Test.test(freshDietPlan.getScores(REQUIREMENTS).getTotalScore(),
+                changedDietPlan.getScores(REQUIREMENTS).getTotalScore(), TEST_TOLERANCE);
+
+        // Minimal amounts can't be reduced.
+        final ArrayList<Pair<Pair<Integer, FoodItem>, Integer>> removals =
+                new ArrayList<Pair<Pair<Integer, FoodItem>, Integer>>();
+        removals.add(pair(first, -1));
+        Test.test(false, dietPlan.changePortions(removals).isPresent());
+    }
+
+    private static void runInfluenceIndexTests() {
+        final DietPlanTemplate dietPlanTemplate = createDietPlanTemplate();
+        final DietPlan dietPlan = dietPlanTemplate.getMinimalDietPlan();
+        final ScoreLayout layout = dietPlan.getScores(REQUIREMENTS).getLayout();
+        final InfluenceIndex influenceIndex = dietPlan.getInfluenceIndex(layout);
+        Test.test(true, influenceIndex == dietPlanTemplate.getInfluenceIndex(layout));
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = dietPlan.getVariableIngredients();
+
+        int slot = layout.getMealSlot(1, 0);
+        while (layout.getRequirement(slot) != Requirement.MEAL_ENERGY) {
+            ++slot;
+        }
+        final FoodProperty property = layout.getRequirement(slot).getFoodProperty().get();
+        for (int rank = 0; rank < influenceIndex.getNumberOfInfluences(slot); ++rank) {
+            if (rank > 0) {
+                Test.test(true, Math.abs(influenceIndex.getContribution(slot, rank - 1)) >=
+                        Math.abs(influenceIndex.getContribution(slot, rank)));
+            }
+
+            // Only ingredients of the meal influence the score, and a portion changes the value by the contribution.
+            final Pair<Integer, FoodItem> ingredientId =
+                    variableIngredients.get(influenceIndex.getIngredientIndex(slot, rank));
+            Test.test(1, (int) ingredientId.a());
+            final Optional<DietPlan> maybeNewDietPlan = dietPlan.addPortion(ingredientId);
+            if (maybeNewDietPlan.isPresent()) {
+                final double valueDiff = maybeNewDietPlan.get().getMeal(1).getProperties().get(property) -
+                        dietPlan.getMeal(1).getProperties().get(property);
+                Test.test(influenceIndex.getContribution(slot, rank), valueDiff, TEST_TOLERANCE);
+            }
+        }
+        Test.test(true, influenceIndex.getNumberOfInfluences(slot) > 0);
+
+        // Influences are sampled in proportion to the magnitude of their contributions.
+        final int numberOfInfluences = influenceIndex.getNumberOfInfluences(slot);
+        double sum = 0.0;
+        for (int rank = 0; rank < numberOfInfluences; ++rank) {
+            sum += Math.abs(influenceIndex.getContribution(slot, rank));
+        }
+        final RandomSource random = randomSource(0L);
+        final int numberOfSamples = 100000;
+        int firstRankCount = 0;
+        for (int i = 0; i < numberOfSamples; ++i) {
+            final int rank = influenceIndex.sampleInfluence(slot, random);
+            Test.test(true, rank >= 0 && rank < numberOfInfluences);
+            if (rank == 0) {
+                ++firstRankCount;
+            }
+        }
+        Test.test(Math.abs(influenceIndex.getContribution(slot, 0)) / sum,
+                (double) firstRankCount / numberOfSamples, 0.01);
+    }
+
+    private static void runTransferTests() {
+        final DietPlan dietPlan = createDietPlan();
+        final double totalScore = dietPlan.getScores(REQUIREMENTS).getTotalScore();
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = dietPlan.getVariableIngredients();
+        final int[] partners = dietPlan.getTemplate().get().getTransferPartners(0);
+        Test.test(true, partners.length > 0);
+        final Pair<Integer, FoodItem> ingredientId = variableIngredients.get(0);
+        final int partnerMealIndex = variableIngredients.get(partners[0]).a();
+        Test.test(ingredientId.b(), variableIngredients.get(partners[0]).b());
+
+        // Minimal amounts can't be transferred, but added amounts can.
+        Test.test(false, dietPlan.transferPortions(ingredientId.a(), partnerMealIndex, ingredientId.b(), 1)
+                .isPresent());
+        final DietPlan addedDietPlan = dietPlan.addPortion(ingredientId).get();
+        addedDietPlan.getScores(REQUIREMENTS);
+        final DietPlan transferredDietPlan =
+                addedDietPlan.transferPortions(ingredientId.a(), partnerMealIndex, ingredientId.b(), 1).get();
+        Test.test(addedDietPlan.getFoodItems().get(ingredientId.b()),
+                transferredDietPlan.getFoodItems().get(ingredientId.b()), TEST_TOLERANCE);
+        Test.test(dietPlan.getMeal(ingredientId.a()).getAmount(ingredientId.b()),
+                transferredDietPlan.getMeal(ingredientId.a()).getAmount(ingredientId.b()), TEST_TOLERANCE);
+        Test.test(getFreshTotalScore(transferredDietPlan),
+                transferredDietPlan.getScores(REQUIREMENTS).getTotalScore(), TEST_TOLERANCE);
+        Test.test(true, totalScore != transferredDietPlan.getScores(REQUIREMENTS).getTotalScore());
+
+        // A transfer back restores the amounts exactly.
+        final DietPlan restoredDietPlan =
+                transferredDietPlan.transferPortions(partnerMealIndex, ingredientId.a(), ingredientId.b(), 1).get();
+        Test.test(addedDietPlan.getMeal(ingredientId.a()).getAmount(ingredientId.b()),
+                restoredDietPlan.getMeal(ingredientId.a()).getAmount(ingredientId.b()), 0.0);
+        Test.test(addedDietPlan.getMeal(partnerMealIndex).getAmount(ingredientId.b()),
+                restoredDietPlan.getMeal(partnerMealIndex).getAmount(ingredientId.b()), 0.0);
+    }
+
+    private static void runSwapTests() {
+        final ArrayList<MealTemplate> mealTemplates = new ArrayList<MealTemplate>();
+        mealTemplates.add(MealTemplate.BOILED_EGGS);
+        mealTemplates.add(MealTemplate.BOILED_EGGS_WITH_RANDOM_MIX);
+        final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplateOptions =
+                new ArrayList<Pair<ArrayList<MealTemplate>, Limits2>>();
+        mealTemplateOptions.add(pair(mealTemplates, limits2(1.0, 1.0)));
+        final DietPlanTemplate dietPlanTemplate =
+                dietPlanTemplate(mealTemplateOptions, REQUIREMENTS.getNumberOfMeals(), randomSource(0L));
+        final DietPlan dietPlan = dietPlanTemplate.getMinimalDietPlan();
+        dietPlan.getScores(REQUIREMENTS);
+
+        final ArrayList<MealTemplate> alternatives = dietPlanTemplate.getAlternativeMealTemplates(0);
+        Test.test(1, alternatives.size());
+        final MealTemplate newMealTemplate = alternatives.get(0);
+        final DietPlan swappedDietPlan = dietPlan.swapMealTemplate(0, newMealTemplate).get();
+        Test.test(newMealTemplate, swappedDietPlan.getMeal(0).getTemplate());
+        Test.test(newMealTemplate, swappedDietPlan.getTemplate().get().getMealTemplate(0));
+        Test.test(dietPlanTemplate.getMealTemplate(1), swappedDietPlan.getTemplate().get().getMealTemplate(1));
+        Test.test(getFreshTotalScore(swappedDietPlan), swappedDietPlan.getScores(REQUIREMENTS).getTotalScore(),
+                TEST_TOLERANCE);
+
+        // Equal templates are shared.
+        final DietPlanTemplate restoredTemplate =
+                swappedDietPlan.swapMealTemplate(0, dietPlanTemplate.getMealTemplate(0)).get().getTemplate().get();
+        Test.test(true, restoredTemplate == dietPlanTemplate);
+        Test.test(true, swappedDietPlan.getTemplate().get() ==
+                dietPlan.swapMealTemplate(0, newMealTemplate).get().getTemplate().get());
+
+        // Meal templates outside of the options are not allowed.
+        Test.test(false, dietPlan.swapMealTemplate(0, MealTemplate.STIR_FRY).isPresent());
+    }
+
+    private static void runHashTests() {
+        final DietPlan dietPlan = createDietPlan();
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = dietPlan.getVariableIngredients();
+        final Pair<Integer, FoodItem> ingredientId = variableIngredients.get(0);
+        final Pair<Integer, FoodItem> otherIngredientId = variableIngredients.get(1);
+
+        // Undoing a change restores the hash; equal meals have equal hashes.
+        final DietPlan addedDietPlan = dietPlan.addPortion(ingredientId).get();
+        Test.test(true, addedDietPlan.getHash() != dietPlan.getHash());
+        Test.test(dietPlan.getHash(), addedDietPlan.removePortion(ingredientId).get().getHash());
+        Test.test(getFreshDietPlan(addedDietPlan).getHash(), addedDietPlan.getHash());
+
+        final ArrayList<Pair<Pair<Integer, FoodItem>, Integer>> portionChanges =
+                new ArrayList<Pair<Pair<Integer, FoodItem>, Integer>>();
+        portionChanges.add(pair(ingredientId, 2));
+        portionChanges.add(pair(otherIngredientId, 1));
+        Test.test(addedDietPlan.addPortion(ingredientId).get().addPortion(otherIngredientId).get().getHash(),
+                dietPlan.changePortions(portionChanges).get().getHash());
+
+        final int[] partners = dietPlan.getTemplate().get().getTransferPartners(0);
+        final int partnerMealIndex = variableIngredients.get(partners[0]).a();
+        final DietPlan transferredDietPlan =
+                addedDietPlan.transferPortions(ingredientId.a(), partnerMealIndex, ingredientId.b(), 1).get();
+        Test.test(true, transferredDietPlan.getHash() != addedDietPlan.getHash());
+
+        // A transfer back restores the amounts and thus the hash.
+        final DietPlan restoredDietPlan =
+                transferredDietPlan.transferPortions(partnerMealIndex, ingredientId.a(), ingredientId.b(), 1).get();
+        Test.test(addedDietPlan.getHash(), restoredDietPlan.getHash());
+        for (int mealIndex = 0; mealIndex < addedDietPlan.getNumberOfMeals(); ++mealIndex) {
+            Test.test(addedDietPlan.getMeal(mealIndex).getAmount(ingredientId.b()),
+                    restoredDietPlan.getMeal(mealIndex).getAmount(ingredientId.b()), 0.0);
+        }
+
+        // Equal diet plans share their scores through the cache once a diet plan has been evaluated twice.
+        final EvaluationCache cache = EvaluationCache.evaluationCache(REQUIREMENTS.getScoringProgram(), 10);
+        final Scores firstScores = cache.getScores(addedDietPlan.removePortion(ingredientId).get());
+        final Scores scores = cache.getScores(addedDietPlan.removePortion(ingredientId).get());
+        Test.test(true, scores != firstScores);
+        Test.test(true, scores == cache.getScores(addedDietPlan.removePortion(ingredientId).get()));
+        Test.test(true, scores != cache.getScores(addedDietPlan));
+        Test.test(getFreshTotalScore(addedDietPlan), cache.getScores(addedDietPlan).getTotalScore(), TEST_TOLERANCE);
+    }
+
+    private static void runPortionVectorTests() {
+        final DietPlan dietPlan = createDietPlan();
+        final ArrayList<Pair<Integer, FoodItem>> variableIngredients = dietPlan.getVariableIngredients();
+        final Pair<Integer, FoodItem> ingredientId = variableIngredients.get(0);
+        final int[] partners = dietPlan.getTemplate().get().getTransferPartners(0);
+        final int partnerMealIndex = variableIngredients.get(partners[0]).a();
+        final DietPlan addedDietPlan = dietPlan.addPortion(ingredientId).get();
+        final DietPlan transferredDietPlan =
+                addedDietPlan.transferPortions(ingredientId.a(), partnerMealIndex, ingredientId.b(), 1).get();
+
+        // Minimal amounts and amounts transferred onto them are restored, too.
+        final ArrayList<DietPlan> dietPlans = new ArrayList<DietPlan>();
+        dietPlans.add(dietPlan);
+        dietPlans.add(addedDietPlan);
+        dietPlans.add(transferredDietPlan);
+        for (final DietPlan originalDietPlan : dietPlans) {
+            final PortionVector portionVector = PortionVector.portionVector(originalDietPlan).get();
+            Test.test(variableIngredients.size(), portionVector.size());
+            for (int i = 0; i < variableIngredients.size(); ++i) {
+                final Pair<Integer, FoodItem> variableIngredient = variableIngredients.get(i);
+                Test.test(originalDietPlan.getMeal(variableIngredient.a()).getAmount(variableIngredient.b()),
+                        portionVector.getAmount(i), TEST_TOLERANCE);
+            }
+            final DietPlan decodedDietPlan = portionVector.getDietPlan();
+            Test.test(originalDietPlan.getScores(REQUIREMENTS).getTotalScore(),
+                    decodedDietPlan.getScores(REQUIREMENTS).getTotalScore(), TEST_TOLERANCE);
+        }
+        Test.test(dietPlan.getHash(), PortionVector.portionVector(dietPlan).get().getDietPlan().getHash());
+        Test.test(addedDietPlan.getHash(), PortionVector.portionVector(addedDietPlan).get().getDietPlan().getHash());
+
+        // Amounts between portions can't be encoded.
+        final Meal meal = addedDietPlan.getMeal(ingredientId.a());
+        final double amount = meal.getAmount(ingredientId.b()) + 0.5 * ingredientId.b().portionsToAmount(1);
+        Test.test(false, PortionVector.portionVector(addedDietPlan.getWithChange(ingredientId.a(), ingredientId.b(),
+                amount)).isPresent());
+    }
+
+    private static void runRelaxationTests() {
+        final DietPlanTemplate dietPlanTemplate = createDietPlanTemplate();
+        final DietPlan minimalDietPlan = dietPlanTemplate.getMinimalDietPlan();
+        final DietPlan relaxedDietPlan = dietPlanTemplate.getRelaxedDietPlan(REQUIREMENTS.getScoringProgram()).get();
+        Test.test(true, relaxedDietPlan.getScores(REQUIREMENTS).getTotalScore() >
+                minimalDietPlan.getScores(REQUIREMENTS).getTotalScore());
+
+        // The relaxed diet plan stays within the limits of the meal templates.
+        for (final Pair<Integer, FoodItem> ingredientId : dietPlanTemplate.getVariableIngredients()) {
+            final Meal meal = relaxedDietPlan.getMeal(ingredientId.a());
+            final double amount = meal.getAmount(ingredientId.b());
+            Test.test(true, amount >= meal.getTemplate().getMinAmount(ingredientId.b()) - TEST_TOLERANCE);
+            Test.test(true, amount <= meal.getTemplate().getMaxAmount(ingredientId.b()) + TEST_TOLERANCE);
+        }
+    }
+
+    private static void runBranchAndBoundTests() {
+        final DietPlanTemplate dietPlanTemplate = createDietPlanTemplate();
+        final ScoringProgram scoringProgram = REQUIREMENTS.getScoringProgram();
+        final BranchAndBound branchAndBound = BranchAndBound.branchAndBound(dietPlanTemplate, scoringProgram,
+                Long.MAX_VALUE);
+        Test.test(true, branchAndBound.isOptimal());
+        Test.test(0.0, branchAndBound.getGap(), TEST_TOLERANCE);
+        final double optimalTotalScore = branchAndBound.getTotalScore();
+        Test.test(scoringProgram.evaluate(branchAndBound.getDietPlan()).getTotalScore(), optimalTotalScore,
+                TEST_TOLERANCE);
+        Test.test(true, optimalTotalScore >=
+                dietPlanTemplate.getRelaxedDietPlan(scoringProgram).get().getScores(scoringProgram).getTotalScore());
+
+        // Optimal diet plans can't be improved by a single portion.
+        for (final Pair<Integer, FoodItem> ingredientId : dietPlanTemplate.getVariableIngredients()) {
+            final DietPlan dietPlan = branchAndBound.getDietPlan();
+            final ArrayList<Optional<DietPlan>> maybeNeighbours = new ArrayList<Optional<DietPlan>>();
+            maybeNeighbours.add(dietPlan.addPortion(ingredientId));
+            maybeNeighbours.add(dietPlan.removePortion(ingredientId));
+            for (final Optional<DietPlan> maybeNeighbour : maybeNeighbours) {
+                if (maybeNeighbour.isPresent()) {
+                    Test.test(true, maybeNeighbour.get().getScores(scoringProgram).getTotalScore() <=
+                            optimalTotalScore + TEST_TOLERANCE);
+                }
+            }
+        }
+
+        // With a node limit, the upper bound still holds.
+        final BranchAndBound limitedBranchAndBound =
+                BranchAndBound.branchAndBound(dietPlanTemplate, scoringProgram, 2L);
+        Test.test(false, limitedBranchAndBound.isOptimal());
+        Test.test(2L, limitedBranchAndBound.getNumberOfNodes());
+        Test.test(true, limitedBranchAndBound.getUpperBound() >= optimalTotalScore - TEST_TOLERANCE);
+        Test.test(true, limitedBranchAndBound.getTotalScore() <= optimalTotalScore + TEST_TOLERANCE);
+    }
+
+    private static double getFreshTotalScore(final DietPlan dietPlan) {
+        return getFreshDietPlan(dietPlan).getScores(REQUIREMENTS).getTotalScore();
+    }
+
+    private static DietPlan getFreshDietPlan(final DietPlan dietPlan) {
+        final ArrayList<Meal> meals = new ArrayList<Meal>();
+        for (final Meal meal : dietPlan.getMeals()) {
+            meals.add(Meal.meal(meal.getTemplate(), meal.getIngredients()));
+        }
+        return DietPlan.dietPlan(dietPlan.getTemplate().get(), meals);
+    }
+
+    private static DietPlanTemplate createDietPlanTemplate() {
+        final ArrayList<MealTemplate> mealTemplates = new ArrayList<MealTemplate>();
+        mealTemplates.add(MealTemplate.BOILED_EGGS);
+        final ArrayList<Pair<ArrayList<MealTemplate>, Limits2>> mealTemplateOptions =
+                new ArrayList<Pair<ArrayList<MealTemplate>, Limits2>>();
+        mealTemplateOptions.add(pair(mealTemplates, limits2(1.0, 1.0)));
+        return dietPlanTemplate(mealTemplateOptions, REQUIREMENTS.getNumberOfMeals(), randomSource(0L));
+    }
+
+    private static DietPlan createDietPlan() {
+        return createDietPlanTemplate().getMinimalDietPlan();
+    }
+
+    private static Scores createScores() {
+        final ScoreLayout layout = REQUIREMENTS.getScoringProgram().getLayout(REQUIREMENTS.getNumberOfMeals());
+        final Scores scores = new Scores(layout);
+        for (int slot = 0; slot < layout.size(); ++slot) {
+            scores.setScore(slot, 0.5);
+        }
+        return scores;
+    }
+}
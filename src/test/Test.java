@@ -46,6 +46,13 @@ public class Test {
 
     private static void runTests() {
         ScoreFunctionsTest.runTests();
+        ItemListTest.runTests();
+        AliasTableTest.runTests();
+        IndexedHeapTest.runTests();
+        ClockCacheTest.runTests();
+        LinearProgramTest.runTests();
+        ScoresTest.runTests();
+        OptimizationEngineTest.runTests();
     }
 
     public static void test(final double expected, final double actual, final double tolerance) {
@@ -0,0 +1,104 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package util;
+
+/**
+ * Samples indices with probabilities proportional to given weights in constant time (Vose's alias method). Building
+ * the table takes linear time. Tables are immutable and can be shared by threads.
+ */
+public class AliasTable {
+    private final double[] probabilities;
+    private final int[] aliases;
+
+    /**
+     * @param weights Non-negative weights with a positive sum
+     */
+    public static AliasTable aliasTable(final double[] weights) {
+        return new AliasTable(weights);
+    }
+
+    private AliasTable(final double[] weights) {
+        final int size = weights.length;
+        double sum = 0.0;
+        for (final double weight : weights) {
+            if (!(weight >= 0.0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            sum += weight;
+        }
+        if (!(sum > 0.0)) {
+            throw new IllegalArgumentException("Sum of weights must be positive");
+        }
+
+        probabilities = new double[size];
+        aliases = new int[size];
+        final double[] scaledWeights = new double[size];
+        // Both work lists are stacks in one array: small indices from the front, large indices from the back.
+        final int[] workList = new int[size];
+        int smallCount = 0;
+        int largeStart = size;
+        for (int i = 0; i < size; ++i) {
+            scaledWeights[i] = weights[i] * size / sum;
+            if (scaledWeights[i] < 1.0) {
+                workList[smallCount++] = i;
+            } else {
+                workList[--largeStart] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeStart < size) {
+            final int small = workList[--smallCount];
+            final int large = workList[largeStart++];
+            probabilities[small] = scaledWeights[small];
+            aliases[small] = large;
+            scaledWeights[large] = scaledWeights[large] + scaledWeights[small] - 1.0;
+            if (scaledWeights[large] < 1.0) {
+                workList[smallCount++] = large;
+            } else {
+                workList[--largeStart] = large;
+            }
+        }
+
+        // Remaining entries are 1.0 except for rounding errors.
+        while (largeStart < size) {
+            final int large = workList[largeStart++];
+            probabilities[large] = 1.0;
+            aliases[large] = large;
+        }
+        while (smallCount > 0) {
+            final int small = workList[--smallCount];
+            probabilities[small] = 1.0;
+            aliases[small] = small;
+        }
+    }
+
+    public int size() {
+        return probabilities.length;
+    }
+
+    /**
+     * @return index in the range [0, size)
+     */
+    public int sample(final RandomSource random) {
+        final int column = random.nextInt(probabilities.length);
+        return random.nextDouble() < probabilities[column] ? column : aliases[column];
+    }
+}
@@ -0,0 +1,134 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package util;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded map from 64-bit keys to values with CLOCK eviction: an entry is marked when it is read, and when the bucket of
+ * a new key is full, a hand sweeps over the entries of the bucket, unmarks the marked entries and replaces the first
+ * unmarked entry. Entries that are read often survive, while a single pass of new keys can't flush the cache.
+ * <p/>
+ * The cache is lock-free. Each key belongs to a bucket of a few slots, and entries are immutable apart from their
+ * marks, so they are replaced with compare-and-set. A put that loses a race against another thread is dropped, and
+ * marks may get lost when threads race; both only make the cache forget entries earlier. Keys should be well mixed
+ * (e.g. hashes), because the lowest bits select the bucket.
+ *
+ * @param <V> Type of the values
+ */
+public class ClockCache<V> {
+    private static final int BUCKET_SIZE = 4;
+
+    private final AtomicReferenceArray<Entry<V>> entries;
+    private final AtomicIntegerArray hands; // Next slot of each bucket that may be replaced
+    private final int bucketMask;
+
+    /**
+     * @param capacity Maximum number of entries; it is rounded up to a power of two, but at least one bucket
+     */
+    public static <V> ClockCache<V> clockCache(final int capacity) {
+        return new ClockCache<V>(capacity);
+    }
+
+    private ClockCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int numberOfBuckets = 1;
+        while (numberOfBuckets * BUCKET_SIZE < capacity) {
+            numberOfBuckets *= 2;
+        }
+        entries = new AtomicReferenceArray<Entry<V>>(numberOfBuckets * BUCKET_SIZE);
+        hands = new AtomicIntegerArray(numberOfBuckets);
+        bucketMask = numberOfBuckets - 1;
+    }
+
+    public Optional<V> get(final long key) {
+        final int start = getBucket(key) * BUCKET_SIZE;
+        for (int i = start; i < start + BUCKET_SIZE; ++i) {
+            final Entry<V> entry = entries.get(i);
+            if (entry != null && entry.key == key) {
+                entry.marked = true;
+                return Optional.of(entry.value);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Adds or replaces the value of a key; another entry of the same bucket is evicted if the bucket is full. The put is
+     * dropped if another thread changes the bucket at the same time.
+     */
+    public void put(final long key, final V value) {
+        final int bucket = getBucket(key);
+        final int start = bucket * BUCKET_SIZE;
+        final Entry<V> newEntry = new Entry<V>(key, value);
+        for (int i = start; i < start + BUCKET_SIZE; ++i) {
+            final Entry<V> entry = entries.get(i);
+            if (entry == null || entry.key == key) {
+                entries.compareAndSet(i, entry, newEntry);
+                return;
+            }
+        }
+
+        // Every entry is unmarked after a full sweep, so the hand stops within two sweeps.
+        for (int step = 0; step < 2 * BUCKET_SIZE; ++step) {
+            final int slot = start + (hands.getAndIncrement(bucket) & (BUCKET_SIZE - 1));
+            final Entry<V> entry = entries.get(slot);
+            if (entry != null && entry.marked) {
+                entry.marked = false;
+            } else {
+                entries.compareAndSet(slot, entry, newEntry);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return number of entries; only exact if no other thread changes the cache
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < entries.length(); ++i) {
+            if (entries.get(i) != null) {
+                ++size;
+            }
+        }
+        return size;
+    }
+
+    private int getBucket(final long key) {
+        return (int) key & bucketMask;
+    }
+
+    private static class Entry<V> {
+        private final long key;
+        private final V value;
+        private volatile boolean marked = false;
+
+        private Entry(final long key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -20,10 +20,8 @@
  **********************************************************************/
 package util;
 
-import diet.Requirement;
 import diet.Scores;
 
-import java.util.Optional;
 import java.util.function.Function;
 
 public class Evaluation<T> {
@@ -40,7 +38,7 @@ public class Evaluation<T> {
 
     private Evaluation(final T object, final Function<T, Scores> evaluationFunction) {
         this.object = object;
-        scores = new LazyValue<Scores>() {
+        scores = new SynchronizedLazyValue<Scores>() {
             @Override
             protected Scores compute() {
                 return evaluationFunction.apply(object);
@@ -50,7 +48,7 @@ public class Evaluation<T> {
 
     private Evaluation(final T object, final Scores scores) {
         this.object = object;
-        this.scores = new LazyValue<Scores>() {
+        this.scores = new RacyLazyValue<Scores>() {
             @Override
             protected Scores compute() {
                 return scores;
@@ -66,11 +64,24 @@ public class Evaluation<T> {
         return scores.get();
     }
 
-    public double getScore(final Optional<Pair<Requirement, Integer>> maybeScoreId) {
-        return getScores().getScore(maybeScoreId);
+    /**
+     * The scores are created when they are needed for the first time; they compute only the requested score.
+     *
+     * @param scoreId Slot of a score or Scores.TOTAL_SCORE
+     */
+    public double getScore(final int scoreId) {
+        return getScores().getScore(scoreId);
     }
 
     public double getTotalScore() {
         return getScores().getTotalScore();
     }
+
+    /**
+     * @param bound Bound for the total score
+     * @return total score if it is greater than or equal to the bound; otherwise a value that is less than the bound
+     */
+    public double getTotalScore(final double bound) {
+        return getScores().getTotalScore(bound);
+    }
 }
@@ -0,0 +1,185 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Min-heap of the items 0, 1, 2, ... with double keys. Items can be removed and their keys can be changed in
+ * logarithmic time. Ties are resolved by the smaller item, so the minimum doesn't depend on the order of operations.
+ * Heaps are not thread-safe.
+ */
+public class IndexedHeap {
+    private int[] heap; // Items in heap order
+    private int[] positions; // Position of each item in the heap or -1
+    private double[] keys; // Key of each item
+    private int size = 0;
+
+    /**
+     * @param capacity Initial number of items; the heap grows if greater items are added
+     */
+    public static IndexedHeap indexedHeap(final int capacity) {
+        return new IndexedHeap(capacity);
+    }
+
+    private IndexedHeap(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(final int item) {
+        return item >= 0 && item < positions.length && positions[item] >= 0;
+    }
+
+    /**
+     * @return item with the smallest key
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+        return heap[0];
+    }
+
+    /**
+     * @param index Index in the range [0, size); the items are in heap order, which changes with every modification
+     */
+    public int getItem(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Invalid index: " + index);
+        }
+        return heap[index];
+    }
+
+    public double getKey(final int item) {
+        checkContained(item);
+        return keys[item];
+    }
+
+    public void add(final int item, final double key) {
+        if (item < 0 || contains(item) || Double.isNaN(key)) {
+            throw new IllegalArgumentException("Invalid item: " + item + ", key " + key);
+        }
+        if (item >= positions.length) {
+            final int capacity = Math.max(item + 1, 2 * positions.length);
+            heap = Arrays.copyOf(heap, capacity);
+            final int oldCapacity = positions.length;
+            positions = Arrays.copyOf(positions, capacity);
+            Arrays.fill(positions, oldCapacity, capacity, -1);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+        keys[item] = key;
+        heap[size] = item;
+        positions[item] = size;
+        ++size;
+        siftUp(size - 1);
+    }
+
+    public void update(final int item, final double key) {
+        checkContained(item);
+        if (Double.isNaN(key)) {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+        final double oldKey = keys[item];
+        keys[item] = key;
+        if (key < oldKey) {
+            siftUp(positions[item]);
+        } else if (key > oldKey) {
+            siftDown(positions[item]);
+        }
+    }
+
+    public void remove(final int item) {
+        checkContained(item);
+        final int position = positions[item];
+        positions[item] = -1;
+        --size;
+        if (position < size) {
+            // The last item takes the free place and moves up or down
+            final int lastItem = heap[size];
+            heap[position] = lastItem;
+            positions[lastItem] = position;
+            siftUp(position);
+            siftDown(positions[lastItem]);
+        }
+    }
+
+    private void checkContained(final int item) {
+        if (!contains(item)) {
+            throw new IllegalArgumentException("Item not in heap: " + item);
+        }
+    }
+
+    private boolean isLess(final int item1, final int item2) {
+        return keys[item1] < keys[item2] || keys[item1] == keys[item2] && item1 < item2;
+    }
+
+    private void siftUp(int position) {
+        final int item = heap[position];
+        while (position > 0) {
+            final int parentPosition = (position - 1) / 2;
+            final int parent = heap[parentPosition];
+            if (!isLess(item, parent)) {
+                break;
+            }
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+
+    private void siftDown(int position) {
+        final int item = heap[position];
+        while (true) {
+            int childPosition = 2 * position + 1;
+            if (childPosition >= size) {
+                break;
+            }
+            if (childPosition + 1 < size && isLess(heap[childPosition + 1], heap[childPosition])) {
+                ++childPosition;
+            }
+            final int child = heap[childPosition];
+            if (!isLess(child, item)) {
+                break;
+            }
+            heap[position] = child;
+            positions[child] = position;
+            position = childPosition;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+}
@@ -20,57 +20,148 @@
  **********************************************************************/
 package util;
 
-import java.util.EnumMap;
-import java.util.Map;
 import java.util.function.BiConsumer;
 
+/**
+ * Amounts of items (enum constants). The amounts are stored in a dense array that is indexed by the ordinals of the
+ * items; a bit set keeps track of the items with positive amounts, so that sparse lists can be iterated quickly.
+ * Items can be iterated without allocations:
+ * <pre>
+ * for (int index = itemList.firstIndex(); index >= 0; index = itemList.nextIndex(index)) {
+ *     final K item = itemList.getItem(index);
+ *     final double amount = itemList.getAmount(index);
+ * }
+ * </pre>
+ */
 public class ItemList<K extends Enum<K>> {
-    private final EnumMap<K, Double> items;
+    private static final ClassValue<Object[]> ITEMS = new ClassValue<Object[]>() {
+        @Override
+        protected Object[] computeValue(final Class<?> itemType) {
+            return itemType.getEnumConstants();
+        }
+    };
+
+    private final K[] items;
+    private final double[] amounts;
+    private final long[] used;
 
+    @SuppressWarnings("unchecked")
     public ItemList(final Class<K> itemType) {
-        this.items = new EnumMap<K, Double>(itemType);
+        items = (K[]) ITEMS.get(itemType);
+        amounts = new double[items.length];
+        used = new long[(items.length + 63) >>> 6];
+    }
+
+    public ItemList(final ItemList<K> itemList) {
+        items = itemList.items;
+        amounts = itemList.amounts.clone();
+        used = itemList.used.clone();
     }
 
     public ItemList(final ItemList<K> itemList, final K item, double newAmount) {
-        items = itemList.items.clone();
+        this(itemList);
         set(item, newAmount);
     }
 
     public double get(final K item) {
-        final Double amount = items.get(item);
-        return amount == null ? 0.0 : amount;
+        return amounts[item.ordinal()];
     }
 
     public void set(final K item, final double amount) {
+        set(item.ordinal(), amount);
+    }
+
+    private void set(final int index, final double amount) {
         if (amount <= 0.0) {
-            items.remove(item);
+            amounts[index] = 0.0;
+            used[index >>> 6] &= ~(1L << index);
         } else {
-            items.put(item, amount);
+            amounts[index] = amount;
+            used[index >>> 6] |= 1L << index;
         }
     }
 
+    /**
+     * @param index  Index of the item
+     * @param amount Amount to add, may be negative
+     */
+    public void addAmount(final int index, final double amount) {
+        set(index, amounts[index] + amount);
+    }
+
     public void add(final ItemList<K> toAdd) {
-        for (final Map.Entry<K, Double> entry : toAdd.items.entrySet()) {
-            final K item = entry.getKey();
-            set(item, get(item) + entry.getValue());
+        for (int index = toAdd.firstIndex(); index >= 0; index = toAdd.nextIndex(index)) {
+            set(index, amounts[index] + toAdd.amounts[index]);
         }
     }
 
     public void addScaled(final ItemList<K> toAdd, final double factor) {
-        for (final Map.Entry<K, Double> entry : toAdd.items.entrySet()) {
-            final K item = entry.getKey();
-            set(item, get(item) + entry.getValue() * factor);
+        for (int index = toAdd.firstIndex(); index >= 0; index = toAdd.nextIndex(index)) {
+            set(index, amounts[index] + toAdd.amounts[index] * factor);
+        }
+    }
+
+    /**
+     * @return index of the first item with a positive amount or -1 if there is no such item
+     */
+    public int firstIndex() {
+        return nextIndex(-1);
+    }
+
+    /**
+     * @param index Index of the current item
+     * @return index of the next item with a positive amount or -1 if there is no such item
+     */
+    public int nextIndex(final int index) {
+        final int start = index + 1;
+        int wordIndex = start >>> 6;
+        if (wordIndex >= used.length) {
+            return -1;
+        }
+        long word = used[wordIndex] & (-1L << start);
+        while (word == 0L) {
+            if (++wordIndex == used.length) {
+                return -1;
+            }
+            word = used[wordIndex];
         }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    public K getItem(final int index) {
+        return items[index];
+    }
+
+    public double getAmount(final int index) {
+        return amounts[index];
+    }
+
+    public int getCount() {
+        int count = 0;
+        for (final long word : used) {
+            count += Long.bitCount(word);
+        }
+        return count;
     }
 
     public void forEach(final BiConsumer<K, Double> action) {
-        for (final Map.Entry<K, Double> entry : items.entrySet()) {
-            action.accept(entry.getKey(), entry.getValue());
+        for (int index = firstIndex(); index >= 0; index = nextIndex(index)) {
+            action.accept(items[index], amounts[index]);
         }
     }
 
     @Override
     public String toString() {
-        return items.toString();
+        final StringBuilder stringBuilder = new StringBuilder("{");
+        for (int index = firstIndex(); index >= 0; index = nextIndex(index)) {
+            if (stringBuilder.length() > 1) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(items[index]);
+            stringBuilder.append('=');
+            stringBuilder.append(amounts[index]);
+        }
+        stringBuilder.append('}');
+        return stringBuilder.toString();
     }
 }
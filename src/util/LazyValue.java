@@ -20,18 +20,16 @@
  **********************************************************************/
 package util;
 
+/**
+ * Value that is computed when it is needed for the first time. The implementations differ in their thread-safety:
+ * <ul>
+ * <li>{@link RacyLazyValue}: may be computed more than once by concurrent threads, which is fine for values that are
+ * immutable and equal whenever they are computed</li>
+ * <li>{@link SynchronizedLazyValue}: computed exactly once, even if it is requested by concurrent threads</li>
+ * </ul>
+ */
 public abstract class LazyValue<A> {
-    private A value;
-    private boolean computed;
-
-    public A get() {
-        if (!computed) {
-            value = compute();
-            computed = true;
-        }
-
-        return value;
-    }
+    public abstract A get();
 
     abstract protected A compute();
 }
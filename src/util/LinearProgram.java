@@ -0,0 +1,423 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Linear program with bounded variables and ranged constraints, which is minimized with a dense bounded-variable
+ * simplex method. Variables and constraints are added one by one; infinite bounds are allowed.
+ * <p/>
+ * Each constraint gets a logical variable for its value, which is bounded by the range of the constraint. Constraints
+ * that aren't satisfied by the start values of the variables get an artificial variable, which is driven to 0.0 in
+ * the first phase. The pricing is Dantzig's rule; after a series of degenerate pivots, Bland's rule is used until the
+ * objective improves again, so the method can't cycle.
+ */
+public class LinearProgram {
+    private static final double PIVOT_TOLERANCE = 1e-9;
+    private static final double OPTIMALITY_TOLERANCE = 1e-9;
+    private static final double FEASIBILITY_TOLERANCE = 1e-7;
+    private static final int MAX_DEGENERATE_PIVOTS = 50;
+
+    private enum Status {
+        BASIC, AT_LOWER, AT_UPPER, FREE
+    }
+
+    private static class Constraint {
+        private final int[] variables;
+        private final double[] coefficients;
+        private final double lower;
+        private final double upper;
+
+        private Constraint(final int[] variables, final double[] coefficients, final double lower, final double upper) {
+            this.variables = variables;
+            this.coefficients = coefficients;
+            this.lower = lower;
+            this.upper = upper;
+        }
+    }
+
+    private final ArrayList<Double> lowerBounds = new ArrayList<Double>();
+    private final ArrayList<Double> upperBounds = new ArrayList<Double>();
+    private final ArrayList<Double> costs = new ArrayList<Double>();
+    private final ArrayList<Constraint> constraints = new ArrayList<Constraint>();
+
+    // State of the simplex method
+    private int numberOfRows;
+    private int numberOfColumns;
+    private double[][] tableau;
+    private double[] reducedCosts;
+    private double[] lower;
+    private double[] upper;
+    private double[] values;
+    private Status[] statuses;
+    private int[] basis;
+
+    public static LinearProgram linearProgram() {
+        return new LinearProgram();
+    }
+
+    private LinearProgram() {
+    }
+
+    public int getNumberOfVariables() {
+        return costs.size();
+    }
+
+    public int getNumberOfConstraints() {
+        return constraints.size();
+    }
+
+    /**
+     * @param lower Lower bound, may be negative infinity
+     * @param upper Upper bound, may be positive infinity
+     * @param cost  Coefficient of the variable in the objective function
+     * @return index of the new variable
+     */
+    public int addVariable(final double lower, final double upper, final double cost) {
+        if (Double.isNaN(lower) || Double.isNaN(upper) || lower > upper || lower == Double.POSITIVE_INFINITY ||
+                upper == Double.NEGATIVE_INFINITY || Double.isNaN(cost) || Double.isInfinite(cost)) {
+            throw new IllegalArgumentException("Invalid variable: [" + lower + ", " + upper + "], cost " + cost);
+        }
+        lowerBounds.add(lower);
+        upperBounds.add(upper);
+        costs.add(cost);
+        return costs.size() - 1;
+    }
+
+    /**
+     * Adds the constraint lower <= sum(coefficients[i] * variables[i]) <= upper.
+     *
+     * @param variables    Indices of the variables
+     * @param coefficients Coefficient for each variable
+     * @param lower        Lower bound, may be negative infinity
+     * @param upper        Upper bound, may be positive infinity
+     */
+    public void addConstraint(final int[] variables,
+                              final double[] coefficients,
+                              final double lower,
+                              final double upper) {
+        if (variables.length != coefficients.length || Double.isNaN(lower) || Double.isNaN(upper) || lower > upper ||
+                lower == Double.POSITIVE_INFINITY || upper == Double.NEGATIVE_INFINITY) {
+            throw new IllegalArgumentException("Invalid constraint: [" + lower + ", " + upper + "]");
+        }
+        for (int i = 0; i < variables.length; ++i) {
+            if (variables[i] < 0 || variables[i] >= costs.size() || Double.isNaN(coefficients[i]) ||
+                    Double.isInfinite(coefficients[i])) {
+                throw new IllegalArgumentException("Invalid coefficient of variable " + variables[i]);
+            }
+        }
+        constraints.add(new Constraint(Arrays.copyOf(variables, variables.length),
+                Arrays.copyOf(coefficients, coefficients.length), lower, upper));
+    }
+
+    /**
+     * @return values of the variables that minimize the objective function, or empty if the program is infeasible or
+     * unbounded, or if the iteration limit is reached because of numerical problems
+     */
+    public Optional<double[]> minimize() {
+        final int numberOfArtificials = initialize();
+        final int maxIterations = 1000 + 20 * (numberOfRows + numberOfColumns);
+        final int numberOfVariables = costs.size();
+        final int firstArtificial = numberOfVariables + numberOfRows;
+
+        if (numberOfArtificials > 0) {
+            final double[] phase1Costs = new double[numberOfColumns];
+            Arrays.fill(phase1Costs, firstArtificial, numberOfColumns, 1.0);
+            if (!optimize(phase1Costs, maxIterations)) {
+                return Optional.empty();
+            }
+            double infeasibility = 0.0;
+            for (int row = 0; row < numberOfRows; ++row) {
+                if (basis[row] >= firstArtificial) {
+                    infeasibility += values[basis[row]];
+                }
+            }
+            if (infeasibility > FEASIBILITY_TOLERANCE) {
+                return Optional.empty();
+            }
+
+            // Artificial variables are fixed to 0.0 and moved out of the basis where possible.
+            for (int column = firstArtificial; column < numberOfColumns; ++column) {
+                lower[column] = 0.0;
+                upper[column] = 0.0;
+                if (statuses[column] != Status.BASIC) {
+                    statuses[column] = Status.AT_LOWER;
+                    values[column] = 0.0;
+                }
+            }
+            for (int row = 0; row < numberOfRows; ++row) {
+                if (basis[row] >= firstArtificial) {
+                    final double[] tableauRow = tableau[row];
+                    for (int column = 0; column < firstArtificial; ++column) {
+                        if (statuses[column] != Status.BASIC && Math.abs(tableauRow[column]) > 1e-6) {
+                            values[basis[row]] = 0.0;
+                            statuses[basis[row]] = Status.AT_LOWER;
+                            pivot(row, column);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        final double[] phase2Costs = new double[numberOfColumns];
+        for (int column = 0; column < numberOfVariables; ++column) {
+            phase2Costs[column] = costs.get(column);
+        }
+        if (!optimize(phase2Costs, maxIterations)) {
+            return Optional.empty();
+        }
+
+        final double[] solution = new double[numberOfVariables];
+        for (int column = 0; column < numberOfVariables; ++column) {
+            solution[column] = Math.max(lower[column], Math.min(upper[column], values[column]));
+        }
+        return Optional.of(solution);
+    }
+
+    /**
+     * Sets up the tableau with the variables at their start values and a basis of logical and artificial variables.
+     *
+     * @return number of artificial variables
+     */
+    private int initialize() {
+        final int numberOfVariables = costs.size();
+        numberOfRows = constraints.size();
+        final double[] activities = new double[numberOfRows];
+        final double[] startValues = new double[numberOfVariables];
+        final Status[] startStatuses = new Status[numberOfVariables];
+        for (int column = 0; column < numberOfVariables; ++column) {
+            final double lowerBound = lowerBounds.get(column);
+            final double upperBound = upperBounds.get(column);
+            if (lowerBound != Double.NEGATIVE_INFINITY) {
+                startValues[column] = lowerBound;
+                startStatuses[column] = Status.AT_LOWER;
+            } else if (upperBound != Double.POSITIVE_INFINITY) {
+                startValues[column] = upperBound;
+                startStatuses[column] = Status.AT_UPPER;
+            } else {
+                startValues[column] = 0.0;
+                startStatuses[column] = Status.FREE;
+            }
+        }
+        int numberOfArtificials = 0;
+        for (int row = 0; row < numberOfRows; ++row) {
+            final Constraint constraint = constraints.get(row);
+            double activity = 0.0;
+            for (int i = 0; i < constraint.variables.length; ++i) {
+                activity += constraint.coefficients[i] * startValues[constraint.variables[i]];
+            }
+            activities[row] = activity;
+            if (activity < constraint.lower || activity > constraint.upper) {
+                ++numberOfArtificials;
+            }
+        }
+
+        final int firstLogical = numberOfVariables;
+        final int firstArtificial = numberOfVariables + numberOfRows;
+        numberOfColumns = firstArtificial + numberOfArtificials;
+        tableau = new double[numberOfRows][numberOfColumns];
+        reducedCosts = new double[numberOfColumns];
+        lower = new double[numberOfColumns];
+        upper = new double[numberOfColumns];
+        values = new double[numberOfColumns];
+        statuses = new Status[numberOfColumns];
+        basis = new int[numberOfRows];
+        for (int column = 0; column < numberOfVariables; ++column) {
+            lower[column] = lowerBounds.get(column);
+            upper[column] = upperBounds.get(column);
+            values[column] = startValues[column];
+            statuses[column] = startStatuses[column];
+        }
+
+        int artificial = firstArtificial;
+        for (int row = 0; row < numberOfRows; ++row) {
+            final Constraint constraint = constraints.get(row);
+            final int logical = firstLogical + row;
+            lower[logical] = constraint.lower;
+            upper[logical] = constraint.upper;
+            final double activity = activities[row];
+            final double[] tableauRow = tableau[row];
+            if (activity >= constraint.lower && activity <= constraint.upper) {
+                // Row: logical - sum(coefficients * variables) = 0
+                for (int i = 0; i < constraint.variables.length; ++i) {
+                    tableauRow[constraint.variables[i]] -= constraint.coefficients[i];
+                }
+                tableauRow[logical] = 1.0;
+                basis[row] = logical;
+                statuses[logical] = Status.BASIC;
+                values[logical] = activity;
+            } else {
+                // Row: (sum(coefficients * variables) - logical) / sign + artificial = 0 with the logical variable
+                // at its violated bound, so that the artificial variable is positive
+                final boolean belowLower = activity < constraint.lower;
+                final double sign = belowLower ? 1.0 : -1.0;
+                for (int i = 0; i < constraint.variables.length; ++i) {
+                    tableauRow[constraint.variables[i]] += constraint.coefficients[i] / sign;
+                }
+                tableauRow[logical] = -1.0 / sign;
+                tableauRow[artificial] = 1.0;
+                values[logical] = belowLower ? constraint.lower : constraint.upper;
+                statuses[logical] = belowLower ? Status.AT_LOWER : Status.AT_UPPER;
+                lower[artificial] = 0.0;
+                upper[artificial] = Double.POSITIVE_INFINITY;
+                basis[row] = artificial;
+                statuses[artificial] = Status.BASIC;
+                values[artificial] = (values[logical] - activity) / sign;
+                ++artificial;
+            }
+        }
+        return numberOfArtificials;
+    }
+
+    /**
+     * Runs the simplex method with the costs, starting from the current basis.
+     *
+     * @return false if the objective function is unbounded or the iteration limit is reached
+     */
+    private boolean optimize(final double[] columnCosts, final int maxIterations) {
+        System.arraycopy(columnCosts, 0, reducedCosts, 0, numberOfColumns);
+        for (int row = 0; row < numberOfRows; ++row) {
+            final double basicCost = columnCosts[basis[row]];
+            if (basicCost != 0.0) {
+                final double[] tableauRow = tableau[row];
+                for (int column = 0; column < numberOfColumns; ++column) {
+                    reducedCosts[column] -= basicCost * tableauRow[column];
+                }
+            }
+        }
+
+        int degeneratePivots = 0;
+        for (int iteration = 0; iteration < maxIterations; ++iteration) {
+            final boolean bland = degeneratePivots >= MAX_DEGENERATE_PIVOTS;
+
+            // Pricing
+            int entering = -1;
+            double direction = 0.0;
+            double bestReducedCost = OPTIMALITY_TOLERANCE;
+            for (int column = 0; column < numberOfColumns; ++column) {
+                final Status status = statuses[column];
+                if (status == Status.BASIC || lower[column] == upper[column]) {
+                    continue;
+                }
+                final double reducedCost = reducedCosts[column];
+                if (status != Status.AT_UPPER && -reducedCost > bestReducedCost) {
+                    entering = column;
+                    direction = 1.0;
+                    bestReducedCost = -reducedCost;
+                } else if (status != Status.AT_LOWER && reducedCost > bestReducedCost) {
+                    entering = column;
+                    direction = -1.0;
+                    bestReducedCost = reducedCost;
+                } else {
+                    continue;
+                }
+                if (bland) {
+                    break;
+                }
+            }
+            if (entering < 0) {
+                return true;
+            }
+
+            // Ratio test: the entering variable moves in the direction until a basic variable or the entering variable
+            // itself reaches a bound.
+            double step = upper[entering] - lower[entering];
+            int leaving = -1;
+            boolean leavingToUpper = false;
+            double leavingPivot = 0.0;
+            for (int row = 0; row < numberOfRows; ++row) {
+                final double alpha = tableau[row][entering] * direction;
+                final int basic = basis[row];
+                final double limit;
+                if (alpha > PIVOT_TOLERANCE && lower[basic] != Double.NEGATIVE_INFINITY) {
+                    limit = Math.max(0.0, (values[basic] - lower[basic]) / alpha);
+                } else if (alpha < -PIVOT_TOLERANCE && upper[basic] != Double.POSITIVE_INFINITY) {
+                    limit = Math.max(0.0, (upper[basic] - values[basic]) / -alpha);
+                } else {
+                    continue;
+                }
+                final boolean better = bland ?
+                        limit < step || limit == step && leaving >= 0 && basic < basis[leaving] :
+                        limit < step || limit == step && Math.abs(alpha) > leavingPivot;
+                if (better) {
+                    step = limit;
+                    leaving = row;
+                    leavingToUpper = alpha < 0.0;
+                    leavingPivot = Math.abs(alpha);
+                }
+            }
+            if (step == Double.POSITIVE_INFINITY) {
+                return false;
+            }
+            degeneratePivots = step > 0.0 ? 0 : degeneratePivots + 1;
+
+            for (int row = 0; row < numberOfRows; ++row) {
+                values[basis[row]] -= tableau[row][entering] * direction * step;
+            }
+            if (leaving < 0) {
+                // Bound flip
+                values[entering] = direction > 0.0 ? upper[entering] : lower[entering];
+                statuses[entering] = direction > 0.0 ? Status.AT_UPPER : Status.AT_LOWER;
+            } else {
+                values[entering] += direction * step;
+                final int basic = basis[leaving];
+                values[basic] = leavingToUpper ? upper[basic] : lower[basic];
+                statuses[basic] = leavingToUpper ? Status.AT_UPPER : Status.AT_LOWER;
+                pivot(leaving, entering);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Makes the column basic in the row; the reduced costs are updated as well.
+     */
+    private void pivot(final int pivotRow, final int pivotColumn) {
+        final double[] tableauRow = tableau[pivotRow];
+        final double pivotElement = tableauRow[pivotColumn];
+        for (int column = 0; column < numberOfColumns; ++column) {
+            tableauRow[column] /= pivotElement;
+        }
+        tableauRow[pivotColumn] = 1.0;
+        for (int row = 0; row < numberOfRows; ++row) {
+            if (row != pivotRow) {
+                eliminate(tableau[row], tableauRow, pivotColumn);
+            }
+        }
+        eliminate(reducedCosts, tableauRow, pivotColumn);
+        basis[pivotRow] = pivotColumn;
+        statuses[pivotColumn] = Status.BASIC;
+    }
+
+    private void eliminate(final double[] target, final double[] pivotRow, final int pivotColumn) {
+        final double factor = target[pivotColumn];
+        if (factor != 0.0) {
+            for (int column = 0; column < numberOfColumns; ++column) {
+                target[column] -= factor * pivotRow[column];
+            }
+            target[pivotColumn] = 0.0;
+        }
+    }
+}
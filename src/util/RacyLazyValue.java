@@ -18,39 +18,22 @@
  You should have received a copy of the GNU General Public License
  along with this program. If not, see <http://www.gnu.org/licenses/>.
  **********************************************************************/
-package diet;
+package util;
 
-public class Score {
-    private final double score;
-    private final double weight;
-
-    public static Score score(final double score, final double weight) {
-        return new Score(score, weight);
-    }
-
-    private Score(final double score, final double weight) {
-        this.score = score;
-        this.weight = weight;
-    }
-
-    public double getScore() {
-        return score;
-    }
-
-    public double getWeight() {
-        return weight;
-    }
-
-    public double getWeightedScore() {
-        return score * weight;
-    }
-
-    public double getDiffFromWeight() {
-        return getWeight() - getWeightedScore();
-    }
+/**
+ * Single-check lazy value. Concurrent threads may compute the value more than once, but each of them sees a
+ * completely computed value. The computed value must not be null.
+ */
+public abstract class RacyLazyValue<A> extends LazyValue<A> {
+    private volatile A value;
 
     @Override
-    public String toString() {
-        return "<" + getWeightedScore() + " / " + weight + ">";
+    public A get() {
+        A result = value;
+        if (result == null) {
+            result = compute();
+            value = result;
+        }
+        return result;
     }
 }
@@ -0,0 +1,69 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package util;
+
+import java.util.SplittableRandom;
+
+/**
+ * Seedable source of random numbers. Independent sources for workers or candidates are split off deterministically,
+ * so that runs with the same seed produce the same random numbers. A source must only be used by one thread at a
+ * time.
+ */
+public class RandomSource {
+    private final SplittableRandom random;
+
+    public static RandomSource randomSource(final long seed) {
+        return new RandomSource(new SplittableRandom(seed));
+    }
+
+    /**
+     * @return source with a random seed
+     */
+    public static RandomSource randomSource() {
+        return new RandomSource(new SplittableRandom());
+    }
+
+    private RandomSource(final SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * @return new source, which is independent of this source; the seed of this source determines its numbers
+     */
+    public RandomSource split() {
+        return new RandomSource(random.split());
+    }
+
+    /**
+     * @param bound Upper bound (exclusive), must be positive
+     */
+    public int nextInt(final int bound) {
+        return random.nextInt(bound);
+    }
+
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    public boolean nextBoolean() {
+        return random.nextInt(2) == 0;
+    }
+}
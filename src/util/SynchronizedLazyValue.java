@@ -0,0 +1,44 @@
+/**********************************************************************
+ DietPlanner
+
+ Copyright (C) 2015-2016 Andreas Huemer
+
+ This file is part of DietPlanner.
+
+ DietPlanner is free software: you can redistribute it and/or modify it
+ under the terms of the GNU General Public License as published by the
+ Free Software Foundation, either version 3 of the License, or (at
+ your option) any later version.
+
+ DietPlanner is distributed in the hope that it will be useful, but
+ WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program. If not, see <http://www.gnu.org/licenses/>.
+ **********************************************************************/
+package util;
+
+/**
+ * Double-checked lazy value, which is computed exactly once. Once the value has been computed, it is read without
+ * locking. The computed value must not be null.
+ */
+public abstract class SynchronizedLazyValue<A> extends LazyValue<A> {
+    private volatile A value;
+
+    @Override
+    public A get() {
+        A result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    result = compute();
+                    value = result;
+                }
+            }
+        }
+        return result;
+    }
+}